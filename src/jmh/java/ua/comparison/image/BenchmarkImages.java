@@ -0,0 +1,144 @@
+package ua.comparison.image;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+/**
+ * Synthetic images for the benchmarks, so they run without any image files. The same parameters always make the same
+ * images.
+ */
+final class BenchmarkImages {
+
+	/**
+	 * Changes every channel by 128, which is different by any {@link PixelDistance} with the default tolerance.
+	 */
+	private static final int DIFFERENCE = 0x808080;
+
+	/**
+	 * The sizes of the images.
+	 */
+	enum Size {
+		VGA(640, 480),
+		HD(1920, 1080),
+		UHD_4K(3840, 2160),
+		UHD_8K(7680, 4320);
+
+		final int width;
+		final int height;
+
+		Size(int width, int height) {
+			this.width = width;
+			this.height = height;
+		}
+	}
+
+	/**
+	 * The types of the images, by the names of the {@link BufferedImage} constants.
+	 */
+	enum Type {
+		INT_RGB(BufferedImage.TYPE_INT_RGB),
+		THREE_BYTE_BGR(BufferedImage.TYPE_3BYTE_BGR),
+		FOUR_BYTE_ABGR(BufferedImage.TYPE_4BYTE_ABGR);
+
+		final int imageType;
+
+		Type(int imageType) {
+			this.imageType = imageType;
+		}
+	}
+
+	/**
+	 * How the different pixels are spread over the second image.
+	 */
+	enum Density {
+		/**
+		 * The images are equal.
+		 */
+		NONE,
+		/**
+		 * A few small rectangles.
+		 */
+		SPARSE,
+		/**
+		 * A few big blobs, half of their pixels are different.
+		 */
+		CLUSTERED,
+		/**
+		 * 5% of the pixels, everywhere.
+		 */
+		NOISE
+	}
+
+	private BenchmarkImages() {
+	}
+
+	/**
+	 * Create two images of the same size and type.
+	 *
+	 * @return the first and the second image.
+	 */
+	static BufferedImage[] createPair(Size size, Type type, Density density) {
+		Random random = new Random(size.ordinal() * 31 + density.ordinal());
+		int[] pixels1 = new int[size.width * size.height];
+		for (int y = 0; y < size.height; y++) {
+			for (int x = 0; x < size.width; x++) {
+				// a gradient with a bit of texture, like a screenshot
+				pixels1[y * size.width + x] = (x * 255 / size.width) << 16 | (y * 255 / size.height) << 8 | random.nextInt(32);
+			}
+		}
+		int[] pixels2 = pixels1.clone();
+		addDifferences(pixels2, size, density, random);
+		return new BufferedImage[] { toImage(pixels1, size, type), toImage(pixels2, size, type) };
+	}
+
+	private static void addDifferences(int[] pixels, Size size, Density density, Random random) {
+		switch (density) {
+			case NONE:
+				break;
+			case SPARSE:
+				for (int i = 0; i < 20; i++) {
+					fill(pixels, size, random.nextInt(size.width - 4), random.nextInt(size.height - 4), 4, 1.0, random);
+				}
+				break;
+			case CLUSTERED:
+				int blobSize = size.width / 20;
+				for (int i = 0; i < 10; i++) {
+					fill(pixels, size, random.nextInt(size.width - blobSize), random.nextInt(size.height - blobSize), blobSize, 0.5, random);
+				}
+				break;
+			case NOISE:
+				for (int i = 0; i < pixels.length / 20; i++) {
+					pixels[random.nextInt(pixels.length)] ^= DIFFERENCE;
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown density " + density);
+		}
+	}
+
+	private static void fill(int[] pixels, Size size, int fromX, int fromY, int side, double probability, Random random) {
+		for (int y = fromY; y < fromY + side; y++) {
+			for (int x = fromX; x < fromX + side; x++) {
+				if (random.nextDouble() < probability) {
+					pixels[y * size.width + x] ^= DIFFERENCE;
+				}
+			}
+		}
+	}
+
+	private static BufferedImage toImage(int[] pixels, Size size, Type type) {
+		BufferedImage rgb = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+		int[] data = ((DataBufferInt) rgb.getRaster().getDataBuffer()).getData();
+		System.arraycopy(pixels, 0, data, 0, pixels.length);
+		if (type.imageType == BufferedImage.TYPE_INT_RGB) {
+			return rgb;
+		}
+		BufferedImage image = new BufferedImage(size.width, size.height, type.imageType);
+		Graphics2D graphics = image.createGraphics();
+		graphics.drawImage(rgb, 0, 0, null);
+		graphics.dispose();
+		return image;
+	}
+}
@@ -0,0 +1,106 @@
+package ua.comparison.image;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the stages of {@link ImageComparison#compareImages()} and of the drawing of the result. Every stage
+ * gets the input of the previous ones ready, so it's measured alone. Run it by {@code ./gradlew jmh}, a part of the
+ * parameters can be chosen by the JMH options, for example {@code -PjmhArgs="-p size=VGA -p type=INT_RGB"}.
+ * The {@link #threshold} matters only for the grouping of the regions and the whole comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ComparisonStagesBenchmark {
+
+	@Param({ "VGA", "HD", "UHD_4K", "UHD_8K" })
+	public BenchmarkImages.Size size;
+
+	@Param({ "INT_RGB", "THREE_BYTE_BGR", "FOUR_BYTE_ABGR" })
+	public BenchmarkImages.Type type;
+
+	@Param({ "NONE", "SPARSE", "CLUSTERED", "NOISE" })
+	public BenchmarkImages.Density density;
+
+	@Param({ "1", "5", "10" })
+	public int threshold;
+
+	private BufferedImage image1;
+	private BufferedImage image2;
+	private DifferenceMask mask;
+	private RegionBounds regions;
+	private ImageComparison comparedImages;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ImageComparison.threshold = threshold;
+		BufferedImage[] images = BenchmarkImages.createPair(size, type, density);
+		image1 = images[0];
+		image2 = images[1];
+		mask = ImageComparisonTools.populateTheMatrixOfTheDifferences(image1, image2);
+		regions = RegionLabeler.labelRegions(mask, threshold);
+		comparedImages = new ImageComparison(image1, image2);
+		comparedImages.compareImages();
+	}
+
+	/**
+	 * The mask of the different pixels, see
+	 * {@link ImageComparisonTools#populateTheMatrixOfTheDifferences(BufferedImage, BufferedImage)}.
+	 */
+	@Benchmark
+	public DifferenceMask populateTheMatrixOfTheDifferences() {
+		return ImageComparisonTools.populateTheMatrixOfTheDifferences(image1, image2);
+	}
+
+	/**
+	 * The grouping of the different pixels into the regions.
+	 */
+	@Benchmark
+	public RegionBounds groupRegions() {
+		return RegionLabeler.labelRegions(mask, threshold);
+	}
+
+	/**
+	 * The rectangles of the regions.
+	 */
+	@Benchmark
+	public List<Rectangle> createRectangles() {
+		return regions.toRectangles(ImageComparison.minimumRectangleSize);
+	}
+
+	/**
+	 * The drawing of the result, see {@link ImageComparison#getImageComparison()}.
+	 */
+	@Benchmark
+	public BufferedImage getImageComparison() {
+		return comparedImages.getImageComparison();
+	}
+
+	/**
+	 * All stages of {@link ImageComparison#compareImages()} together.
+	 */
+	@Benchmark
+	public ComparisonResult compareImages() {
+		return new ImageComparison(image1, image2).compareImages();
+	}
+}
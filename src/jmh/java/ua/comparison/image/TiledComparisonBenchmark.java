@@ -0,0 +1,63 @@
+package ua.comparison.image;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of the {@link TiledComparison} by the count of the threads. All runs of the same count use the same shared
+ * pool, so the start of the threads is not measured. Compare the times of the {@link #threads} to get the speedup,
+ * for example {@code -PjmhArgs="TiledComparisonBenchmark -p size=UHD_4K -p density=SPARSE"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TiledComparisonBenchmark {
+
+	@Param({ "1", "2", "4", "8", "16" })
+	public int threads;
+
+	@Param({ "HD", "UHD_4K", "UHD_8K" })
+	public BenchmarkImages.Size size;
+
+	@Param({ "NONE", "SPARSE", "NOISE" })
+	public BenchmarkImages.Density density;
+
+	@Param({ "256" })
+	public int tileSize;
+
+	private BufferedImage image1;
+	private BufferedImage image2;
+	private TiledComparison tiledComparison;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BufferedImage[] images = BenchmarkImages.createPair(size, BenchmarkImages.Type.INT_RGB, density);
+		image1 = images[0];
+		image2 = images[1];
+		tiledComparison = new TiledComparison(PixelDistance.defaultDistance(), ComparisonOptions.DEFAULT_THRESHOLD, threads, tileSize);
+	}
+
+	/**
+	 * The population and the labeling of the strips by the tasks, and the joining of their regions.
+	 */
+	@Benchmark
+	public RegionBounds compare() {
+		return tiledComparison.compare(image1, image2);
+	}
+}
@@ -0,0 +1,147 @@
+package ua.comparison.image;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writer of the images in the background threads, so the comparing thread doesn't wait for the encoding. The count
+ * of the images which are queued or written is limited: when the queue is full, {@link #write} waits until one of
+ * them is written, so the images which wait for the encoding don't fill the memory.
+ * <p>
+ * The written images must not be modified. The failures are reported by the returned futures and by
+ * {@link #awaitWritten()} and {@link #close()}: an {@link IOException}, a {@link RuntimeException} or an {@link Error}
+ * is thrown as it is, anything else is wrapped in an {@link IOException}.
+ */
+public class AsyncImageWriter implements AutoCloseable {
+
+	private final ExecutorService executor;
+	private final int queueCapacity;
+	/**
+	 * The free places in the queue.
+	 */
+	private final Semaphore queue;
+	/**
+	 * The first failure which is not yet reported.
+	 */
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+	/**
+	 * Create a writer with one thread and the queue of two images.
+	 */
+	public AsyncImageWriter() {
+		this(1, 2);
+	}
+
+	/**
+	 * @param threads
+	 * 		the count of the threads which encode the images.
+	 * @param queueCapacity
+	 * 		the max count of the images which are queued or written at once.
+	 */
+	public AsyncImageWriter(int threads, int queueCapacity) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The threads should be positive, but was " + threads);
+		}
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("The queue capacity should be positive, but was " + queueCapacity);
+		}
+		this.executor = Executors.newFixedThreadPool(threads);
+		this.queueCapacity = queueCapacity;
+		this.queue = new Semaphore(queueCapacity);
+	}
+
+	/**
+	 * Queue the image to be written, waiting while the queue is full.
+	 *
+	 * @param image
+	 * 		the {@link BufferedImage} object, which must not be modified any more.
+	 * @param file
+	 * 		the destination file.
+	 * @param output
+	 * 		the format of the file.
+	 * @return the future of the written file.
+	 * @throws InterruptedException
+	 * 		if the thread is interrupted while waiting for the queue.
+	 */
+	public CompletableFuture<File> write(BufferedImage image, File file, ImageOutput output) throws InterruptedException {
+		queue.acquire();
+		CompletableFuture<File> written = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				try {
+					ImageComparisonTools.saveImage(file, image, output);
+					written.complete(file);
+				} catch (Throwable e) {
+					// the errors are reported too, else the future is never completed
+					failure.compareAndSet(null, e);
+					written.completeExceptionally(e);
+				} finally {
+					// the future is completed before, so it's done when all places are free
+					queue.release();
+				}
+			});
+		} catch (RuntimeException e) {
+			queue.release();
+			throw e;
+		}
+		return written;
+	}
+
+	/**
+	 * Wait until all queued images are written.
+	 *
+	 * @throws IOException
+	 * 		the first failure of the writing since the last call, if any, see the class description.
+	 * @throws InterruptedException
+	 * 		if the thread is interrupted while waiting.
+	 */
+	public void awaitWritten() throws IOException, InterruptedException {
+		queue.acquire(queueCapacity);
+		queue.release(queueCapacity);
+		reportFailure();
+	}
+
+	/**
+	 * Write all queued images and stop the threads. If the thread is interrupted while waiting, the images are still
+	 * written by the stopping threads, the interrupt status of the thread is set and the method returns at once.
+	 *
+	 * @throws IOException
+	 * 		the first failure of the writing which is not yet reported, if any, see the class description.
+	 */
+	@Override
+	public void close() throws IOException {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		reportFailure();
+	}
+
+	/**
+	 * Throw the first failure which is not yet reported, if any.
+	 */
+	private void reportFailure() throws IOException {
+		Throwable e = failure.getAndSet(null);
+		if (e instanceof IOException) {
+			throw (IOException) e;
+		}
+		if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		}
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+		if (e != null) {
+			throw new IOException("Unable to write the image", e);
+		}
+	}
+}
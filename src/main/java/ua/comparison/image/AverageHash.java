@@ -0,0 +1,35 @@
+package ua.comparison.image;
+
+import java.awt.image.BufferedImage;
+
+import static ua.comparison.image.ImageComparisonTools.lumaGrid;
+
+/**
+ * The hash of 8 x 8 cells, the bit of a cell is set if its luma is above the average.
+ */
+final class AverageHash implements PerceptualHash {
+
+	static final AverageHash INSTANCE = new AverageHash();
+
+	private static final int SIZE = 8;
+
+	private AverageHash() {
+	}
+
+	@Override
+	public long hash(BufferedImage image) {
+		long[] cells = lumaGrid(image, SIZE, SIZE);
+		long sum = 0;
+		for (long cell : cells) {
+			sum += cell;
+		}
+		long hash = 0;
+		for (int i = 0; i < cells.length; i++) {
+			// cell > sum / 64 without the rounding
+			if (cells[i] * cells.length > sum) {
+				hash |= 1L << i;
+			}
+		}
+		return hash;
+	}
+}
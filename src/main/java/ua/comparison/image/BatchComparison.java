@@ -0,0 +1,284 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.BatchReport;
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.ImagePair;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Compare many pairs of image files. Every pair goes through three stages: both images are decoded, compared by
+ * the {@link ImageComparator} of {@link #setComparator(ImageComparator)} and, if they are different and {@link #setResultDirectory(File)} is set, the comparison
+ * image is written. Every stage has its own pool of threads, so the slow decoding of one pair runs while the other
+ * pairs are compared and written.
+ * <p>
+ * The count of the pairs which are decoded but not yet finished is limited by {@link #setMaxDecodedPairs(int)}.
+ * When the limit is reached, {@link #compare(List)} waits with the next pair until one of them is finished, so only
+ * a few decoded images are in the memory at once.
+ */
+public class BatchComparison {
+
+	private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The comparator of all pairs.
+	 */
+	private ImageComparator comparator = new ImageComparator();
+	private int decodeThreads = PROCESSORS;
+	private int compareThreads = PROCESSORS;
+	private int writeThreads = 1;
+	/**
+	 * The max count of the pairs which are decoded, but not yet compared and written.
+	 */
+	private int maxDecodedPairs = 2 * PROCESSORS;
+	/**
+	 * The directory for the comparison images of the different pairs, {@code null} means they are not written.
+	 */
+	private File resultDirectory;
+	/**
+	 * The format of the comparison images.
+	 */
+	private ImageOutput imageOutput = ImageOutput.png();
+	/**
+	 * The cache of the first images of the pairs, {@code null} if they are always decoded.
+	 */
+	private DecodedImageCache baselines;
+
+	/**
+	 * Set the comparator of all pairs, its {@link ComparisonOptions} replace the pixel distance and the listener which
+	 * were set before.
+	 *
+	 * @param comparator
+	 * 		the {@link ImageComparator} object, the one of {@link ComparisonOptions#defaults()} by default.
+	 */
+	public void setComparator(ImageComparator comparator) {
+		this.comparator = Objects.requireNonNull(comparator, "comparator");
+	}
+
+	/**
+	 * Set the rule which says if two pixels are different, it replaces the one of the options of the comparator.
+	 *
+	 * @param pixelDistance
+	 * 		the {@link PixelDistance} object, {@link PixelDistance#defaultDistance()} by default.
+	 */
+	public void setPixelDistance(PixelDistance pixelDistance) {
+		this.comparator = new ImageComparator(comparator.getOptions().withPixelDistance(pixelDistance));
+	}
+
+	/**
+	 * @param decodeThreads
+	 * 		the count of the threads which decode the images, the count of the processors by default.
+	 */
+	public void setDecodeThreads(int decodeThreads) {
+		this.decodeThreads = checkPositive("decode threads", decodeThreads);
+	}
+
+	/**
+	 * @param compareThreads
+	 * 		the count of the threads which compare the images, the count of the processors by default.
+	 */
+	public void setCompareThreads(int compareThreads) {
+		this.compareThreads = checkPositive("compare threads", compareThreads);
+	}
+
+	/**
+	 * @param writeThreads
+	 * 		the count of the threads which write the comparison images, "1" by default.
+	 */
+	public void setWriteThreads(int writeThreads) {
+		this.writeThreads = checkPositive("write threads", writeThreads);
+	}
+
+	/**
+	 * @param maxDecodedPairs
+	 * 		the max count of the pairs which are in the memory at once, twice the count of the processors by default.
+	 */
+	public void setMaxDecodedPairs(int maxDecodedPairs) {
+		this.maxDecodedPairs = checkPositive("max decoded pairs", maxDecodedPairs);
+	}
+
+	/**
+	 * Set the listener of the comparisons of all pairs, it replaces the one of the options of the comparator. It's
+	 * called by the threads of the comparisons, so it should be thread-safe.
+	 *
+	 * @param listener
+	 * 		the {@link ComparisonListener} object, {@code null} by default which means there is no listener.
+	 */
+	public void setListener(ComparisonListener listener) {
+		this.comparator = new ImageComparator(comparator.getOptions().withListener(listener));
+	}
+
+	/**
+	 * Set the directory for the comparison images of the different pairs. The images are written in PNG format,
+	 * under the names of the pairs.
+	 *
+	 * @param resultDirectory
+	 * 		the directory, {@code null} by default which means the images are not written.
+	 */
+	public void setResultDirectory(File resultDirectory) {
+		this.resultDirectory = resultDirectory;
+	}
+
+	/**
+	 * @param imageOutput
+	 * 		the format of the comparison images, {@link ImageOutput#png()} by default. The extension of the images is
+	 * 		the one of the format.
+	 */
+	public void setImageOutput(ImageOutput imageOutput) {
+		this.imageOutput = imageOutput;
+	}
+
+	/**
+	 * Set the cache of the first images of the pairs, the baselines, for example when the same baselines are compared
+	 * by many batches. The second images are always decoded.
+	 *
+	 * @param baselines
+	 * 		the cache, {@code null} by default which means the baselines are always decoded.
+	 */
+	public void setBaselineCache(DecodedImageCache baselines) {
+		this.baselines = baselines;
+	}
+
+	/**
+	 * Compare the images of the same relative paths in two directories.
+	 *
+	 * @param directory1
+	 * 		the directory of the first images, for example the baselines.
+	 * @param directory2
+	 * 		the directory of the second images, for example the candidates.
+	 * @return the report in the order of the relative paths.
+	 * @throws IOException
+	 * 		if the first directory can't be listed.
+	 * @throws InterruptedException
+	 * 		if the thread is interrupted while waiting for the pairs.
+	 * @see #pairDirectories(File, File)
+	 */
+	public BatchReport compareDirectories(File directory1, File directory2) throws IOException, InterruptedException {
+		return compare(pairDirectories(directory1, directory2));
+	}
+
+	/**
+	 * Compare the pairs of images. The failure of one pair, for example a missing file, doesn't stop the others,
+	 * it's recorded in its {@link BatchReport.Entry}.
+	 *
+	 * @param pairs
+	 * 		the pairs of the images.
+	 * @return the report in the order of the pairs.
+	 * @throws InterruptedException
+	 * 		if the thread is interrupted while waiting for the pairs.
+	 */
+	public BatchReport compare(List<ImagePair> pairs) throws InterruptedException {
+		ExecutorService decodeExecutor = Executors.newFixedThreadPool(decodeThreads);
+		ExecutorService compareExecutor = Executors.newFixedThreadPool(compareThreads);
+		ExecutorService writeExecutor = Executors.newFixedThreadPool(writeThreads);
+		Semaphore decodedPairs = new Semaphore(maxDecodedPairs);
+		try {
+			List<CompletableFuture<BatchReport.Entry>> entries = new ArrayList<>(pairs.size());
+			for (ImagePair pair : pairs) {
+				decodedPairs.acquire();
+				entries.add(CompletableFuture.supplyAsync(() -> decode(pair), decodeExecutor)
+											 .thenApplyAsync(this::compare, compareExecutor)
+											 .thenApplyAsync(imageComparison -> write(pair, imageComparison), writeExecutor)
+											 .handle((result, failure) -> toEntry(pair, result, failure))
+											 .whenComplete((entry, failure) -> decodedPairs.release()));
+			}
+			return new BatchReport(entries.stream().map(CompletableFuture::join).collect(toList()));
+		} finally {
+			decodeExecutor.shutdownNow();
+			compareExecutor.shutdownNow();
+			writeExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Pair the files of the first directory with the files of the same relative paths in the second one.
+	 * The names of the pairs are the relative paths with "/" as the separator.
+	 *
+	 * @return the pairs in the order of the relative paths.
+	 * @throws IOException
+	 * 		if the first directory can't be listed.
+	 */
+	public static List<ImagePair> pairDirectories(File directory1, File directory2) throws IOException {
+		Path root = directory1.toPath();
+		try (Stream<Path> files = Files.walk(root)) {
+			return files.filter(Files::isRegularFile)
+						.map(root::relativize)
+						.sorted()
+						.map(path -> new ImagePair(path.toString().replace(File.separatorChar, '/'),
+								root.resolve(path).toFile(), directory2.toPath().resolve(path).toFile()))
+						.collect(toList());
+		}
+	}
+
+	private ImageComparison decode(ImagePair pair) {
+		try {
+			ImageComparison imageComparison = new ImageComparison(pair.getImage1(), pair.getImage2(), baselines);
+			// the listener is told also about the drawing of the comparison image
+			imageComparison.setListener(comparator.getOptions().getListener());
+			return imageComparison;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private ImageComparison compare(ImageComparison imageComparison) {
+		imageComparison.compareImages(comparator);
+		return imageComparison;
+	}
+
+	private ComparisonResult write(ImagePair pair, ImageComparison imageComparison) {
+		ComparisonResult result = imageComparison.getComparisonResult();
+		if (resultDirectory != null && result.hasDifferences()) {
+			try {
+				File destination = new File(resultDirectory, toResultName(pair.getName(), imageOutput.getFormat().getExtension()));
+				imageComparison.writeImageComparison(destination, Integer.MAX_VALUE, imageOutput);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return result;
+	}
+
+	private static String toResultName(String name, String extension) {
+		int dot = name.lastIndexOf('.');
+		if (dot > name.lastIndexOf('/')) {
+			name = name.substring(0, dot);
+		}
+		return name + extension;
+	}
+
+	private BatchReport.Entry toEntry(ImagePair pair, ComparisonResult result, Throwable failure) {
+		if (failure == null) {
+			return BatchReport.Entry.compared(pair, result);
+		}
+		if (failure instanceof CompletionException && failure.getCause() != null) {
+			failure = failure.getCause();
+		}
+		if (failure instanceof UncheckedIOException) {
+			failure = failure.getCause();
+		}
+		return BatchReport.Entry.failed(pair, failure);
+	}
+
+	private static int checkPositive(String name, int value) {
+		if (value < 1) {
+			throw new IllegalArgumentException("The " + name + " should be positive, but was " + value);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,151 @@
+package ua.comparison.image;
+
+import java.util.Arrays;
+
+/**
+ * Block prefilter of the equal pixels for the population of the {@link DifferenceMask}, for the big images with
+ * small changes. It's the mode of {@link ComparisonOptions#withBlockPrefilter(boolean)}: the rows are read in bands of
+ * {@link #BLOCK} rows, and a block of {@link #BLOCK}x{@link #BLOCK} pixels is marked if any of its pixels has another
+ * RGB value in the other image. The exact {@link PixelDistance} is checked only in the marked blocks, the words of
+ * the bands without any marked block are cleared at once. The rows of a band with a marked block are compared by the
+ * {@link VectorDifferenceKernel} when it's available, it's faster than checking the blocks one by one.
+ * <p>
+ * The pixels with the same RGB value are never different, so the prefilter is conservative and the mask is exactly
+ * the same as the one of
+ * {@link ImageComparisonTools#populateTheMatrixOfTheDifferences(DifferenceMask, PixelRowReader, PixelRowReader, PixelDistance, int, int)}.
+ * Every pixel is still compared by its value, but this check is much cheaper than the distance, so the images which
+ * differ in a small part are compared faster, and the images which differ everywhere slower.
+ */
+final class BlockPrefilter {
+
+	/**
+	 * The size of the blocks, which are checked pixel by pixel if they contain a changed pixel.
+	 */
+	static final int BLOCK = 4;
+
+	private static final int RGB = 0xffffff;
+
+	private static final boolean VECTOR_KERNEL = ImageComparisonTools.isVectorKernelAvailable();
+
+	private BlockPrefilter() {
+	}
+
+	/**
+	 * Populate the rows of the mask of the different pixels, checking the distance only in the changed blocks.
+	 *
+	 * @param mask
+	 * 		the mask of the different pixels.
+	 * @param reader1
+	 * 		the reader of the first image.
+	 * @param reader2
+	 * 		the reader of the second image.
+	 * @param pixelDistance
+	 * 		the rule which says if two pixels are different.
+	 * @param fromY
+	 * 		the first row to be populated, inclusive.
+	 * @param toY
+	 * 		the last row to be populated, exclusive.
+	 */
+	static void populateTheMatrixOfTheDifferences(DifferenceMask mask, PixelRowReader reader1, PixelRowReader reader2,
+			PixelDistance pixelDistance, int fromY, int toY) {
+		populateTheMatrixOfTheDifferences(mask, reader1, reader2, pixelDistance, fromY, toY, new WorkingBuffers());
+	}
+
+	/**
+	 * Populate the rows of the mask with the row buffers of the {@link WorkingBuffers}.
+	 *
+	 * @param buffers
+	 * 		the buffers of the rows and of the blocks of one band.
+	 * @see #populateTheMatrixOfTheDifferences(DifferenceMask, PixelRowReader, PixelRowReader, PixelDistance, int, int)
+	 */
+	static void populateTheMatrixOfTheDifferences(DifferenceMask mask, PixelRowReader reader1, PixelRowReader reader2,
+			PixelDistance pixelDistance, int fromY, int toY, WorkingBuffers buffers) {
+		int width = mask.getWidth();
+		// the rows of the first image, then the ones of the second image
+		int[][] rows = buffers.blockRows(width);
+		// the changed bits of every block of one band
+		int[] changes = buffers.blockChanges((width + BLOCK - 1) / BLOCK);
+		boolean vectorKernel = VECTOR_KERNEL && pixelDistance instanceof EuclideanPixelDistance;
+		for (int bandY = fromY; bandY < toY; bandY += BLOCK) {
+			int bandRows = Math.min(BLOCK, toY - bandY);
+			for (int row = 0; row < bandRows; row++) {
+				reader1.readRow(bandY + row, rows[row]);
+				reader2.readRow(bandY + row, rows[BLOCK + row]);
+			}
+			if (!markBlocks(rows, bandRows, width, changes)) {
+				for (int row = 0; row < bandRows; row++) {
+					clearRow(mask, bandY + row);
+				}
+				continue;
+			}
+			for (int row = 0; row < bandRows; row++) {
+				if (vectorKernel) {
+					VectorDifferenceKernel.populateRow(mask, bandY + row, rows[row], rows[BLOCK + row],
+							((EuclideanPixelDistance) pixelDistance).getMaxEqualSquaredDistance());
+				} else {
+					populateRow(mask, pixelDistance, bandY + row, rows[row], rows[BLOCK + row], changes);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the count of the bytes of the row buffers of one
+	 * {@link #populateTheMatrixOfTheDifferences(DifferenceMask, PixelRowReader, PixelRowReader, PixelDistance, int, int)}.
+	 */
+	static long getRowBufferBytes(int width) {
+		return (2L * BLOCK * width + (width + BLOCK - 1) / BLOCK) * Integer.BYTES;
+	}
+
+	/**
+	 * Collect the changed bits of every block of the band, a block is marked if its RGB bits are changed.
+	 *
+	 * @return {@code true} if any block is marked.
+	 */
+	private static boolean markBlocks(int[][] rows, int bandRows, int width, int[] changes) {
+		Arrays.fill(changes, 0, (width + BLOCK - 1) / BLOCK, 0);
+		// the rows are read one after another, the changes of every block are collected on the way
+		for (int row = 0; row < bandRows; row++) {
+			int[] row1 = rows[row];
+			int[] row2 = rows[BLOCK + row];
+			for (int x = 0; x < width; x++) {
+				changes[x / BLOCK] |= row1[x] ^ row2[x];
+			}
+		}
+		int any = 0;
+		for (int block = 0; block < (width + BLOCK - 1) / BLOCK; block++) {
+			any |= changes[block];
+		}
+		return (any & RGB) != 0;
+	}
+
+	/**
+	 * Populate one row of the mask, checking the pixels only in the marked blocks.
+	 */
+	private static void populateRow(DifferenceMask mask, PixelDistance pixelDistance, int y, int[] row1, int[] row2,
+			int[] changes) {
+		int width = mask.getWidth();
+		for (int wordStart = 0; wordStart < width; wordStart += 64) {
+			int wordEnd = Math.min(wordStart + 64, width);
+			long bits = 0;
+			// a word contains whole blocks, 64 is a multiple of their size
+			for (int blockX = wordStart; blockX < wordEnd; blockX += BLOCK) {
+				if ((changes[blockX / BLOCK] & RGB) == 0) {
+					continue;
+				}
+				for (int x = blockX; x < Math.min(blockX + BLOCK, wordEnd); x++) {
+					if (pixelDistance.isDifferent(row1[x], row2[x])) {
+						bits |= 1L << x;
+					}
+				}
+			}
+			mask.setWord(y, wordStart >>> 6, bits);
+		}
+	}
+
+	private static void clearRow(DifferenceMask mask, int y) {
+		for (int word = 0; word < (mask.getWidth() + 63) >>> 6; word++) {
+			mask.setWord(y, word, 0);
+		}
+	}
+}
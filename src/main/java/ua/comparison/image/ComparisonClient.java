@@ -0,0 +1,147 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.ComparisonStats;
+import ua.comparison.image.model.Rectangle;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thin client of a {@link ComparisonServer} which listens on a local port. The connection is kept open, so a
+ * comparison costs only the work of the server and one round trip. The requests are sent one after another.
+ */
+public class ComparisonClient implements AutoCloseable {
+
+	private final Socket socket;
+	private final BufferedReader reader;
+	private final Writer writer;
+	private long nextId;
+
+	/**
+	 * Connect to the server on the local port.
+	 *
+	 * @param port
+	 * 		the port of the server.
+	 * @throws IOException
+	 * 		if the server can't be reached.
+	 */
+	public ComparisonClient(int port) throws IOException {
+		socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		socket.setTcpNoDelay(true);
+		reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Compare the images with the default options of the server.
+	 *
+	 * @param image1
+	 * 		the first image, which is cached by the server as the baseline.
+	 * @param image2
+	 * 		the second image.
+	 * @return the result of the comparison, without the stats.
+	 * @throws IOException
+	 * 		if the comparison fails or the server is gone.
+	 */
+	public ComparisonResult compare(File image1, File image2) throws IOException {
+		return compare(image1, image2, null);
+	}
+
+	/**
+	 * Compare the images and let the server write the comparison image if they are different.
+	 *
+	 * @param result
+	 * 		the destination of the comparison image, in the output directory of the server, {@code null} if it's not
+	 * 		written.
+	 * @see #compare(File, File)
+	 */
+	public synchronized ComparisonResult compare(File image1, File image2, File result) throws IOException {
+		Map<String, Object> request = new LinkedHashMap<>();
+		request.put("id", nextId++);
+		request.put("image1", image1.getAbsolutePath());
+		request.put("image2", image2.getAbsolutePath());
+		if (result != null) {
+			request.put("result", result.getAbsolutePath());
+		}
+		Map<String, Object> response = send(request);
+		ComparisonResult.CheckResult checkResult = ComparisonResult.CheckResult.valueOf((String) response.get("checkResult"));
+		if (checkResult == ComparisonResult.CheckResult.ImageSizeMissmatch) {
+			return ComparisonResult.sizeMissmatch();
+		}
+		List<Rectangle> differences = new ArrayList<>();
+		for (Object element : (List<?>) response.get("differences")) {
+			Map<?, ?> difference = (Map<?, ?>) element;
+			Rectangle rectangle = new Rectangle();
+			rectangle.setMinX(((Number) difference.get("minX")).intValue());
+			rectangle.setMinY(((Number) difference.get("minY")).intValue());
+			rectangle.setMaxX(((Number) difference.get("maxX")).intValue());
+			rectangle.setMaxY(((Number) difference.get("maxY")).intValue());
+			differences.add(rectangle);
+		}
+		// the differences of a partial comparison don't say if the images match
+		double coverage = response.get("coverage") != null ? ((Number) response.get("coverage")).doubleValue() : 1;
+		return new ComparisonResult(differences, new ComparisonStats(), coverage);
+	}
+
+	/**
+	 * @return {@code true} if the server answers.
+	 */
+	public synchronized boolean ping() throws IOException {
+		Map<String, Object> request = new LinkedHashMap<>();
+		request.put("id", nextId++);
+		request.put("command", "ping");
+		return Boolean.TRUE.equals(send(request).get("pong"));
+	}
+
+	/**
+	 * Ask the server to stop.
+	 */
+	public synchronized void shutdownServer() throws IOException {
+		Map<String, Object> request = new LinkedHashMap<>();
+		request.put("id", nextId++);
+		request.put("command", "shutdown");
+		send(request);
+	}
+
+	private Map<String, Object> send(Map<String, Object> request) throws IOException {
+		writer.write(Json.write(request));
+		writer.write('\n');
+		writer.flush();
+		String line = reader.readLine();
+		if (line == null) {
+			throw new IOException("The server closed the connection");
+		}
+		Object parsed;
+		try {
+			parsed = Json.parse(line);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Broken response of the server: " + line, e);
+		}
+		if (!(parsed instanceof Map)) {
+			throw new IOException("Broken response of the server: " + line);
+		}
+		@SuppressWarnings("unchecked")
+		Map<String, Object> response = (Map<String, Object>) parsed;
+		if (response.get("error") != null) {
+			throw new IOException(response.get("error").toString());
+		}
+		return response;
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+}
@@ -0,0 +1,64 @@
+package ua.comparison.image;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time budget of a comparison, which can be cancelled from another thread too. The comparison checks it between
+ * the bands of rows and stops when it's expired, then the {@link ua.comparison.image.model.ComparisonResult} is
+ * {@link ua.comparison.image.model.ComparisonResult#isPartial() partial}: it holds the regions of the compared rows
+ * only. A partial result without differences is
+ * {@link ua.comparison.image.model.ComparisonResult.CheckResult#Incomplete Incomplete}, never {@code Match}, because
+ * the rows which were not compared can still differ.
+ * <p>
+ * One deadline can be shared by several comparisons, for example of one request, and they are cancelled together.
+ */
+public final class ComparisonDeadline {
+
+	/**
+	 * The {@link System#nanoTime()} when the deadline expires.
+	 */
+	private final long deadlineNanos;
+	private final boolean timed;
+	private volatile boolean cancelled;
+
+	private ComparisonDeadline(long deadlineNanos, boolean timed) {
+		this.deadlineNanos = deadlineNanos;
+		this.timed = timed;
+	}
+
+	/**
+	 * @param timeout
+	 * 		the time budget from now, a comparison with no positive budget compares nothing.
+	 * @param unit
+	 * 		the unit of the {@code timeout}.
+	 * @return the deadline which expires after the timeout or when it's cancelled.
+	 */
+	public static ComparisonDeadline after(long timeout, TimeUnit unit) {
+		return new ComparisonDeadline(System.nanoTime() + unit.toNanos(timeout), true);
+	}
+
+	/**
+	 * @return the deadline which expires only when it's cancelled.
+	 */
+	public static ComparisonDeadline cancellable() {
+		return new ComparisonDeadline(0, false);
+	}
+
+	/**
+	 * Stop the comparisons with this deadline at their next check.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return {@code true} if the deadline is cancelled or its time is over.
+	 */
+	public boolean isExpired() {
+		return cancelled || timed && System.nanoTime() - deadlineNanos >= 0;
+	}
+}
@@ -0,0 +1,28 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.ComparisonStats;
+
+/**
+ * Listener of the finished comparisons, for example to forward their {@link ComparisonStats} to a metrics system.
+ * It's called in the thread of the comparison, so it should return quickly.
+ */
+@FunctionalInterface
+public interface ComparisonListener {
+
+	/**
+	 * Called when the images are compared.
+	 *
+	 * @param stats
+	 * 		the stats of the comparison.
+	 */
+	void onComparison(ComparisonStats stats);
+
+	/**
+	 * Called when the differences are drawn, the {@link ComparisonStats#getRenderNanos()} is set.
+	 *
+	 * @param stats
+	 * 		the stats of the comparison.
+	 */
+	default void onRender(ComparisonStats stats) {
+	}
+}
@@ -0,0 +1,256 @@
+package ua.comparison.image;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Immutable options of the {@link ImageComparator}. Every {@code with} method returns a copy with one changed option,
+ * so the options can be shared between threads and comparators.
+ */
+public final class ComparisonOptions {
+
+	/**
+	 * The default max distance between the different pixels of the same region.
+	 */
+	public static final int DEFAULT_THRESHOLD = 5;
+	/**
+	 * The default minimum area size of a difference rectangle.
+	 */
+	public static final int DEFAULT_MINIMUM_RECTANGLE_SIZE = 1;
+
+	private static final ComparisonOptions DEFAULTS = new ComparisonOptions(DEFAULT_THRESHOLD, DEFAULT_MINIMUM_RECTANGLE_SIZE,
+			PixelDistance.defaultDistance(), 1, TiledComparison.DEFAULT_TILE_SIZE, -1, null, false, null, false, false, null);
+
+	private final int threshold;
+	private final int minimumRectangleSize;
+	private final PixelDistance pixelDistance;
+	private final int parallelism;
+	private final int tileSize;
+	private final int mergeGap;
+	private final ComparisonListener listener;
+	private final boolean blockPrefilter;
+	private final RegionMask regionMask;
+	private final boolean runLengthEncoding;
+	private final boolean dilation;
+	private final ForkJoinPool pool;
+
+	private ComparisonOptions(int threshold, int minimumRectangleSize, PixelDistance pixelDistance, int parallelism,
+			int tileSize, int mergeGap, ComparisonListener listener, boolean blockPrefilter, RegionMask regionMask,
+			boolean runLengthEncoding, boolean dilation, ForkJoinPool pool) {
+		this.threshold = threshold;
+		this.minimumRectangleSize = minimumRectangleSize;
+		this.pixelDistance = pixelDistance;
+		this.parallelism = parallelism;
+		this.tileSize = tileSize;
+		this.mergeGap = mergeGap;
+		this.listener = listener;
+		this.blockPrefilter = blockPrefilter;
+		this.regionMask = regionMask;
+		this.runLengthEncoding = runLengthEncoding;
+		this.dilation = dilation;
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the default options, the same as the defaults of {@link ImageComparison}.
+	 */
+	public static ComparisonOptions defaults() {
+		return DEFAULTS;
+	}
+
+	/**
+	 * @param threshold
+	 * 		the max distance between the different pixels of the same region.
+	 * @return the copy of the options with the threshold.
+	 */
+	public ComparisonOptions withThreshold(int threshold) {
+		return new ComparisonOptions(threshold, minimumRectangleSize, pixelDistance, parallelism, tileSize, mergeGap, listener, blockPrefilter, regionMask,
+				runLengthEncoding, dilation, pool);
+	}
+
+	/**
+	 * @param minimumRectangleSize
+	 * 		the minimum area size of a difference rectangle.
+	 * @return the copy of the options with the minimum rectangle size.
+	 */
+	public ComparisonOptions withMinimumRectangleSize(int minimumRectangleSize) {
+		return new ComparisonOptions(threshold, minimumRectangleSize, pixelDistance, parallelism, tileSize, mergeGap, listener, blockPrefilter, regionMask,
+				runLengthEncoding, dilation, pool);
+	}
+
+	/**
+	 * @param pixelDistance
+	 * 		the rule which says if two pixels are different, it should be thread-safe.
+	 * @return the copy of the options with the pixel distance.
+	 */
+	public ComparisonOptions withPixelDistance(PixelDistance pixelDistance) {
+		Objects.requireNonNull(pixelDistance, "pixelDistance");
+		return new ComparisonOptions(threshold, minimumRectangleSize, pixelDistance, parallelism, tileSize, mergeGap, listener, blockPrefilter, regionMask,
+				runLengthEncoding, dilation, pool);
+	}
+
+	/**
+	 * @param parallelism
+	 * 		the count of the threads of one comparison, "1" means the comparison in the calling thread.
+	 * @return the copy of the options with the parallelism.
+	 * @see ImageComparison#setParallelism(int)
+	 */
+	public ComparisonOptions withParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism should be positive, but was " + parallelism);
+		}
+		return new ComparisonOptions(threshold, minimumRectangleSize, pixelDistance, parallelism, tileSize, mergeGap, listener, blockPrefilter, regionMask,
+				runLengthEncoding, dilation, pool);
+	}
+
+	/**
+	 * @param tileSize
+	 * 		the count of the rows of one strip of the parallel comparison.
+	 * @return the copy of the options with the tile size.
+	 */
+	public ComparisonOptions withTileSize(int tileSize) {
+		if (tileSize < 1) {
+			throw new IllegalArgumentException("The tile size should be positive, but was " + tileSize);
+		}
+		return new ComparisonOptions(threshold, minimumRectangleSize, pixelDistance, parallelism, tileSize, mergeGap, listener, blockPrefilter, regionMask,
+				runLengthEncoding, dilation, pool);
+	}
+
+	/**
+	 * @param mergeGap
+	 * 		the max count of the pixels between two rectangles which are merged, a negative one means they are not merged.
+	 * @return the copy of the options with the merge gap.
+	 * @see ImageComparison#setMergeGap(int)
+	 */
+	public ComparisonOptions withMergeGap(int mergeGap) {
+		return new ComparisonOptions(threshold, minimumRectangleSize, pixelDistance, parallelism, tileSize, mergeGap, listener, blockPrefilter, regionMask,
+				runLengthEncoding, dilation, pool);
+	}
+
+	/**
+	 * @param listener
+	 * 		the listener of the comparisons, {@code null} if there is no one. It's called from the comparing threads.
+	 * @return the copy of the options with the listener.
+	 */
+	public ComparisonOptions withListener(ComparisonListener listener) {
+		return new ComparisonOptions(threshold, minimumRectangleSize, pixelDistance, parallelism, tileSize, mergeGap, listener, blockPrefilter, regionMask,
+				runLengthEncoding, dilation, pool);
+	}
+
+	/**
+	 * @param blockPrefilter
+	 * 		if the distance of the pixels is checked only in the blocks which contain changed pixels. The result is the
+	 * 		same, it's faster for the images with small changes.
+	 * @return the copy of the options with the block prefilter.
+	 * @see BlockPrefilter
+	 */
+	public ComparisonOptions withBlockPrefilter(boolean blockPrefilter) {
+		return new ComparisonOptions(threshold, minimumRectangleSize, pixelDistance, parallelism, tileSize, mergeGap, listener, blockPrefilter, regionMask,
+				runLengthEncoding, dilation, pool);
+	}
+
+	/**
+	 * @param regionMask
+	 * 		the checked pixels of the images, {@code null} if all pixels are checked. The images should have the size
+	 * 		of the mask.
+	 * @return the copy of the options with the region mask.
+	 * @see RegionMask
+	 */
+	public ComparisonOptions withRegionMask(RegionMask regionMask) {
+		return new ComparisonOptions(threshold, minimumRectangleSize, pixelDistance, parallelism, tileSize, mergeGap, listener, blockPrefilter, regionMask,
+				runLengthEncoding, dilation, pool);
+	}
+
+	/**
+	 * @param runLengthEncoding
+	 * 		if the different pixels are collected as the runs of every row and labeled run by run. The result is the
+	 * 		same, it takes less memory and time for the sparse or clustered differences.
+	 * @return the copy of the options with the run-length encoding.
+	 * @see RunLabeler
+	 */
+	public ComparisonOptions withRunLengthEncoding(boolean runLengthEncoding) {
+		return new ComparisonOptions(threshold, minimumRectangleSize, pixelDistance, parallelism, tileSize, mergeGap, listener, blockPrefilter, regionMask,
+				runLengthEncoding, dilation, pool);
+	}
+
+	/**
+	 * @param dilation
+	 * 		if the gaps between the different pixels are bridged by a dilation, so the time of the labeling doesn't
+	 * 		grow with the threshold. The pixels closer than the threshold by both the columns and the rows are joined,
+	 * 		not only the ones on the same row, column or diagonal.
+	 * @return the copy of the options with the dilation.
+	 * @see DilationLabeler
+	 */
+	public ComparisonOptions withDilation(boolean dilation) {
+		return new ComparisonOptions(threshold, minimumRectangleSize, pixelDistance, parallelism, tileSize, mergeGap, listener, blockPrefilter, regionMask,
+				runLengthEncoding, dilation, pool);
+	}
+
+	/**
+	 * @param pool
+	 * 		the pool of the threads of the parallel comparison, {@code null} by default which means a pool of the
+	 * 		{@link #getParallelism() parallelism} which is shared by all comparisons. The pool is used only if the
+	 * 		parallelism is more than "1", it's not shut down by the comparisons.
+	 * @return the copy of the options with the pool.
+	 */
+	public ComparisonOptions withPool(ForkJoinPool pool) {
+		return new ComparisonOptions(threshold, minimumRectangleSize, pixelDistance, parallelism, tileSize, mergeGap, listener, blockPrefilter, regionMask,
+				runLengthEncoding, dilation, pool);
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	public int getMinimumRectangleSize() {
+		return minimumRectangleSize;
+	}
+
+	public PixelDistance getPixelDistance() {
+		return pixelDistance;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	public int getMergeGap() {
+		return mergeGap;
+	}
+
+	public ComparisonListener getListener() {
+		return listener;
+	}
+
+	public boolean isBlockPrefilter() {
+		return blockPrefilter;
+	}
+
+	public RegionMask getRegionMask() {
+		return regionMask;
+	}
+
+	public boolean isRunLengthEncoding() {
+		return runLengthEncoding;
+	}
+
+	public boolean isDilation() {
+		return dilation;
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	@Override
+	public String toString() {
+		return "ComparisonOptions{" + "threshold=" + threshold + ", minimumRectangleSize=" + minimumRectangleSize
+				+ ", pixelDistance=" + pixelDistance + ", parallelism=" + parallelism + ", tileSize=" + tileSize
+				+ ", mergeGap=" + mergeGap + ", blockPrefilter=" + blockPrefilter + ", regionMask=" + (regionMask != null)
+				+ ", runLengthEncoding=" + runLengthEncoding + ", dilation=" + dilation + ", pool=" + (pool != null) + '}';
+	}
+}
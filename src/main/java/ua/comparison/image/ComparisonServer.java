@@ -0,0 +1,545 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resident comparison server, so the clients don't pay the start of the JVM and the warm-up of the JIT for every
+ * pair of images. The requests and the responses are JSON objects, one per line, read from the standard input or
+ * from the connections of a local socket. The requests of one connection are compared in parallel by the worker
+ * threads, so the responses can come in another order; they contain the {@code id} of their request.
+ * <p>
+ * The first images of the requests are the baselines, they are kept decoded in a {@link DecodedImageCache}. The baselines
+ * with the {@link RawImage#FILE_EXTENSION} are mapped instead, the page cache keeps them; the mapped files are kept
+ * open in a {@link RawImageCache}.
+ * <p>
+ * The request of a comparison:
+ * <pre>
+ * {"id": 1, "image1": "baseline.png", "image2": "candidate.png", "result": "result.png",
+ *  "threshold": 5, "minimumRectangleSize": 1, "tolerance": 0.1, "mergeGap": -1, "blockPrefilter": false,
+ *  "runLengthEncoding": false, "dilation": false, "timeoutMillis": 1000,
+ *  "include": [{"minX": 0, "minY": 0, "maxX": 99, "maxY": 99}], "ignore": [{"minX": 10, "minY": 10, "maxX": 19, "maxY": 19}]}
+ * </pre>
+ * Only {@code image1} and {@code image2} are required. The {@code result} image is written only into the output
+ * directory of the server, a relative path is resolved in it; without an output directory a {@code result} is an
+ * error. Only the pixels of the {@code include} rectangles, all pixels by default, without the ones of the
+ * {@code ignore} rectangles are compared, see {@link RegionMask}. The response:
+ * <pre>
+ * {"id": 1, "checkResult": "ImageMissmatch", "differences": [{"minX": 0, "minY": 0, "maxX": 9, "maxY": 9}], "nanos": 1234}
+ * </pre>
+ * A comparison which runs out of its {@code timeoutMillis} is stopped, its response has {@code "partial": true} and
+ * the compared part of the image in {@code "coverage"}; without a difference its {@code checkResult} is
+ * {@code "Incomplete"}, see {@link ComparisonDeadline}.
+ * The rectangles have the fields of {@link Rectangle}. A failed request gets {@code {"id": 1, "error": "message"}}.
+ * The other commands are {@code {"command": "ping"}}, {@code {"command": "stats"}} and {@code {"command": "shutdown"}}.
+ */
+public class ComparisonServer implements AutoCloseable {
+
+	/**
+	 * The default count of the bytes of the cached baselines.
+	 */
+	public static final long DEFAULT_CACHE_BYTES = 512L << 20;
+	/**
+	 * The max count of the mapped baselines, far below the count of the mappings a process can have.
+	 */
+	public static final int MAPPED_BASELINES = 1024;
+
+	private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+
+	private final ExecutorService workers;
+	/**
+	 * The max count of the requests of one connection which are compared or wait for a worker.
+	 */
+	private final int maxPendingRequests;
+	private final DecodedImageCache baselines;
+	private final RawImageCache rawBaselines = new RawImageCache(MAPPED_BASELINES);
+	/**
+	 * The real path of the directory of the result images, {@code null} if they are not written.
+	 */
+	private final Path outputDirectory;
+	private volatile boolean shutdown;
+	private volatile ServerSocket serverSocket;
+
+	/**
+	 * Create a server with a worker per processor and the {@link #DEFAULT_CACHE_BYTES}.
+	 */
+	public ComparisonServer() {
+		this(PROCESSORS, DEFAULT_CACHE_BYTES);
+	}
+
+	/**
+	 * @param threads
+	 * 		the count of the worker threads.
+	 * @param cacheBytes
+	 * 		the max count of the bytes of the cached baselines.
+	 */
+	public ComparisonServer(int threads, long cacheBytes) {
+		this(threads, cacheBytes, (Path) null);
+	}
+
+	/**
+	 * @param threads
+	 * 		the count of the worker threads.
+	 * @param cacheBytes
+	 * 		the max count of the bytes of the cached baselines.
+	 * @param outputDirectory
+	 * 		the only directory where the {@code result} images of the requests are written, {@code null} if they are
+	 * 		not written.
+	 * @throws IOException
+	 * 		if the output directory doesn't exist.
+	 */
+	public ComparisonServer(int threads, long cacheBytes, File outputDirectory) throws IOException {
+		this(threads, cacheBytes, outputDirectory == null ? null : outputDirectory.toPath().toRealPath());
+	}
+
+	private ComparisonServer(int threads, long cacheBytes, Path outputDirectory) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The threads should be positive, but was " + threads);
+		}
+		this.outputDirectory = outputDirectory;
+		this.workers = Executors.newFixedThreadPool(threads);
+		this.maxPendingRequests = 2 * threads;
+		this.baselines = new DecodedImageCache(cacheBytes);
+	}
+
+	/**
+	 * Compare generated images a few times, so the JIT compiles the comparison before the first request.
+	 *
+	 * @param iterations
+	 * 		the count of the comparisons.
+	 */
+	public void warmUp(int iterations) {
+		Random random = new Random(0);
+		BufferedImage image1 = new BufferedImage(512, 512, BufferedImage.TYPE_INT_RGB);
+		BufferedImage image2 = new BufferedImage(512, 512, BufferedImage.TYPE_INT_RGB);
+		for (int i = 0; i < 2000; i++) {
+			image2.setRGB(random.nextInt(512), random.nextInt(512), random.nextInt());
+		}
+		ImageComparator comparator = new ImageComparator();
+		for (int i = 0; i < iterations; i++) {
+			comparator.compare(image1, image2);
+		}
+	}
+
+	/**
+	 * Answer the requests of the input till its end or a shutdown, for example of the standard input.
+	 *
+	 * @param input
+	 * 		the requests, one per line.
+	 * @param output
+	 * 		the responses, one per line.
+	 * @throws IOException
+	 * 		if the input can't be read.
+	 * @throws InterruptedException
+	 * 		if the thread is interrupted while waiting for the workers.
+	 */
+	public void serve(InputStream input, OutputStream output) throws IOException, InterruptedException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+		Semaphore pending = new Semaphore(maxPendingRequests);
+		try {
+			String line;
+			while (!shutdown && (line = reader.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				Map<String, Object> request;
+				try {
+					request = parseRequest(line);
+				} catch (IllegalArgumentException e) {
+					respond(writer, Json.write(errorResponse(null, e)));
+					continue;
+				}
+				if (!"compare".equals(request.getOrDefault("command", "compare"))) {
+					// the commands are answered at once, so a shutdown stops the reading
+					respond(writer, handle(request));
+					continue;
+				}
+				pending.acquire();
+				try {
+					workers.execute(() -> {
+						try {
+							respond(writer, handle(request));
+						} catch (UncheckedIOException e) {
+							// the client is gone, the next requests are not answered either
+						} finally {
+							pending.release();
+						}
+					});
+				} catch (RuntimeException e) {
+					pending.release();
+					throw e;
+				}
+			}
+		} finally {
+			// all responses are written before the output is given back
+			pending.acquire(maxPendingRequests);
+			pending.release(maxPendingRequests);
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Accept the local connections on the port till a shutdown. Every connection is served by its own thread.
+	 *
+	 * @param port
+	 * 		the port on the loopback address, "0" means any free port.
+	 * @throws IOException
+	 * 		if the port can't be bound.
+	 */
+	public void listen(int port) throws IOException {
+		listen(new ServerSocket(port, 50, InetAddress.getLoopbackAddress()));
+	}
+
+	/**
+	 * Accept the connections of the socket till a shutdown, then close it.
+	 *
+	 * @param serverSocket
+	 * 		the bound server socket.
+	 * @throws IOException
+	 * 		if accepting fails other than by the shutdown.
+	 */
+	public void listen(ServerSocket serverSocket) throws IOException {
+		this.serverSocket = serverSocket;
+		try (ServerSocket socket = serverSocket) {
+			while (!shutdown) {
+				Socket connection;
+				try {
+					connection = socket.accept();
+				} catch (IOException e) {
+					if (shutdown) {
+						return;
+					}
+					throw e;
+				}
+				Thread thread = new Thread(() -> serveConnection(connection), "comparison-connection-" + connection.getPort());
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+	}
+
+	private void serveConnection(Socket connection) {
+		try (Socket socket = connection) {
+			socket.setTcpNoDelay(true);
+			serve(socket.getInputStream(), socket.getOutputStream());
+		} catch (IOException | UncheckedIOException e) {
+			// the client is gone, its requests are not answered
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stop accepting the requests, the running ones are finished.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		ServerSocket socket = serverSocket;
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// it's closed anyway
+			}
+		}
+	}
+
+	/**
+	 * Stop accepting the requests and stop the workers.
+	 */
+	@Override
+	public void close() {
+		shutdown();
+		workers.shutdown();
+	}
+
+	/**
+	 * @return {@code true} after a shutdown.
+	 */
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	/**
+	 * Answer one request.
+	 *
+	 * @param line
+	 * 		the JSON of the request.
+	 * @return the JSON of the response.
+	 */
+	String handle(String line) {
+		try {
+			return handle(parseRequest(line));
+		} catch (IllegalArgumentException e) {
+			return Json.write(errorResponse(null, e));
+		}
+	}
+
+	private String handle(Map<String, Object> request) {
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("id", request.get("id"));
+		try {
+			String command = getString(request, "command", "compare");
+			switch (command) {
+				case "compare":
+					compare(request, response);
+					break;
+				case "ping":
+					response.put("pong", true);
+					break;
+				case "stats":
+					response.put("cachedImages", baselines.size());
+					response.put("cachedBytes", baselines.getByteCount());
+					response.put("cacheHits", baselines.getHitCount());
+					response.put("cacheMisses", baselines.getMissCount());
+					response.put("mappedImages", rawBaselines.size());
+					break;
+				case "shutdown":
+					shutdown();
+					response.put("shutdown", true);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown command " + command);
+			}
+		} catch (IOException | RuntimeException e) {
+			response = errorResponse(request.get("id"), e);
+		}
+		return Json.write(response);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> parseRequest(String line) {
+		Object request = Json.parse(line);
+		if (!(request instanceof Map)) {
+			throw new IllegalArgumentException("The request should be an object");
+		}
+		return (Map<String, Object>) request;
+	}
+
+	private static Map<String, Object> errorResponse(Object id, Exception e) {
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("id", id);
+		// the message of the most I/O errors is only the path
+		response.put("error", e instanceof IllegalArgumentException ? e.getMessage() : e.toString());
+		return response;
+	}
+
+	private void compare(Map<String, Object> request, Map<String, Object> response) throws IOException {
+		long start = System.nanoTime();
+		String path1 = getString(request, "image1", null);
+		BufferedImage image2 = ImageComparisonTools.readImage(new File(getString(request, "image2", null)));
+		ComparisonOptions options = ComparisonOptions.defaults()
+				.withThreshold(getInt(request, "threshold", ComparisonOptions.DEFAULT_THRESHOLD))
+				.withMinimumRectangleSize(getInt(request, "minimumRectangleSize", ComparisonOptions.DEFAULT_MINIMUM_RECTANGLE_SIZE))
+				.withMergeGap(getInt(request, "mergeGap", -1))
+				.withBlockPrefilter(Boolean.TRUE.equals(request.get("blockPrefilter")))
+				.withRunLengthEncoding(Boolean.TRUE.equals(request.get("runLengthEncoding")))
+				.withDilation(Boolean.TRUE.equals(request.get("dilation")));
+		if (request.get("tolerance") != null) {
+			options = options.withPixelDistance(PixelDistance.euclidean(getNumber(request, "tolerance").doubleValue()));
+		}
+		if (request.get("include") != null || request.get("ignore") != null) {
+			RegionMask regionMask = request.get("include") != null
+					? RegionMask.include(image2.getWidth(), image2.getHeight(), getRectangles(request, "include"))
+					: RegionMask.exclude(image2.getWidth(), image2.getHeight(), new ArrayList<>());
+			options = options.withRegionMask(regionMask.without(getRectangles(request, "ignore")));
+		}
+		ImageComparator comparator = new ImageComparator(options);
+		ComparisonDeadline deadline = null;
+		if (request.get("timeoutMillis") != null) {
+			// the budget includes the decoding of the images
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			deadline = ComparisonDeadline.after(getInt(request, "timeoutMillis", 0) - elapsedMillis, TimeUnit.MILLISECONDS);
+		}
+		ComparisonResult result = path1.endsWith(RawImage.FILE_EXTENSION)
+				? comparator.compare(rawBaselines.open(new File(path1)), image2, deadline)
+				: comparator.compare(baselines.read(new File(path1)), image2, deadline);
+		String resultPath = getString(request, "result", "");
+		if (!resultPath.isEmpty() && result.hasDifferences()) {
+			ImageComparisonTools.saveImage(getResultFile(resultPath), ImageComparisonTools.drawDifferences(image2, result.getDifferences()));
+		}
+		response.put("checkResult", result.getCheckResult());
+		List<Map<String, Object>> differences = new ArrayList<>();
+		for (Rectangle rectangle : result.getDifferences()) {
+			Map<String, Object> difference = new LinkedHashMap<>();
+			difference.put("minX", rectangle.getMinX());
+			difference.put("minY", rectangle.getMinY());
+			difference.put("maxX", rectangle.getMaxX());
+			difference.put("maxY", rectangle.getMaxY());
+			differences.add(difference);
+		}
+		response.put("differences", differences);
+		if (result.isPartial()) {
+			response.put("partial", true);
+			response.put("coverage", result.getCoverage());
+		}
+		response.put("nanos", System.nanoTime() - start);
+	}
+
+	/**
+	 * Resolve the result image in the output directory, so a client can't write any other file of the user of
+	 * the server.
+	 *
+	 * @throws IllegalArgumentException
+	 * 		if there is no output directory or the file is not in it.
+	 */
+	private File getResultFile(String resultPath) throws IOException {
+		if (outputDirectory == null) {
+			throw new IllegalArgumentException("The result images are not written without the --output-dir of the server");
+		}
+		Path file = outputDirectory.resolve(resultPath).normalize();
+		Path parent = file.getParent();
+		if (parent == null || !parent.startsWith(outputDirectory)) {
+			throw new IllegalArgumentException("The result " + resultPath + " is not in the output directory");
+		}
+		// the links must not lead out of the output directory either
+		Files.createDirectories(parent);
+		if (!parent.toRealPath().startsWith(outputDirectory) || Files.isSymbolicLink(file)) {
+			throw new IllegalArgumentException("The result " + resultPath + " is not in the output directory");
+		}
+		return file.toFile();
+	}
+
+	private static void respond(Writer writer, String response) {
+		synchronized (writer) {
+			try {
+				writer.write(response);
+				writer.write('\n');
+				writer.flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private static String getString(Map<String, Object> request, String key, String defaultValue) {
+		Object value = request.get(key);
+		if (value == null) {
+			if (defaultValue == null) {
+				throw new IllegalArgumentException("Missing " + key);
+			}
+			return defaultValue;
+		}
+		if (!(value instanceof String)) {
+			throw new IllegalArgumentException("The " + key + " should be a string");
+		}
+		return (String) value;
+	}
+
+	private static List<Rectangle> getRectangles(Map<String, Object> request, String key) {
+		Object value = request.get(key);
+		if (value == null) {
+			return new ArrayList<>();
+		}
+		if (!(value instanceof List)) {
+			throw new IllegalArgumentException("The " + key + " should be an array");
+		}
+		List<Rectangle> rectangles = new ArrayList<>();
+		for (Object item : (List<?>) value) {
+			if (!(item instanceof Map)) {
+				throw new IllegalArgumentException("The " + key + " should contain objects");
+			}
+			@SuppressWarnings("unchecked")
+			Map<String, Object> bounds = (Map<String, Object>) item;
+			Rectangle rectangle = new Rectangle();
+			rectangle.setMinX(getNumber(bounds, "minX").intValue());
+			rectangle.setMinY(getNumber(bounds, "minY").intValue());
+			rectangle.setMaxX(getNumber(bounds, "maxX").intValue());
+			rectangle.setMaxY(getNumber(bounds, "maxY").intValue());
+			rectangles.add(rectangle);
+		}
+		return rectangles;
+	}
+
+	private static int getInt(Map<String, Object> request, String key, int defaultValue) {
+		return request.get(key) == null ? defaultValue : getNumber(request, key).intValue();
+	}
+
+	private static Number getNumber(Map<String, Object> request, String key) {
+		Object value = request.get(key);
+		if (!(value instanceof Number)) {
+			throw new IllegalArgumentException("The " + key + " should be a number");
+		}
+		return (Number) value;
+	}
+
+	/**
+	 * Run the server on the standard input and output, or on a local port.
+	 * <pre>
+	 * --port N         listen on the local port instead of the standard input, "0" means any free port.
+	 *                  The port is printed as {"port": N} before the connections are accepted.
+	 * --threads N      the count of the worker threads, the count of the processors by default
+	 * --cache-bytes N  the max bytes of the cached baselines, 512 MB by default
+	 * --output-dir D   the directory where the result images of the requests are written, they are rejected without it
+	 * </pre>
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = -1;
+		int threads = PROCESSORS;
+		long cacheBytes = DEFAULT_CACHE_BYTES;
+		File outputDirectory = null;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 >= args.length && !"--server".equals(arg)) {
+				throw new IllegalArgumentException("Missing the value of " + arg);
+			}
+			switch (arg) {
+				case "--server":
+					break;
+				case "--port":
+					port = Integer.parseInt(args[++i]);
+					break;
+				case "--threads":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "--cache-bytes":
+					cacheBytes = Long.parseLong(args[++i]);
+					break;
+				case "--output-dir":
+					outputDirectory = new File(args[++i]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + arg);
+			}
+		}
+		try (ComparisonServer server = new ComparisonServer(threads, cacheBytes, outputDirectory)) {
+			server.warmUp(20);
+			if (port >= 0) {
+				ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+				System.out.println(Json.write(Collections.singletonMap("port", serverSocket.getLocalPort())));
+				System.out.flush();
+				server.listen(serverSocket);
+			} else {
+				server.serve(System.in, System.out);
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package ua.comparison.image;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cache of the decoded image files, for example of the baselines which are compared with many candidates.
+ * An image is found by the path of its file, the time of the last modification and the length, so a changed file is
+ * decoded again. The least recently used images are evicted when the pixels of all images take more than the budget.
+ * <p>
+ * The cached images are shared, so they must not be modified. The cache is thread-safe, but two threads which miss
+ * the same file at once both decode it.
+ */
+public class DecodedImageCache {
+
+	/**
+	 * The max count of the bytes of the pixels of all cached images.
+	 */
+	private final long maxBytes;
+	/**
+	 * The images in the order of the access, the least recently used first.
+	 */
+	private final LinkedHashMap<Key, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	/**
+	 * @param maxBytes
+	 * 		the max count of the bytes of the pixels of all cached images.
+	 */
+	public DecodedImageCache(long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("The max bytes should not be negative, but was " + maxBytes);
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Read the image from the cache or decode it. An image which is bigger than the whole budget is not cached.
+	 *
+	 * @param file
+	 * 		the image file.
+	 * @return the {@link BufferedImage} object which must not be modified.
+	 * @throws IOException
+	 * 		if the file can't be read or its format is not supported.
+	 */
+	public BufferedImage read(File file) throws IOException {
+		Path path = file.toPath().toAbsolutePath().normalize();
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		Key key = new Key(path, attributes.lastModifiedTime().toMillis(), attributes.size());
+		synchronized (this) {
+			BufferedImage image = images.get(key);
+			if (image != null) {
+				hitCount++;
+				return image;
+			}
+			missCount++;
+		}
+
+		BufferedImage image = ImageIO.read(path.toFile());
+		if (image == null) {
+			throw new IOException("Unsupported image format of " + file);
+		}
+		long imageBytes = getByteCount(image);
+		if (imageBytes <= maxBytes) {
+			put(key, image, imageBytes);
+		}
+		return image;
+	}
+
+	private synchronized void put(Key key, BufferedImage image, long imageBytes) {
+		// the older versions of the file are not needed any more
+		Iterator<Map.Entry<Key, BufferedImage>> entries = images.entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<Key, BufferedImage> entry = entries.next();
+			if (entry.getKey().path.equals(key.path)) {
+				bytes -= getByteCount(entry.getValue());
+				entries.remove();
+			}
+		}
+		images.put(key, image);
+		bytes += imageBytes;
+		Iterator<Map.Entry<Key, BufferedImage>> eldest = images.entrySet().iterator();
+		while (bytes > maxBytes) {
+			bytes -= getByteCount(eldest.next().getValue());
+			eldest.remove();
+			evictionCount++;
+		}
+	}
+
+	/**
+	 * Remove all images.
+	 */
+	public synchronized void clear() {
+		images.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * @return the count of the bytes of the pixels of the cached images.
+	 */
+	public synchronized long getByteCount() {
+		return bytes;
+	}
+
+	/**
+	 * @return the count of the cached images.
+	 */
+	public synchronized int size() {
+		return images.size();
+	}
+
+	/**
+	 * @return how many times an image was found in the cache.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return how many times an image was decoded.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return how many images were removed to keep the budget.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * @return the count of the bytes of the pixels of the image.
+	 */
+	static long getByteCount(BufferedImage image) {
+		DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+		return (long) dataBuffer.getNumBanks() * dataBuffer.getSize() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "DecodedImageCache{" + "images=" + images.size() + ", bytes=" + bytes + ", hits=" + hitCount
+				+ ", misses=" + missCount + ", evictions=" + evictionCount + '}';
+	}
+
+	private static final class Key {
+
+		private final Path path;
+		private final long lastModified;
+		private final long length;
+
+		private Key(Path path, long lastModified, long length) {
+			this.path = path;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) { return true; }
+			if (o == null || getClass() != o.getClass()) { return false; }
+			Key key = (Key) o;
+			return lastModified == key.lastModified && length == key.length && path.equals(key.path);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(path, lastModified, length);
+		}
+	}
+}
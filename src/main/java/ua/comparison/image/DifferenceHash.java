@@ -0,0 +1,34 @@
+package ua.comparison.image;
+
+import java.awt.image.BufferedImage;
+
+import static ua.comparison.image.ImageComparisonTools.lumaGrid;
+
+/**
+ * The hash of 9 x 8 cells, the bit of a cell is set if its luma is below the luma of its right neighbour.
+ */
+final class DifferenceHash implements PerceptualHash {
+
+	static final DifferenceHash INSTANCE = new DifferenceHash();
+
+	private static final int COLUMNS = 9;
+	private static final int ROWS = 8;
+
+	private DifferenceHash() {
+	}
+
+	@Override
+	public long hash(BufferedImage image) {
+		long[] cells = lumaGrid(image, COLUMNS, ROWS);
+		long hash = 0;
+		int bit = 0;
+		for (int row = 0; row < ROWS; row++) {
+			for (int column = 0; column < COLUMNS - 1; column++, bit++) {
+				if (cells[row * COLUMNS + column] < cells[row * COLUMNS + column + 1]) {
+					hash |= 1L << bit;
+				}
+			}
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,173 @@
+package ua.comparison.image;
+
+import java.util.Arrays;
+
+/**
+ * Binary mask of the different pixels. Every pixel takes one bit, the rows of the image are stored one after another
+ * in a flat {@code long[]}, every row begins with a new {@code long}. So the different rows never share a word and
+ * can be populated in different threads.
+ * <p>
+ * A mask can also cover only a band of the rows of an image, then the rows keep their numbers in the image.
+ */
+final class DifferenceMask {
+
+	private final int width;
+	/**
+	 * The first row of the mask, inclusive.
+	 */
+	private final int fromY;
+	/**
+	 * The last row of the mask, exclusive.
+	 */
+	private final int toY;
+	/**
+	 * The count of the {@code long} words of one row.
+	 */
+	private final int stride;
+	private final long[] words;
+
+	DifferenceMask(int width, int height) {
+		this(width, 0, height);
+	}
+
+	/**
+	 * Create the mask of a band of rows.
+	 *
+	 * @param width
+	 * 		the width of the image.
+	 * @param fromY
+	 * 		the first row, inclusive.
+	 * @param toY
+	 * 		the last row, exclusive.
+	 */
+	DifferenceMask(int width, int fromY, int toY) {
+		this.width = width;
+		this.fromY = fromY;
+		this.toY = toY;
+		this.stride = (width + 63) >>> 6;
+		this.words = new long[Math.multiplyExact(stride, toY - fromY)];
+	}
+
+	int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the first row of the mask, inclusive.
+	 */
+	int getFromY() {
+		return fromY;
+	}
+
+	/**
+	 * @return the last row of the mask, exclusive. It's the height of the image for the mask of a whole image.
+	 */
+	int getToY() {
+		return toY;
+	}
+
+	/**
+	 * @return {@code true} if the pixel is different.
+	 */
+	boolean get(int x, int y) {
+		return (words[(y - fromY) * stride + (x >>> 6)] & 1L << x) != 0;
+	}
+
+	/**
+	 * Mark the pixel as different.
+	 */
+	void set(int x, int y) {
+		words[(y - fromY) * stride + (x >>> 6)] |= 1L << x;
+	}
+
+	/**
+	 * Copy the rows of other mask of the same width.
+	 *
+	 * @param other
+	 * 		the mask which contains the rows.
+	 * @param fromY
+	 * 		the first row to be copied, inclusive.
+	 * @param toY
+	 * 		the last row to be copied, exclusive.
+	 */
+	void copyRows(DifferenceMask other, int fromY, int toY) {
+		System.arraycopy(other.words, (fromY - other.fromY) * stride, words, (fromY - this.fromY) * stride, (toY - fromY) * stride);
+	}
+
+	/**
+	 * Set a whole word of a row.
+	 *
+	 * @param y
+	 * 		the row.
+	 * @param word
+	 * 		the number of the word in the row, it covers the pixels from {@code 64 * word}.
+	 * @param bits
+	 * 		the bits of the pixels, the lowest bit is the first pixel.
+	 */
+	void setWord(int y, int word, long bits) {
+		words[(y - fromY) * stride + word] = bits;
+	}
+
+	/**
+	 * Mark all pixels of the rows as equal.
+	 *
+	 * @param fromY
+	 * 		the first row, inclusive.
+	 * @param toY
+	 * 		the last row, exclusive.
+	 */
+	void clearRows(int fromY, int toY) {
+		Arrays.fill(words, (fromY - this.fromY) * stride, (toY - this.fromY) * stride, 0L);
+	}
+
+	/**
+	 * @return the bits of the 64 pixels of the word of the row, the lowest bit is the first pixel.
+	 * @see #setWord(int, int, long)
+	 */
+	long getWord(int y, int word) {
+		return words[(y - fromY) * stride + word];
+	}
+
+	/**
+	 * Find the next different pixel in the row.
+	 *
+	 * @param y
+	 * 		the row.
+	 * @param fromX
+	 * 		the first column to be checked.
+	 * @return the column of the next different pixel or "-1" if there is no one.
+	 */
+	int nextSetBit(int y, int fromX) {
+		if (fromX >= width) {
+			return -1;
+		}
+		int rowStart = (y - fromY) * stride;
+		int index = fromX >>> 6;
+		long word = words[rowStart + index] & -1L << fromX;
+		while (word == 0) {
+			if (++index == stride) {
+				return -1;
+			}
+			word = words[rowStart + index];
+		}
+		return (index << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * @return the count of the bytes of the mask.
+	 */
+	long getByteCount() {
+		return (long) words.length * Long.BYTES;
+	}
+
+	/**
+	 * @return the count of the different pixels.
+	 */
+	long cardinality() {
+		long count = 0;
+		for (long word : words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+}
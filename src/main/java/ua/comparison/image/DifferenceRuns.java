@@ -0,0 +1,219 @@
+package ua.comparison.image;
+
+import java.util.Arrays;
+
+/**
+ * Run-length encoded rows of the different pixels: every row is a sorted list of the runs of the neighbouring
+ * different pixels. It takes memory only for the runs, so the sparse or clustered differences of a big image are
+ * much smaller than a {@link DifferenceMask}, and they are labeled by the {@link RunLabeler} run by run.
+ * <p>
+ * The rows are added one after another, they can cover only a band of the rows of an image, then the rows keep
+ * their numbers in the image.
+ */
+final class DifferenceRuns {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final int width;
+	private final int fromY;
+	/**
+	 * The count of the added rows.
+	 */
+	private int height;
+	/**
+	 * The first run of every row and the end of the runs of the last row, so the runs of the row {@code y} are
+	 * the ones from {@code rowStarts[y - fromY]}, inclusive, to {@code rowStarts[y - fromY + 1]}, exclusive.
+	 */
+	private int[] rowStarts;
+	/**
+	 * The first and the last column, inclusive, of every run.
+	 */
+	private int[] runs = new int[INITIAL_CAPACITY * 2];
+	/**
+	 * The count of the runs.
+	 */
+	private int size;
+
+	/**
+	 * Create the empty runs of a band of rows.
+	 *
+	 * @param width
+	 * 		the width of the image.
+	 * @param fromY
+	 * 		the first row, inclusive.
+	 * @param toY
+	 * 		the last row, exclusive. It's only the expected count of the rows.
+	 */
+	DifferenceRuns(int width, int fromY, int toY) {
+		this.width = width;
+		this.fromY = fromY;
+		this.rowStarts = new int[Math.max(toY - fromY, 0) + 1];
+	}
+
+	/**
+	 * Convert the mask to the runs.
+	 *
+	 * @param mask
+	 * 		the populated mask.
+	 * @return the {@link DifferenceRuns} of the rows of the mask.
+	 */
+	static DifferenceRuns of(DifferenceMask mask) {
+		return of(mask, mask.getFromY(), mask.getToY());
+	}
+
+	/**
+	 * Convert a band of the rows of the mask to the runs. Only the set bits are visited.
+	 *
+	 * @param mask
+	 * 		the populated mask.
+	 * @param fromY
+	 * 		the first row, inclusive.
+	 * @param toY
+	 * 		the last row, exclusive.
+	 * @return the {@link DifferenceRuns} of the rows.
+	 */
+	static DifferenceRuns of(DifferenceMask mask, int fromY, int toY) {
+		DifferenceRuns runs = new DifferenceRuns(mask.getWidth(), fromY, toY);
+		int stride = (mask.getWidth() + 63) >>> 6;
+		for (int y = fromY; y < toY; y++) {
+			int runStart = -1;
+			for (int word = 0; word < stride; word++) {
+				long bits = mask.getWord(y, word);
+				int wordStart = word << 6;
+				// every change of the bits is the start or the end of a run
+				long changes = bits ^ (bits << 1 | (runStart >= 0 ? 1 : 0));
+				while (changes != 0) {
+					int x = wordStart + Long.numberOfTrailingZeros(changes);
+					if (runStart < 0) {
+						runStart = x;
+					} else {
+						runs.addRun(runStart, x - 1);
+						runStart = -1;
+					}
+					changes &= changes - 1;
+				}
+			}
+			if (runStart >= 0) {
+				runs.addRun(runStart, mask.getWidth() - 1);
+			}
+			runs.endRow();
+		}
+		return runs;
+	}
+
+	/**
+	 * Add a run to the current row. The runs of a row should be added from left to right and they shouldn't touch.
+	 *
+	 * @param fromX
+	 * 		the first column of the run.
+	 * @param toX
+	 * 		the last column of the run, inclusive.
+	 */
+	void addRun(int fromX, int toX) {
+		if (size * 2 == runs.length) {
+			runs = Arrays.copyOf(runs, runs.length * 2);
+		}
+		runs[size * 2] = fromX;
+		runs[size * 2 + 1] = toX;
+		size++;
+	}
+
+	/**
+	 * Finish the current row, the next runs are added to the next row.
+	 */
+	void endRow() {
+		if (height + 2 > rowStarts.length) {
+			rowStarts = Arrays.copyOf(rowStarts, Math.max(rowStarts.length * 2, height + 2));
+		}
+		rowStarts[++height] = size;
+	}
+
+	/**
+	 * Add all rows of the band which begins after the last row of these runs.
+	 *
+	 * @param band
+	 * 		the runs of the next rows.
+	 */
+	void append(DifferenceRuns band) {
+		if (band.fromY != getToY()) {
+			throw new IllegalArgumentException("The band of the rows from " + band.fromY + " doesn't follow the row " + getToY());
+		}
+		for (int y = band.fromY; y < band.getToY(); y++) {
+			for (int run = band.getRowStart(y); run < band.getRowEnd(y); run++) {
+				addRun(band.getRunStart(run), band.getRunEnd(run));
+			}
+			endRow();
+		}
+	}
+
+	int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the first row, inclusive.
+	 */
+	int getFromY() {
+		return fromY;
+	}
+
+	/**
+	 * @return the end of the added rows, exclusive.
+	 */
+	int getToY() {
+		return fromY + height;
+	}
+
+	/**
+	 * @return the number of the first run of the row.
+	 */
+	int getRowStart(int y) {
+		return rowStarts[y - fromY];
+	}
+
+	/**
+	 * @return the number of the last run of the row, exclusive.
+	 */
+	int getRowEnd(int y) {
+		return rowStarts[y - fromY + 1];
+	}
+
+	/**
+	 * @return the first column of the run.
+	 */
+	int getRunStart(int run) {
+		return runs[run * 2];
+	}
+
+	/**
+	 * @return the last column of the run, inclusive.
+	 */
+	int getRunEnd(int run) {
+		return runs[run * 2 + 1];
+	}
+
+	/**
+	 * @return the count of the runs.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the count of the different pixels.
+	 */
+	long cardinality() {
+		long count = 0;
+		for (int run = 0; run < size; run++) {
+			count += getRunEnd(run) - getRunStart(run) + 1;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the count of the bytes of the runs and of the rows.
+	 */
+	long getByteCount() {
+		return (long) (runs.length + rowStarts.length) * Integer.BYTES;
+	}
+}
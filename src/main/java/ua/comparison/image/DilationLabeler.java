@@ -0,0 +1,107 @@
+package ua.comparison.image;
+
+import java.util.Arrays;
+
+/**
+ * Labeling of the {@link DifferenceRuns} which doesn't depend on the {@code threshold}: the gaps between the different
+ * pixels are bridged by a morphological dilation, then the dilated pixels are labeled as the 8-connected components.
+ * <p>
+ * Every difference pixel is dilated to the square of {@code threshold} pixels to the right and down of it. Two such
+ * squares touch if the pixels are not farther than {@code threshold} both by the columns and by the rows, so two
+ * difference pixels belong to the same region if they are chained by the pixels with the chessboard distance not
+ * bigger than the {@code threshold}. The {@link RegionLabeler} joins only the pixels on the same row, column or
+ * diagonal, so the regions of the dilation can be bigger, for example the pixels of a sloped line are joined too.
+ * <p>
+ * The dilation is separable: every column keeps the last row of its difference pixels, and a pixel is dilated if
+ * one of the {@code threshold} columns to the left of it, itself included, had a difference pixel in the last
+ * {@code threshold} rows. So every row near the differences is scanned once, whatever the {@code threshold} is.
+ */
+final class DilationLabeler {
+
+	private DilationLabeler() {
+	}
+
+	/**
+	 * Group the runs into regions.
+	 *
+	 * @param runs
+	 * 		the runs of the different pixels.
+	 * @param threshold
+	 * 		the max chessboard distance between the chained pixels of the same region.
+	 * @return the bounds of the found regions, numbered from "0" in the order of their first pixel.
+	 */
+	static RegionBounds labelRegions(DifferenceRuns runs, int threshold) {
+		if (threshold <= 0) {
+			return RunLabeler.labelRegions(runs, 0);
+		}
+		DifferenceRuns dilated = dilate(runs, threshold - 1);
+		int[] regions = RunLabeler.labelRuns(dilated, 1);
+		// The squares grow only to the right and down, so the first pixel of a region is the first dilated one and
+		// the regions keep the order of the dilated regions.
+		RegionBounds bounds = new RegionBounds();
+		for (int y = runs.getFromY(); y < runs.getToY(); y++) {
+			int dilatedRun = dilated.getRowStart(y);
+			for (int run = runs.getRowStart(y); run < runs.getRowEnd(y); run++) {
+				// every run lies inside a dilated run of the same row
+				while (dilated.getRunEnd(dilatedRun) < runs.getRunStart(run)) {
+					dilatedRun++;
+				}
+				int region = regions[dilatedRun];
+				if (region == bounds.size()) {
+					bounds.addRegion();
+				}
+				bounds.addRun(region, runs.getRunStart(run), runs.getRunEnd(run), y);
+			}
+		}
+		return bounds;
+	}
+
+	/**
+	 * Dilate every pixel to the square of the next {@code reach} columns and rows, cut by the borders of the image.
+	 *
+	 * @param runs
+	 * 		the runs of the different pixels.
+	 * @param reach
+	 * 		the count of the added columns and rows.
+	 * @return the runs of the dilated pixels, of the same rows.
+	 */
+	static DifferenceRuns dilate(DifferenceRuns runs, int reach) {
+		int width = runs.getWidth();
+		// the squares wider than the image are cut anyway
+		reach = Math.min(reach, Math.max(width, runs.getToY() - runs.getFromY()));
+		DifferenceRuns dilated = new DifferenceRuns(width, runs.getFromY(), runs.getToY());
+		// the last row of the difference pixels of every column and of all columns
+		int[] lastRows = new int[width];
+		Arrays.fill(lastRows, Integer.MIN_VALUE);
+		int lastRow = Integer.MIN_VALUE;
+		for (int y = runs.getFromY(); y < runs.getToY(); y++) {
+			for (int run = runs.getRowStart(y); run < runs.getRowEnd(y); run++) {
+				Arrays.fill(lastRows, runs.getRunStart(run), runs.getRunEnd(run) + 1, y);
+				lastRow = y;
+			}
+			int firstRow = y - reach;
+			if (lastRow >= firstRow) {
+				int lastColumn = -reach - 1;
+				int runStart = -1;
+				for (int x = 0; x < width; x++) {
+					if (lastRows[x] >= firstRow) {
+						lastColumn = x;
+					}
+					if (x - lastColumn <= reach) {
+						if (runStart < 0) {
+							runStart = x;
+						}
+					} else if (runStart >= 0) {
+						dilated.addRun(runStart, x - 1);
+						runStart = -1;
+					}
+				}
+				if (runStart >= 0) {
+					dilated.addRun(runStart, width - 1);
+				}
+			}
+			dilated.endRow();
+		}
+		return dilated;
+	}
+}
@@ -0,0 +1,64 @@
+package ua.comparison.image;
+
+/**
+ * The distance in the RGB space, compared without the floating point math. The tolerance level is converted once
+ * to the max squared distance of the equal pixels.
+ */
+final class EuclideanPixelDistance implements PixelDistance {
+
+	static final EuclideanPixelDistance DEFAULT = new EuclideanPixelDistance(DEFAULT_TOLERANCE_LEVEL);
+
+	/**
+	 * The biggest squared distance of two pixels: three channels which differ by 255.
+	 */
+	private static final int MAX_SQUARED_DISTANCE = 255 * 255 * 3;
+
+	/**
+	 * The biggest squared distance which still means the pixels are equal.
+	 */
+	private final int maxEqualSquaredDistance;
+
+	EuclideanPixelDistance(double toleranceLevel) {
+		checkToleranceLevel(toleranceLevel);
+		this.maxEqualSquaredDistance = findMaxEqualSquaredDistance(toleranceLevel);
+	}
+
+	static void checkToleranceLevel(double toleranceLevel) {
+		if (!(toleranceLevel >= 0 && toleranceLevel <= 1)) {
+			throw new IllegalArgumentException("The tolerance level should be between 0 and 1, but was " + toleranceLevel);
+		}
+	}
+
+	/**
+	 * Find the limit by the same floating point expression which was used for every pixel before,
+	 * so the results stay exactly the same also on the border.
+	 */
+	private static int findMaxEqualSquaredDistance(double toleranceLevel) {
+		int low = -1;
+		int high = MAX_SQUARED_DISTANCE;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (Math.sqrt(middle) / Math.sqrt(MAX_SQUARED_DISTANCE) > toleranceLevel) {
+				high = middle - 1;
+			} else {
+				low = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @return the biggest squared distance which still means the pixels are equal.
+	 */
+	int getMaxEqualSquaredDistance() {
+		return maxEqualSquaredDistance;
+	}
+
+	@Override
+	public boolean isDifferent(int rgb1, int rgb2) {
+		int red = ((rgb1 >> 16) & 0xff) - ((rgb2 >> 16) & 0xff);
+		int green = ((rgb1 >> 8) & 0xff) - ((rgb2 >> 8) & 0xff);
+		int blue = (rgb1 & 0xff) - (rgb2 & 0xff);
+		return red * red + green * green + blue * blue > maxEqualSquaredDistance;
+	}
+}
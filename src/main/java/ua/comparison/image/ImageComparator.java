@@ -0,0 +1,367 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.ComparisonStats;
+import ua.comparison.image.model.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static ua.comparison.image.ImageComparisonTools.hasNotSameImageSize;
+import static ua.comparison.image.ImageComparisonTools.populateTheMatrixOfTheDifferences;
+import static ua.comparison.image.ImageComparisonTools.populateTheRunsOfTheDifferences;
+
+/**
+ * Thread-safe comparator of images with fixed {@link ComparisonOptions}, which can be created once and shared by
+ * many threads, unlike {@link ImageComparison} which holds one pair of images.
+ * <p>
+ * The sequential comparison reuses the mask, the row buffers and the label tables of the calling thread, so a thread
+ * which compares many images of the same size doesn't allocate them again. The buffers of a thread stay allocated
+ * while the thread lives and are as big as the biggest image it compared.
+ */
+public final class ImageComparator {
+
+	private final ComparisonOptions options;
+
+	/**
+	 * Create a comparator with the {@link ComparisonOptions#defaults()}.
+	 */
+	public ImageComparator() {
+		this(ComparisonOptions.defaults());
+	}
+
+	/**
+	 * @param options
+	 * 		the options of all comparisons.
+	 */
+	public ImageComparator(ComparisonOptions options) {
+		this.options = Objects.requireNonNull(options, "options");
+	}
+
+	public ComparisonOptions getOptions() {
+		return options;
+	}
+
+	/**
+	 * Calculate regions which cover the difference pixels.
+	 *
+	 * @param image1
+	 * 		first image to be compared
+	 * @param image2
+	 * 		second image to be compared
+	 * @return the result of the comparison.
+	 */
+	public ComparisonResult compare(BufferedImage image1, BufferedImage image2) {
+		return compare(image1, image2, 0);
+	}
+
+	/**
+	 * Calculate regions which cover the difference pixels, until the deadline expires. The deadline is checked
+	 * before every band of the {@link ComparisonOptions#getTileSize()} rows, then the result is
+	 * {@link ComparisonResult#isPartial() partial}, with the regions of the compared rows. The sequential comparison
+	 * compares the rows from the top, the parallel one may leave gaps: its strips which start after the expiry are
+	 * skipped wherever they are.
+	 *
+	 * @param deadline
+	 * 		the time budget of the comparison, {@code null} if there is no one.
+	 * @see #compare(BufferedImage, BufferedImage)
+	 */
+	public ComparisonResult compare(BufferedImage image1, BufferedImage image2, ComparisonDeadline deadline) {
+		return compare(image1, image2, 0, deadline);
+	}
+
+	/**
+	 * @param decodeNanos
+	 * 		the time of the decoding of the images, which is reported in the stats.
+	 * @see #compare(BufferedImage, BufferedImage)
+	 */
+	ComparisonResult compare(BufferedImage image1, BufferedImage image2, long decodeNanos) {
+		return compare(image1, image2, decodeNanos, null);
+	}
+
+	/**
+	 * @see #compare(BufferedImage, BufferedImage, long)
+	 * @see #compare(BufferedImage, BufferedImage, ComparisonDeadline)
+	 */
+	ComparisonResult compare(BufferedImage image1, BufferedImage image2, long decodeNanos, ComparisonDeadline deadline) {
+		if (hasNotSameImageSize(image1, image2)) {
+			return sizeMissmatch(decodeNanos);
+		}
+		return compare(PixelRowReader.forImage(image1), PixelRowReader.forImage(image2), decodeNanos, deadline);
+	}
+
+	/**
+	 * Compare a baseline in the {@link RawImage} store with an image. The pixels of the baseline are read straight
+	 * from its mapped file, so it's neither decoded nor copied to the heap.
+	 *
+	 * @param baseline
+	 * 		the first image to be compared.
+	 * @param image
+	 * 		the second image to be compared.
+	 * @return the result of the comparison.
+	 */
+	public ComparisonResult compare(RawImage baseline, BufferedImage image) {
+		return compare(baseline, image, null);
+	}
+
+	/**
+	 * Compare a baseline in the {@link RawImage} store with an image, until the deadline expires.
+	 *
+	 * @param deadline
+	 * 		the time budget of the comparison, {@code null} if there is no one.
+	 * @see #compare(RawImage, BufferedImage)
+	 * @see #compare(BufferedImage, BufferedImage, ComparisonDeadline)
+	 */
+	public ComparisonResult compare(RawImage baseline, BufferedImage image, ComparisonDeadline deadline) {
+		if (baseline.getWidth() != image.getWidth() || baseline.getHeight() != image.getHeight()) {
+			return sizeMissmatch(0);
+		}
+		return compare(PixelRowReader.forImage(baseline), PixelRowReader.forImage(image), 0, deadline);
+	}
+
+	/**
+	 * @return the result of the images of different sizes, which is reported to the listener.
+	 */
+	ComparisonResult sizeMissmatch(long decodeNanos) {
+		ComparisonResult sizeMissmatch = ComparisonResult.sizeMissmatch();
+		sizeMissmatch.getStats().setDecodeNanos(decodeNanos);
+		if (options.getListener() != null) {
+			options.getListener().onComparison(sizeMissmatch.getStats());
+		}
+		return sizeMissmatch;
+	}
+
+	/**
+	 * Compare the images of the same size.
+	 */
+	private ComparisonResult compare(PixelRowReader reader1, PixelRowReader reader2, long decodeNanos,
+			ComparisonDeadline deadline) {
+		ComparisonListener listener = options.getListener();
+		int width = reader1.getWidth();
+		int height = reader1.getToY();
+		RegionMask regionMask = checkRegionMask(width, height);
+		ComparisonStats stats = new ComparisonStats();
+		stats.setDecodeNanos(decodeNanos);
+		List<Rectangle> rectangles;
+		if (options.getParallelism() > 1) {
+			RegionBounds regions = new TiledComparison(options.getPixelDistance(), options.getThreshold(),
+					options.getParallelism(), options.getTileSize(), options.isBlockPrefilter(), regionMask, options.isRunLengthEncoding(),
+					options.isDilation(), options.getPool())
+					.compare(reader1, reader2, stats, deadline);
+			rectangles = toRectangles(regions, stats);
+			stats.setWorkingBufferBytes(stats.getWorkingBufferBytes() + regions.getByteCount());
+		} else if ((options.isRunLengthEncoding() || options.isDilation()) && !options.isBlockPrefilter()) {
+			WorkingBuffers buffers = WorkingBuffers.acquire();
+			try {
+				long start = System.nanoTime();
+				DifferenceRuns runs = new DifferenceRuns(width, 0, height);
+				int[] row1 = buffers.row1(width);
+				int[] row2 = buffers.row2(width);
+				// the runs end with the last compared row
+				stats.setComparedRowCount(populate(height, deadline, (fromY, toY) -> populateTheRunsOfTheDifferences(runs,
+						reader1, reader2, options.getPixelDistance(), regionMask, fromY, toY, row1, row2)));
+				long populated = System.nanoTime();
+				RegionBounds regions = labelRegions(runs);
+				stats.setDifferenceNanos(populated - start);
+				stats.setLabelingNanos(System.nanoTime() - populated);
+				rectangles = toRectangles(regions, stats);
+				stats.setWorkingBufferBytes(runs.getByteCount() + regions.getByteCount()
+						+ ImageComparisonTools.getRowBufferBytes(width));
+			} finally {
+				buffers.release();
+			}
+		} else {
+			WorkingBuffers buffers = WorkingBuffers.acquire();
+			try {
+				long start = System.nanoTime();
+				DifferenceMask mask = buffers.mask(width, height);
+				int[] row1 = buffers.row1(width);
+				int[] row2 = buffers.row2(width);
+				int comparedRows = populate(height, deadline, (fromY, toY) -> {
+					if (options.isBlockPrefilter()) {
+						BlockPrefilter.populateTheMatrixOfTheDifferences(mask, reader1, reader2, options.getPixelDistance(), fromY, toY,
+								buffers);
+						if (regionMask != null) {
+							regionMask.clearIgnored(mask, fromY, toY);
+						}
+					} else if (regionMask != null) {
+						populateTheMatrixOfTheDifferences(mask, reader1, reader2, options.getPixelDistance(), regionMask, fromY, toY,
+								row1, row2);
+					} else {
+						populateTheMatrixOfTheDifferences(mask, reader1, reader2, options.getPixelDistance(), fromY, toY, row1, row2);
+					}
+				});
+				// the pooled mask keeps the rows of the previous comparison
+				mask.clearRows(comparedRows, height);
+				stats.setComparedRowCount(comparedRows);
+				long populated = System.nanoTime();
+				// the block prefilter populates the mask, but it can be labeled run by run too
+				RegionBounds regions = options.isRunLengthEncoding() || options.isDilation()
+						? labelRegions(DifferenceRuns.of(mask))
+						: RegionLabeler.labelRegions(mask, options.getThreshold(), buffers);
+				stats.setDifferenceNanos(populated - start);
+				stats.setLabelingNanos(System.nanoTime() - populated);
+				// the pooled regions are reused by the next comparison, so the rectangles are created before
+				rectangles = toRectangles(regions, stats);
+				stats.setWorkingBufferBytes(buffers.getByteCount());
+			} finally {
+				buffers.release();
+			}
+		}
+
+		ComparisonResult result = new ComparisonResult(rectangles, stats,
+				height == 0 ? 1 : (double) stats.getComparedRowCount() / height);
+		if (listener != null) {
+			listener.onComparison(stats);
+		}
+		return result;
+	}
+
+	/**
+	 * Label the mask of the different pixels of a whole image, which was populated by another comparison, and convert
+	 * the regions to the result, the same as this comparator does: the region mask, the labeling, the merging of the
+	 * rectangles and the listener are applied.
+	 *
+	 * @param mask
+	 * 		the populated mask, the ignored pixels are cleared in it.
+	 * @param stats
+	 * 		the stats of the population, which get the ones of the labeling.
+	 * @return the result of the comparison.
+	 */
+	ComparisonResult labelDifferences(DifferenceMask mask, ComparisonStats stats) {
+		int height = mask.getToY();
+		RegionMask regionMask = checkRegionMask(mask.getWidth(), height);
+		if (regionMask != null) {
+			regionMask.clearIgnored(mask, 0, height);
+		}
+		long start = System.nanoTime();
+		RegionBounds regions = options.isRunLengthEncoding() || options.isDilation()
+				? labelRegions(DifferenceRuns.of(mask))
+				: RegionLabeler.labelRegions(mask, options.getThreshold());
+		stats.setLabelingNanos(System.nanoTime() - start);
+		stats.setComparedRowCount(height);
+		return createResult(regions, stats, 1);
+	}
+
+	/**
+	 * Convert the regions to the result, the same as this comparator does: the rectangles are merged and filtered by
+	 * the options and the stats are reported to the listener.
+	 *
+	 * @param regions
+	 * 		the regions of the different pixels.
+	 * @param stats
+	 * 		the stats of the comparison, which get the ones of the rectangles.
+	 * @param coverage
+	 * 		the compared part of the image, see {@link ComparisonResult#getCoverage()}.
+	 * @return the result of the comparison.
+	 */
+	ComparisonResult createResult(RegionBounds regions, ComparisonStats stats, double coverage) {
+		List<Rectangle> rectangles = toRectangles(regions, stats);
+		stats.setWorkingBufferBytes(stats.getWorkingBufferBytes() + regions.getByteCount());
+		ComparisonResult result = new ComparisonResult(rectangles, stats, coverage);
+		if (options.getListener() != null) {
+			options.getListener().onComparison(stats);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the region mask of the options, {@code null} if there is no one.
+	 * @throws IllegalArgumentException
+	 * 		if the region mask doesn't fit the images.
+	 */
+	RegionMask checkRegionMask(int width, int height) {
+		RegionMask regionMask = options.getRegionMask();
+		if (regionMask != null && (regionMask.getWidth() != width || regionMask.getHeight() != height)) {
+			throw new IllegalArgumentException("The region mask of " + regionMask.getWidth() + "x" + regionMask.getHeight()
+					+ " doesn't fit the images of " + width + "x" + height);
+		}
+		return regionMask;
+	}
+
+	/**
+	 * Check if the images match, stopping at the first difference.
+	 *
+	 * @return the result of the check.
+	 * @see ImageComparison#quickCompareImages()
+	 */
+	public ComparisonResult quickCompare(BufferedImage image1, BufferedImage image2) {
+		if (hasNotSameImageSize(image1, image2)) {
+			return ComparisonResult.sizeMissmatch();
+		}
+		if (options.getRegionMask() != null) {
+			// the first difference can be an ignored one
+			return compare(image1, image2);
+		}
+		int minimumRectangleSize = options.getMinimumRectangleSize();
+		// the regions of one pixel are smaller than 1, see Rectangle#getSize()
+		Rectangle difference = new QuickComparison(options.getPixelDistance(), options.getThreshold(), options.isDilation())
+				.findFirstDifference(image1, image2, minimumRectangleSize <= 0);
+		if (difference == null) {
+			return new ComparisonResult(emptyList());
+		}
+		if (difference.getSize() < minimumRectangleSize) {
+			return compare(image1, image2);
+		}
+		return new ComparisonResult(singletonList(difference));
+	}
+
+	/**
+	 * Populate the rows at once, or in the bands of the tile size if there is a deadline, which is checked before
+	 * every band.
+	 *
+	 * @return the count of the populated rows from the first one.
+	 */
+	private int populate(int height, ComparisonDeadline deadline, RowBand band) {
+		if (deadline == null) {
+			band.populate(0, height);
+			return height;
+		}
+		for (int y = 0; y < height; y += options.getTileSize()) {
+			if (deadline.isExpired()) {
+				return y;
+			}
+			band.populate(y, Math.min(y + options.getTileSize(), height));
+		}
+		return height;
+	}
+
+	/**
+	 * The population of a band of the rows.
+	 */
+	@FunctionalInterface
+	private interface RowBand {
+
+		void populate(int fromY, int toY);
+	}
+
+	/**
+	 * Group the runs into regions by the labeling of the options.
+	 */
+	RegionBounds labelRegions(DifferenceRuns runs) {
+		return options.isDilation()
+				? DilationLabeler.labelRegions(runs, options.getThreshold())
+				: RunLabeler.labelRegions(runs, options.getThreshold());
+	}
+
+	private List<Rectangle> toRectangles(RegionBounds regions, ComparisonStats stats) {
+		long start = System.nanoTime();
+		int minimumRectangleSize = options.getMinimumRectangleSize();
+		List<Rectangle> rectangles;
+		if (options.getMergeGap() >= 0) {
+			// the small regions are merged first, together they can make a big enough rectangle
+			rectangles = RectangleMerger.merge(regions.toRectangles(Integer.MIN_VALUE), options.getMergeGap());
+			rectangles.removeIf(rectangle -> rectangle.getSize() < minimumRectangleSize);
+		} else {
+			rectangles = regions.toRectangles(minimumRectangleSize);
+		}
+		stats.setRectanglesNanos(System.nanoTime() - start);
+		stats.setDifferentPixelCount(regions.getTotalPixelCount());
+		stats.setRegionCount(regions.size());
+		stats.setRectangleCount(rectangles.size());
+		return rectangles;
+	}
+}
@@ -1,26 +1,17 @@
 package ua.comparison.image;
 
 import ua.comparison.image.model.ComparisonResult;
-import ua.comparison.image.model.Rectangle;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
-import java.util.List;
 
-import static java.awt.Color.RED;
 import static java.nio.file.Files.createTempFile;
-import static java.util.Optional.ofNullable;
-import static ua.comparison.image.ImageComparisonTools.createRectangle;
-import static ua.comparison.image.ImageComparisonTools.deepCopy;
-import static ua.comparison.image.ImageComparisonTools.hasNotSameImageSize;
-import static ua.comparison.image.ImageComparisonTools.populateTheMatrixOfTheDifferences;
+import static ua.comparison.image.ImageComparisonTools.drawDifferences;
+import static ua.comparison.image.ImageComparisonTools.readImage;
 import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
 import static ua.comparison.image.ImageComparisonTools.saveImage;
-import static ua.comparison.image.model.Rectangle.defaultRectangle;
 
 public class ImageComparison {
 
@@ -29,28 +20,24 @@ public class ImageComparison {
 	 */
 	private static final String NAME_PREFIX = "image-comparison";
 	/**
-	 * Suffix of the name of of the result image.
+	 * The usage of the command line.
 	 */
-	private static final String NAME_SUFFIX = ".png";
+	private static final String USAGE = "Usage: java -jar image-comparison.jar [image1 image2 [result]]\n"
+			+ "       java -jar image-comparison.jar --server [--port N] [--threads N] [--cache-bytes N]\n"
+			+ "Compares two images and writes the comparison image to the result if they differ.\n"
+			+ "Exit code: 0 if they match, 1 if they don't, 2 on an error.\n"
+			+ "The server answers newline-delimited JSON requests on the standard input or on a local port.";
 	/**
 	 * The threshold which means the max distance between non-equal pixels.
 	 * Could be changed according size and requirements to the image.
 	 */
-	public static int threshold = 5;
+	public static int threshold = ComparisonOptions.DEFAULT_THRESHOLD;
 
 	/**
 	 * The minimum area size of a difference rectangle.
 	 */
-	public static int minimumRectangleSize = 1;
+	public static int minimumRectangleSize = ComparisonOptions.DEFAULT_MINIMUM_RECTANGLE_SIZE;
 
-	/**
-	 * The number which marks how many rectangles. Beginning from 2.
-	 */
-	private int counter = 2;
-	/**
-	 * The number of the marking specific rectangle.
-	 */
-	private int regionCount = counter;
 	/**
 	 * First image for comparing
 	 */
@@ -59,13 +46,88 @@ public class ImageComparison {
 	 * Second image for comparing
 	 */
 	private final BufferedImage image2;
-	private int[][] matrix;
+	/**
+	 * The rule which says if two pixels are different.
+	 */
+	private PixelDistance pixelDistance = PixelDistance.defaultDistance();
+	/**
+	 * The count of the threads of the comparison, "1" means the comparison in the calling thread.
+	 */
+	private int parallelism = 1;
+	/**
+	 * The count of the rows which are compared by one parallel task.
+	 */
+	private int tileSize = TiledComparison.DEFAULT_TILE_SIZE;
+	/**
+	 * The max gap between the rectangles which are merged, a negative one means they are not merged.
+	 */
+	private int mergeGap = -1;
+	/**
+	 * If the pixels are checked only in the changed blocks.
+	 */
+	private boolean blockPrefilter;
+	/**
+	 * The checked pixels of the images, {@code null} if all pixels are checked.
+	 */
+	private RegionMask regionMask;
+	/**
+	 * If the different pixels are labeled run by run.
+	 */
+	private boolean runLengthEncoding;
+	/**
+	 * If the gaps between the different pixels are bridged by a dilation.
+	 */
+	private boolean dilation;
+	/**
+	 * The listener of the comparisons, {@code null} if there is no one.
+	 */
+	private ComparisonListener listener;
+	/**
+	 * The time of the decoding of the image files, "0" if the images are provided decoded.
+	 */
+	private long decodeNanos;
 	private ComparisonResult comparisonResult;
 
 	ImageComparison(String image1, String image2) throws IOException, URISyntaxException {
 		this(readImageFromResources(image1), readImageFromResources(image2));
 	}
 
+	/**
+	 * Create a new instance of {@link ImageComparison} that can compare the given image files.
+	 *
+	 * @param image1
+	 * 		first image file to be compared
+	 * @param image2
+	 * 		second image file to be compared
+	 * @throws IOException
+	 * 		if a file can't be read.
+	 * @see ImageComparisonTools#readImage(File)
+	 */
+	public ImageComparison(File image1, File image2) throws IOException {
+		this(image1, image2, null);
+	}
+
+	/**
+	 * Create a new instance of {@link ImageComparison} that can compare the given image files, the first one is the
+	 * baseline which is read through the cache. The second one is always decoded, so the candidates which are
+	 * compared only once don't evict the baselines.
+	 *
+	 * @param image1
+	 * 		first image file to be compared, the baseline.
+	 * @param image2
+	 * 		second image file to be compared
+	 * @param baselines
+	 * 		the cache of the baselines, {@code null} if the baseline is always decoded.
+	 * @throws IOException
+	 * 		if a file can't be read.
+	 */
+	public ImageComparison(File image1, File image2, DecodedImageCache baselines) throws IOException {
+		long start = System.nanoTime();
+		this.image1 = baselines != null ? baselines.read(image1) : readImage(image1);
+		this.image2 = readImage(image2);
+		this.decodeNanos = System.nanoTime() - start;
+	}
+
 	/**
 	 * Create a new instance of {@link ImageComparison} that can compare the given images.
 	 *
@@ -79,33 +141,221 @@ public class ImageComparison {
 		this.image2 = image2;
 	}
 
+	/**
+	 * Compare two image files from the command line.
+	 * <pre>
+	 * image1 image2 [result]   compare the files and write the comparison image to the result if they differ.
+	 *                          The exit code is "0" if they match, "1" if they don't and "2" on an error.
+	 * --server [options]       run the {@link ComparisonServer}, see {@link ComparisonServer#main(String[])}.
+	 * -h, --help               print the usage.
+	 * </pre>
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length > 0 && "--server".equals(args[0])) {
+			ComparisonServer.main(args);
+			return;
+		}
+		if (args.length > 0 && ("-h".equals(args[0]) || "--help".equals(args[0]))) {
+			System.out.println(USAGE);
+			return;
+		}
+		if (args.length < 2 || args.length > 3) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+		ComparisonResult result;
+		try {
+			ImageComparison imageComparison = new ImageComparison(new File(args[0]), new File(args[1]));
+			result = imageComparison.compareImages();
+			if (args.length == 3 && result.hasDifferences()) {
+				imageComparison.writeImageComparison(new File(args[2]));
+			}
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+			return;
+		}
+		System.out.println(result.getCheckResult() + ", differences: " + result.getDifferences().size());
+		System.exit(result.getCheckResult() == ComparisonResult.CheckResult.Match ? 0 : 1);
+	}
+
 	/**
 	 * Calculate regions which cover the difference pixels.
 	 *
 	 * @return the result od the comparison
 	 */
 	public ComparisonResult compareImages() {
+		comparisonResult = new ImageComparator(getOptions()).compare(image1, image2, decodeNanos);
+		return comparisonResult;
+	}
 
-		if (hasNotSameImageSize(image1, image2)) {
-			comparisonResult = ComparisonResult.sizeMissmatch();
-			return comparisonResult;
-		}
+	/**
+	 * Calculate regions which cover the difference pixels, until the deadline expires. Then the result is
+	 * {@link ComparisonResult#isPartial() partial}: it holds the regions of the compared rows and the compared part
+	 * of the image.
+	 *
+	 * @param deadline
+	 * 		the time budget of the comparison, {@code null} if there is no one.
+	 * @return the result od the comparison
+	 * @see ImageComparator#compare(BufferedImage, BufferedImage, ComparisonDeadline)
+	 */
+	public ComparisonResult compareImages(ComparisonDeadline deadline) {
+		comparisonResult = new ImageComparator(getOptions()).compare(image1, image2, decodeNanos, deadline);
+		return comparisonResult;
+	}
 
-		matrix = populateTheMatrixOfTheDifferences(image1, image2);
+	/**
+	 * Calculate regions which cover the difference pixels with the options of the comparator instead of the ones of
+	 * this object. The result is drawn by {@link #getImageComparison(int)} as usual.
+	 */
+	ComparisonResult compareImages(ImageComparator comparator) {
+		comparisonResult = comparator.compare(image1, image2, decodeNanos);
+		return comparisonResult;
+	}
 
-		List<Rectangle> rectangles = new ArrayList<>();
+	/**
+	 * @return the options of this object and of the static {@link #threshold} and {@link #minimumRectangleSize}.
+	 * An {@link ImageComparator} with them compares the same way as this object.
+	 */
+	public ComparisonOptions getOptions() {
+		return ComparisonOptions.defaults()
+				.withThreshold(threshold)
+				.withMinimumRectangleSize(minimumRectangleSize)
+				.withPixelDistance(pixelDistance)
+				.withParallelism(Math.max(parallelism, 1))
+				.withTileSize(Math.max(tileSize, 1))
+				.withMergeGap(mergeGap)
+				.withListener(listener)
+				.withBlockPrefilter(blockPrefilter)
+				.withRegionMask(regionMask)
+				.withRunLengthEncoding(runLengthEncoding)
+				.withDilation(dilation);
+	}
 
-		groupRegions();
+	/**
+	 * Set the rule which says if two pixels are different.
+	 *
+	 * @param pixelDistance
+	 * 		the {@link PixelDistance} object, {@link PixelDistance#defaultDistance()} by default.
+	 */
+	public void setPixelDistance(PixelDistance pixelDistance) {
+		this.pixelDistance = pixelDistance;
+	}
 
-		while (counter <= regionCount) {
-			Rectangle rectangle = createRectangle(matrix, counter);
-			if (!rectangle.equals(defaultRectangle) && rectangle.getSize() >= minimumRectangleSize) {
-				rectangles.add(rectangle);
-			}
-			counter++;
-		}
-		comparisonResult = new ComparisonResult(rectangles);
-		return comparisonResult;
+	/**
+	 * Set how much two pixels can differ to be still equal.
+	 *
+	 * @param pixelToleranceLevel
+	 * 		the part of the distance between black and white, between "0" and "1". It's 10% by default.
+	 * @see PixelDistance#euclidean(double)
+	 */
+	public void setPixelToleranceLevel(double pixelToleranceLevel) {
+		this.pixelDistance = PixelDistance.euclidean(pixelToleranceLevel);
+	}
+
+	/**
+	 * Set the count of the threads which compare the images. The image is split into strips which are compared
+	 * in parallel on a {@link java.util.concurrent.ForkJoinPool}, the result is the same as the sequential one.
+	 *
+	 * @param parallelism
+	 * 		the count of the threads, "1" by default which means the comparison in the calling thread.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Set the size of the strips of the parallel comparison.
+	 *
+	 * @param tileSize
+	 * 		the count of the rows of one strip.
+	 * @see #setParallelism(int)
+	 */
+	public void setTileSize(int tileSize) {
+		this.tileSize = tileSize;
+	}
+
+	/**
+	 * Merge the overlapping or close rectangles of the differences into their bounding rectangles, until no two of
+	 * them overlap. The merging is done before the rectangles smaller than {@link #minimumRectangleSize} are removed.
+	 *
+	 * @param mergeGap
+	 * 		the max count of the pixels between two rectangles which are merged, "0" means they should overlap or touch.
+	 * 		"-1" by default, which means the rectangles are not merged.
+	 */
+	public void setMergeGap(int mergeGap) {
+		this.mergeGap = mergeGap;
+	}
+
+	/**
+	 * Prefilter the equal pixels by blocks: the images are split into blocks and the distance of the pixels is checked
+	 * only in the blocks which contain changed pixels. The result is the same, it's faster for the big images with
+	 * small changes.
+	 *
+	 * @param blockPrefilter
+	 * 		{@code true} for the block prefilter, {@code false} by default.
+	 * @see BlockPrefilter
+	 */
+	public void setBlockPrefilter(boolean blockPrefilter) {
+		this.blockPrefilter = blockPrefilter;
+	}
+
+	/**
+	 * Compare only a part of the images, for example without the clocks or the ads of a screenshot. The ignored pixels
+	 * are not even read.
+	 *
+	 * @param regionMask
+	 * 		the checked pixels of the images, {@code null} by default to check all pixels.
+	 * @see RegionMask
+	 */
+	public void setRegionMask(RegionMask regionMask) {
+		this.regionMask = regionMask;
+	}
+
+	/**
+	 * Collect the different pixels as the runs of every row and label them run by run, instead of the mask of all
+	 * pixels. The result is the same, it takes less memory and time for the sparse or clustered differences.
+	 *
+	 * @param runLengthEncoding
+	 * 		{@code true} for the run-length encoding, {@code false} by default.
+	 * @see RunLabeler
+	 */
+	public void setRunLengthEncoding(boolean runLengthEncoding) {
+		this.runLengthEncoding = runLengthEncoding;
+	}
+
+	/**
+	 * Bridge the gaps between the different pixels by a dilation and label the dilated pixels, so the time of the
+	 * labeling doesn't grow with the {@link #threshold}. The pixels closer than the threshold by both the columns
+	 * and the rows are joined, not only the ones on the same row, column or diagonal, so some regions can be bigger.
+	 *
+	 * @param dilation
+	 * 		{@code true} for the dilation, {@code false} by default.
+	 * @see DilationLabeler
+	 */
+	public void setDilation(boolean dilation) {
+		this.dilation = dilation;
+	}
+
+	/**
+	 * Set the listener of the comparisons of this object.
+	 *
+	 * @param listener
+	 * 		the {@link ComparisonListener} object, {@code null} by default which means there is no listener.
+	 */
+	public void setListener(ComparisonListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Check if the images match, stopping at the first difference. The {@link ComparisonResult#getCheckResult()}
+	 * is the same as the one of {@link #compareImages()}, but the differences contain only the first found
+	 * rectangle, not the whole regions.
+	 *
+	 * @return the result of the check.
+	 */
+	public ComparisonResult quickCompareImages() {
+		return new ImageComparator(getOptions()).quickCompare(image1, image2);
 	}
 
 	public BufferedImage getImage1() {
@@ -129,11 +379,13 @@ public class ImageComparison {
 	 * @return the result of the drawing.
 	 */
 	public BufferedImage getImageComparison(int maximalDifferences) {
-		BufferedImage outImg = deepCopy(image2);
-		Graphics2D graphics = outImg.createGraphics();
-		graphics.setColor(RED);
-		getComparisonResult().getMaxDifferences(maximalDifferences)
-							 .forEach(rectangle -> graphics.drawRect(rectangle.getMinY(), rectangle.getMinX(), rectangle.getWidth(), rectangle.getHeight()));
+		ComparisonResult result = getComparisonResult();
+		long start = System.nanoTime();
+		BufferedImage outImg = drawDifferences(image2, result.getMaxDifferences(maximalDifferences));
+		result.getStats().setRenderNanos(System.nanoTime() - start);
+		if (listener != null) {
+			listener.onRender(result.getStats());
+		}
 		return outImg;
 	}
 
@@ -146,12 +398,52 @@ public class ImageComparison {
 	 * @see #writeImageComparison(File, int)
 	 */
 	public BufferedImage writeImageComparison(File destination, int maximalDifferences) throws IOException {
+		return writeImageComparison(destination, maximalDifferences, ImageOutput.png());
+	}
+
+	/**
+	 * Write an image which visualizes the differences between the two images into to provided file in the provided
+	 * format.
+	 *
+	 * @param maximalDifferences
+	 * 		maximal differences which should be drawn - Beginning with the biggest. This limit helps to speedup the drawing process.
+	 * @param output
+	 * 		the format of the file, for example {@link ImageOutput#png(int)} with a low level for the faster writing.
+	 * @return the result of the drawing.
+	 * @see #writeImageComparison(File, int)
+	 */
+	public BufferedImage writeImageComparison(File destination, int maximalDifferences, ImageOutput output) throws IOException {
 		BufferedImage outImg = getImageComparison(maximalDifferences);
 		//save the image:
-		saveImage(ofNullable(destination).orElse(createTempFile(NAME_PREFIX, NAME_SUFFIX).toFile()), outImg);
+		saveImage(getDestination(destination, output), outImg, output);
 		return outImg;
 	}
 
+	/**
+	 * Draw the image which visualizes the differences and queue it to be written by the provided writer, so the
+	 * result is returned before the image is encoded.
+	 *
+	 * @param destination
+	 * 		the destination file, {@code null} means a file in the temp folder.
+	 * @param maximalDifferences
+	 * 		maximal differences which should be drawn - Beginning with the biggest.
+	 * @param output
+	 * 		the format of the file.
+	 * @param writer
+	 * 		the {@link AsyncImageWriter} which writes the image and reports its failure.
+	 * @return the result of the comparison.
+	 * @throws IOException
+	 * 		if the temp file can't be created.
+	 * @throws InterruptedException
+	 * 		if the thread is interrupted while waiting for the queue of the writer.
+	 */
+	public ComparisonResult writeImageComparison(File destination, int maximalDifferences, ImageOutput output,
+			AsyncImageWriter writer) throws IOException, InterruptedException {
+		BufferedImage outImg = getImageComparison(maximalDifferences);
+		writer.write(outImg, getDestination(destination, output), output);
+		return getComparisonResult();
+	}
+
 	/**
 	 * Write an image which visualizes the differences between the two images. It will be saved to the temp folder.
 	 *
@@ -172,51 +464,20 @@ public class ImageComparison {
 		return writeImageComparison(destination, Integer.MAX_VALUE);
 	}
 
-	private ComparisonResult getComparisonResult() {
-		if (comparisonResult == null) {
-			comparisonResult = compareImages();
-		}
-		return comparisonResult;
-	}
-
 	/**
-	 * Group rectangle regions in matrix.
+	 * @return the destination or a new file in the temp folder if it's {@code null}.
 	 */
-	private void groupRegions() {
-		for (int row = 0; row < matrix.length; row++) {
-			for (int col = 0; col < matrix[row].length; col++) {
-				if (matrix[row][col] == 1) {
-					joinToRegion(row, col);
-					regionCount++;
-				}
-			}
-		}
+	private static File getDestination(File destination, ImageOutput output) throws IOException {
+		return destination != null ? destination : createTempFile(NAME_PREFIX, output.getFormat().getExtension()).toFile();
 	}
 
 	/**
-	 * The recursive method which go to all directions and finds difference
-	 * in binary matrix using {@code threshold} for setting max distance between values which equal "1".
-	 * and set the {@code groupCount} to matrix.
-	 *
-	 * @param row
-	 * 		the value of the row.
-	 * @param col
-	 * 		the value of the column.
+	 * @return the result of the last comparison, the images are compared if they are not yet.
 	 */
-	private void joinToRegion(int row, int col) {
-		if (row < 0 || row >= matrix.length || col < 0 || col >= matrix[row].length || matrix[row][col] != 1) {
-			return;
-		}
-
-		matrix[row][col] = regionCount;
-
-		for (int i = 0; i < threshold; i++) {
-			joinToRegion(row + 1 + i, col);
-			joinToRegion(row, col + 1 + i);
-
-			joinToRegion(row + 1 + i, col - 1 - i);
-			joinToRegion(row - 1 - i, col + 1 + i);
-			joinToRegion(row + 1 + i, col + 1 + i);
+	ComparisonResult getComparisonResult() {
+		if (comparisonResult == null) {
+			comparisonResult = compareImages();
 		}
+		return comparisonResult;
 	}
 }
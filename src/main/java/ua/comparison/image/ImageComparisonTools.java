@@ -4,18 +4,39 @@ import ua.comparison.image.model.ImageSize;
 import ua.comparison.image.model.Rectangle;
 
 import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.List;
+
+import static java.awt.Color.RED;
 
 /**
  * Tools for the {@link ImageComparison} object.
  */
 public class ImageComparisonTools {
 
+	/**
+	 * If the rows are compared by the {@link VectorDifferenceKernel}: only on Java 17 and newer with the
+	 * {@code jdk.incubator.vector} module, otherwise its class can't be initialized.
+	 */
+	private static final boolean VECTOR_KERNEL = isVectorKernelAvailable();
+
+	/**
+	 * @return if the {@link VectorDifferenceKernel} can be used in this JVM.
+	 */
+	static boolean isVectorKernelAvailable() {
+		try {
+			return VectorDifferenceKernel.isAvailable();
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
 	/**
 	 * Create a {@link Rectangle} object.
 	 *
@@ -24,11 +45,15 @@ public class ImageComparisonTools {
 	 * @param counter
 	 * 		the number from marks regions.
 	 * @return the {@link Rectangle} object.
+	 * @deprecated the comparison doesn't label a matrix any more, the bounds of all regions are collected in one
+	 * pass by the {@code RegionBounds} of the labeling. Use the rectangles of
+	 * {@link ImageComparator#compare(BufferedImage, BufferedImage)}. This method scans the whole matrix for every
+	 * region and will be removed.
 	 */
+	@Deprecated
 	public static Rectangle createRectangle(int[][] matrix, int counter) {
 		Rectangle rectangle = Rectangle.createDefault();
 
-		//todo refactor it to make it faster.
 		for (int y = 0; y < matrix.length; y++) {
 			for (int x = 0; x < matrix[0].length; x++) {
 				if (matrix[y][x] == counter) {
@@ -79,6 +104,8 @@ public class ImageComparisonTools {
 	 * Say if the two pixels equal or not. The rule is the difference between two pixels
 	 * need to be more then 10%.
 	 *
+	 * @see PixelDistance#defaultDistance()
+	 *
 	 * @param rgb1
 	 * 		the RGB value of the Pixel of the Image1.
 	 * @param rgb2
@@ -86,14 +113,7 @@ public class ImageComparisonTools {
 	 * @return {@code true} if they' are difference, {@code false} otherwise.
 	 */
 	public static boolean isDifferent(int rgb1, int rgb2) {
-		int red1 = (rgb1 >> 16) & 0xff;
-		int green1 = (rgb1 >> 8) & 0xff;
-		int blue1 = (rgb1) & 0xff;
-		int red2 = (rgb2 >> 16) & 0xff;
-		int green2 = (rgb2 >> 8) & 0xff;
-		int blue2 = (rgb2) & 0xff;
-		double result = Math.sqrt(Math.pow(red2 - red1, 2) + Math.pow(green2 - green1, 2) + Math.pow(blue2 - blue1, 2)) / Math.sqrt(Math.pow(255, 2) * 3);
-		return result > 0.1;
+		return PixelDistance.defaultDistance().isDifferent(rgb1, rgb2);
 	}
 
 	/**
@@ -104,7 +124,24 @@ public class ImageComparisonTools {
 	 * @return the {@link BufferedImage} object of this specific image.
 	 */
 	public static BufferedImage readImageFromResources(String path) throws IOException, URISyntaxException {
-		return ImageIO.read(new File(ImageComparison.class.getClassLoader().getResource(path).toURI().getPath()));
+		return readImage(new File(ImageComparison.class.getClassLoader().getResource(path).toURI().getPath()));
+	}
+
+	/**
+	 * Read image from the provided file. Use a {@link DecodedImageCache} for the images which are read many times.
+	 *
+	 * @param file
+	 * 		the image file.
+	 * @return the {@link BufferedImage} object of this specific image.
+	 * @throws IOException
+	 * 		if the file can't be read or its format is not supported.
+	 */
+	public static BufferedImage readImage(File file) throws IOException {
+		BufferedImage image = ImageIO.read(file);
+		if (image == null) {
+			throw new IOException("Unsupported image format of " + file);
+		}
+		return image;
 	}
 
 	/**
@@ -116,13 +153,45 @@ public class ImageComparisonTools {
 	 * 		the {@link BufferedImage} object of this specific image.
 	 */
 	public static void saveImage(File path, BufferedImage image) throws IOException {
+		saveImage(path, image, ImageOutput.png());
+	}
+
+	/**
+	 * Save image to the provided path in the provided format.
+	 *
+	 * @param path
+	 * 		the path to the saving image.
+	 * @param image
+	 * 		the {@link BufferedImage} object of this specific image.
+	 * @param output
+	 * 		the format of the file.
+	 */
+	public static void saveImage(File path, BufferedImage image, ImageOutput output) throws IOException {
 		File dir = path.getParentFile();
 		// make dir if it's not using from Gradle.
 		boolean dirExists = dir == null || dir.isDirectory() || dir.mkdirs();
 		if (!dirExists) {
 			throw new RuntimeException("Unable to create directory " + dir);
 		}
-		ImageIO.write(image, "png", path);
+		output.write(image, path);
+	}
+
+	/**
+	 * Draw the rectangles of the differences on a copy of the image.
+	 *
+	 * @param image
+	 * 		the image, which is not changed.
+	 * @param differences
+	 * 		the rectangles to be drawn.
+	 * @return the copy of the image with the red rectangles.
+	 */
+	static BufferedImage drawDifferences(BufferedImage image, List<Rectangle> differences) {
+		BufferedImage outImg = deepCopy(image);
+		Graphics2D graphics = outImg.createGraphics();
+		graphics.setColor(RED);
+		differences.forEach(rectangle -> graphics.drawRect(rectangle.getMinY(), rectangle.getMinX(), rectangle.getWidth(), rectangle.getHeight()));
+		graphics.dispose();
+		return outImg;
 	}
 
 	/**
@@ -147,21 +216,227 @@ public class ImageComparisonTools {
 	}
 
 	/**
-	 * Populate binary matrix by "0" and "1". If the pixels are difference set it as "1", otherwise "0".
+	 * Reduce the image to a grid of cells by averaging the luma of their pixels.
+	 *
+	 * @param image
+	 * 		the {@link BufferedImage} object.
+	 * @param columns
+	 * 		the count of the columns of the grid.
+	 * @param rows
+	 * 		the count of the rows of the grid.
+	 * @return the average luma of the cells row by row, multiplied by 1000 like in {@link LumaPixelDistance}.
+	 */
+	static long[] lumaGrid(BufferedImage image, int columns, int rows) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		long[] sums = new long[columns * rows];
+		long[] counts = new long[columns * rows];
+		int[] cellOfColumn = new int[width];
+		for (int x = 0; x < width; x++) {
+			cellOfColumn[x] = (int) ((long) x * columns / width);
+		}
+		PixelRowReader reader = PixelRowReader.forImage(image);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			reader.readRow(y, row);
+			int rowStart = (int) ((long) y * rows / height) * columns;
+			for (int x = 0; x < width; x++) {
+				sums[rowStart + cellOfColumn[x]] += LumaPixelDistance.luma(row[x]);
+				counts[rowStart + cellOfColumn[x]]++;
+			}
+		}
+		for (int cell = 0; cell < sums.length; cell++) {
+			if (counts[cell] > 0) {
+				sums[cell] /= counts[cell];
+			}
+		}
+		return sums;
+	}
+
+	/**
+	 * Populate the mask of the different pixels.
+	 *
+	 * @param image1
+	 *        {@link BufferedImage} object of the first image.
+	 * @param image2
+	 *        {@link BufferedImage} object of the second image.
+	 * @return populated mask.
+	 * @see #isDifferent(int, int)
+	 */
+	static DifferenceMask populateTheMatrixOfTheDifferences(BufferedImage image1, BufferedImage image2) {
+		return populateTheMatrixOfTheDifferences(image1, image2, PixelDistance.defaultDistance());
+	}
+
+	/**
+	 * Populate the mask of the different pixels. The images are read row by row with {@link PixelRowReader}.
 	 *
 	 * @param image1
 	 *        {@link BufferedImage} object of the first image.
 	 * @param image2
 	 *        {@link BufferedImage} object of the second image.
-	 * @return populated binary matrix.
+	 * @param pixelDistance
+	 * 		the rule which says if two pixels are different.
+	 * @return populated mask.
+	 */
+	static DifferenceMask populateTheMatrixOfTheDifferences(BufferedImage image1, BufferedImage image2, PixelDistance pixelDistance) {
+		DifferenceMask mask = new DifferenceMask(image1.getWidth(), image1.getHeight());
+		populateTheMatrixOfTheDifferences(mask, PixelRowReader.forImage(image1), PixelRowReader.forImage(image2),
+				pixelDistance, 0, image1.getHeight());
+		return mask;
+	}
+
+	/**
+	 * @return the count of the bytes of the row buffers of one
+	 * {@link #populateTheMatrixOfTheDifferences(DifferenceMask, PixelRowReader, PixelRowReader, PixelDistance, int, int)}.
+	 */
+	static long getRowBufferBytes(int width) {
+		return 2L * width * Integer.BYTES;
+	}
+
+	/**
+	 * Populate the rows of the mask of the different pixels.
+	 *
+	 * @param mask
+	 * 		the empty mask of the size of the images.
+	 * @param reader1
+	 * 		the reader of the first image.
+	 * @param reader2
+	 * 		the reader of the second image.
+	 * @param pixelDistance
+	 * 		the rule which says if two pixels are different.
+	 * @param fromY
+	 * 		the first row, inclusive.
+	 * @param toY
+	 * 		the last row, exclusive.
+	 */
+	static void populateTheMatrixOfTheDifferences(DifferenceMask mask, PixelRowReader reader1, PixelRowReader reader2,
+			PixelDistance pixelDistance, int fromY, int toY) {
+		populateTheMatrixOfTheDifferences(mask, reader1, reader2, pixelDistance, fromY, toY,
+				new int[mask.getWidth()], new int[mask.getWidth()]);
+	}
+
+	/**
+	 * Populate the rows of the mask of the different pixels with the provided row buffers.
+	 *
+	 * @param row1
+	 * 		the buffer of the rows of the first image, at least as long as the width of the mask.
+	 * @param row2
+	 * 		the buffer of the rows of the second image, at least as long as the width of the mask.
+	 * @see #populateTheMatrixOfTheDifferences(DifferenceMask, PixelRowReader, PixelRowReader, PixelDistance, int, int)
+	 */
+	static void populateTheMatrixOfTheDifferences(DifferenceMask mask, PixelRowReader reader1, PixelRowReader reader2,
+			PixelDistance pixelDistance, int fromY, int toY, int[] row1, int[] row2) {
+		if (VECTOR_KERNEL && pixelDistance instanceof EuclideanPixelDistance) {
+			int maxEqualSquaredDistance = ((EuclideanPixelDistance) pixelDistance).getMaxEqualSquaredDistance();
+			for (int y = fromY; y < toY; y++) {
+				reader1.readRow(y, row1);
+				reader2.readRow(y, row2);
+				VectorDifferenceKernel.populateRow(mask, y, row1, row2, maxEqualSquaredDistance);
+			}
+			return;
+		}
+		int width = mask.getWidth();
+		for (int y = fromY; y < toY; y++) {
+			reader1.readRow(y, row1);
+			reader2.readRow(y, row2);
+			for (int wordStart = 0; wordStart < width; wordStart += 64) {
+				int wordEnd = Math.min(wordStart + 64, width);
+				long bits = 0;
+				for (int x = wordStart; x < wordEnd; x++) {
+					if (pixelDistance.isDifferent(row1[x], row2[x])) {
+						bits |= 1L << x;
+					}
+				}
+				mask.setWord(y, wordStart >>> 6, bits);
+			}
+		}
+	}
+
+	/**
+	 * Populate the rows of the mask of the different pixels, only the checked pixels of the region mask are read and
+	 * compared. The bits of the ignored pixels are cleared.
+	 *
+	 * @param regions
+	 * 		the checked pixels, of the size of the mask.
+	 * @see #populateTheMatrixOfTheDifferences(DifferenceMask, PixelRowReader, PixelRowReader, PixelDistance, int, int, int[], int[])
 	 */
-	static int[][] populateTheMatrixOfTheDifferences(BufferedImage image1, BufferedImage image2) {
-		int[][] matrix = new int[image1.getWidth()][image1.getHeight()];
-		for (int y = 0; y < image1.getHeight(); y++) {
-			for (int x = 0; x < image1.getWidth(); x++) {
-				matrix[x][y] = isDifferent(image1.getRGB(x, y), image2.getRGB(x, y)) ? 1 : 0;
+	static void populateTheMatrixOfTheDifferences(DifferenceMask mask, PixelRowReader reader1, PixelRowReader reader2,
+			PixelDistance pixelDistance, RegionMask regions, int fromY, int toY, int[] row1, int[] row2) {
+		int stride = (mask.getWidth() + 63) >>> 6;
+		for (int y = fromY; y < toY; y++) {
+			for (int word = 0; word < stride; word++) {
+				mask.setWord(y, word, 0);
+			}
+			int[] spans = regions.getSpans(y);
+			// the spans are sorted, so the words are completed one after another
+			int word = 0;
+			long bits = 0;
+			for (int i = 0; i < spans.length; i += 2) {
+				int from = spans[i];
+				int length = spans[i + 1] - from;
+				reader1.readRow(y, from, length, row1);
+				reader2.readRow(y, from, length, row2);
+				for (int j = 0; j < length; j++) {
+					int x = from + j;
+					if (x >>> 6 != word) {
+						mask.setWord(y, word, bits);
+						word = x >>> 6;
+						bits = 0;
+					}
+					if (pixelDistance.isDifferent(row1[j], row2[j])) {
+						bits |= 1L << x;
+					}
+				}
+			}
+			if (bits != 0) {
+				mask.setWord(y, word, bits);
+			}
+		}
+	}
+
+	/**
+	 * Populate the runs of the different pixels of the rows, the rows are added to the end of the runs.
+	 *
+	 * @param runs
+	 * 		the runs which end before the first row.
+	 * @param regions
+	 * 		the checked pixels, {@code null} if all pixels are checked.
+	 * @param fromY
+	 * 		the first row, inclusive.
+	 * @param toY
+	 * 		the last row, exclusive.
+	 * @param row1
+	 * 		the buffer of the rows of the first image, at least as long as the width of the images.
+	 * @param row2
+	 * 		the buffer of the rows of the second image, at least as long as the width of the images.
+	 */
+	static void populateTheRunsOfTheDifferences(DifferenceRuns runs, PixelRowReader reader1, PixelRowReader reader2,
+			PixelDistance pixelDistance, RegionMask regions, int fromY, int toY, int[] row1, int[] row2) {
+		int[] wholeRow = {0, runs.getWidth()};
+		for (int y = fromY; y < toY; y++) {
+			int[] spans = regions == null ? wholeRow : regions.getSpans(y);
+			for (int i = 0; i < spans.length; i += 2) {
+				int from = spans[i];
+				int length = spans[i + 1] - from;
+				reader1.readRow(y, from, length, row1);
+				reader2.readRow(y, from, length, row2);
+				// the spans don't touch, so the runs end with the span
+				int runStart = -1;
+				for (int j = 0; j < length; j++) {
+					if (pixelDistance.isDifferent(row1[j], row2[j])) {
+						if (runStart < 0) {
+							runStart = from + j;
+						}
+					} else if (runStart >= 0) {
+						runs.addRun(runStart, from + j - 1);
+						runStart = -1;
+					}
+				}
+				if (runStart >= 0) {
+					runs.addRun(runStart, from + length - 1);
+				}
 			}
+			runs.endRow();
 		}
-		return matrix;
 	}
 }
@@ -0,0 +1,203 @@
+package ua.comparison.image;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * The format of the written images. The default PNG is the smallest, the PNG with a lower compression level is
+ * written faster, and the uncompressed PAM is the fastest one for the images which are thrown away soon.
+ */
+public final class ImageOutput {
+
+	/**
+	 * The format of the file.
+	 */
+	public enum Format {
+		/**
+		 * The PNG image.
+		 */
+		PNG(".png"),
+		/**
+		 * The uncompressed Netpbm PAM image with the RGB_ALPHA tuples, 4 bytes per pixel.
+		 */
+		PAM(".pam");
+
+		private final String extension;
+
+		Format(String extension) {
+			this.extension = extension;
+		}
+
+		/**
+		 * @return the extension of the files, with the dot.
+		 */
+		public String getExtension() {
+			return extension;
+		}
+	}
+
+	/**
+	 * The compression level of the default {@link ImageIO} writer.
+	 */
+	public static final int DEFAULT_COMPRESSION_LEVEL = -1;
+	/**
+	 * The biggest compression level, the same as in {@link java.util.zip.Deflater}.
+	 */
+	public static final int MAX_COMPRESSION_LEVEL = 9;
+
+	private static final ImageOutput PNG = new ImageOutput(Format.PNG, DEFAULT_COMPRESSION_LEVEL);
+	private static final ImageOutput PAM = new ImageOutput(Format.PAM, 0);
+
+	private final Format format;
+	private final int compressionLevel;
+
+	private ImageOutput(Format format, int compressionLevel) {
+		this.format = format;
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * @return the PNG output of the default {@link ImageIO} writer.
+	 */
+	public static ImageOutput png() {
+		return PNG;
+	}
+
+	/**
+	 * The PNG output with the provided compression level. The level is applied only by the writers which support
+	 * the compression of the PNG images, since Java 9 the default one does; the others use their default level.
+	 *
+	 * @param compressionLevel
+	 * 		the level between "0", which means no compression, and {@link #MAX_COMPRESSION_LEVEL}.
+	 * @return the {@link ImageOutput} object.
+	 */
+	public static ImageOutput png(int compressionLevel) {
+		if (compressionLevel < 0 || compressionLevel > MAX_COMPRESSION_LEVEL) {
+			throw new IllegalArgumentException("The compression level should be between 0 and " + MAX_COMPRESSION_LEVEL
+					+ ", but was " + compressionLevel);
+		}
+		return new ImageOutput(Format.PNG, compressionLevel);
+	}
+
+	/**
+	 * @return the uncompressed PAM output.
+	 */
+	public static ImageOutput pam() {
+		return PAM;
+	}
+
+	public Format getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return the compression level, {@link #DEFAULT_COMPRESSION_LEVEL} if it's the default of the writer.
+	 */
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * Write the image to the file.
+	 *
+	 * @param image
+	 * 		the {@link BufferedImage} object.
+	 * @param file
+	 * 		the destination file.
+	 * @throws IOException
+	 * 		if the file can't be written.
+	 */
+	void write(BufferedImage image, File file) throws IOException {
+		if (format == Format.PAM) {
+			writePam(image, file);
+		} else if (compressionLevel == DEFAULT_COMPRESSION_LEVEL) {
+			ImageIO.write(image, "png", file);
+		} else {
+			writePng(image, file);
+		}
+	}
+
+	private void writePng(BufferedImage image, File file) throws IOException {
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+		if (!writers.hasNext()) {
+			throw new IOException("No writer of the PNG images");
+		}
+		ImageWriter writer = writers.next();
+		// an existing file is not truncated by the stream
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Unable to replace " + file);
+		}
+		try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+			if (output == null) {
+				throw new IOException("Unable to create " + file);
+			}
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			if (param.canWriteCompressed()) {
+				param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				// the quality "1" means no compression, "0" the best one
+				param.setCompressionQuality(1 - compressionLevel / (float) MAX_COMPRESSION_LEVEL);
+			}
+			writer.setOutput(output);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	private static void writePam(BufferedImage image, File file) throws IOException {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+			String header = "P7\nWIDTH " + width + "\nHEIGHT " + height + "\nDEPTH 4\nMAXVAL 255\nTUPLTYPE RGB_ALPHA\nENDHDR\n";
+			output.write(header.getBytes(StandardCharsets.US_ASCII));
+			int[] argb = new int[width];
+			byte[] bytes = new byte[width * 4];
+			for (int y = 0; y < height; y++) {
+				readRow(image, y, argb);
+				for (int x = 0, i = 0; x < width; x++) {
+					int pixel = argb[x];
+					bytes[i++] = (byte) (pixel >> 16);
+					bytes[i++] = (byte) (pixel >> 8);
+					bytes[i++] = (byte) pixel;
+					bytes[i++] = (byte) (pixel >>> 24);
+				}
+				output.write(bytes);
+			}
+		}
+	}
+
+	/**
+	 * Read the ARGB values of the row, the packed int images straight from the raster.
+	 */
+	private static void readRow(BufferedImage image, int y, int[] argb) {
+		switch (image.getType()) {
+			case BufferedImage.TYPE_INT_ARGB:
+				image.getRaster().getDataElements(0, y, argb.length, 1, argb);
+				break;
+			case BufferedImage.TYPE_INT_RGB:
+				image.getRaster().getDataElements(0, y, argb.length, 1, argb);
+				for (int x = 0; x < argb.length; x++) {
+					argb[x] |= 0xff000000;
+				}
+				break;
+			default:
+				image.getRGB(0, y, argb.length, 1, argb, 0, argb.length);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ImageOutput{" + "format=" + format + ", compressionLevel=" + compressionLevel + '}';
+	}
+}
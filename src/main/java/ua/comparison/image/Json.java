@@ -0,0 +1,295 @@
+package ua.comparison.image;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal reader and writer of the JSON of the {@link ComparisonServer} protocol, without a third party library.
+ * The objects are read as {@link Map}, the arrays as {@link List}, the numbers as {@link Long} or {@link Double}.
+ */
+final class Json {
+
+	/**
+	 * The max nesting of the arrays and objects, so a broken request can't overflow the stack.
+	 */
+	private static final int MAX_DEPTH = 32;
+
+	private final String text;
+	private int position;
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	/**
+	 * Read one JSON value.
+	 *
+	 * @param text
+	 * 		the JSON text.
+	 * @return the value.
+	 * @throws IllegalArgumentException
+	 * 		if the text is not valid JSON.
+	 */
+	static Object parse(String text) {
+		Json json = new Json(text);
+		Object value = json.readValue(0);
+		json.skipWhitespace();
+		if (json.position != text.length()) {
+			throw json.error("Unexpected text after the value");
+		}
+		return value;
+	}
+
+	/**
+	 * Write the value as compact JSON on one line.
+	 *
+	 * @param value
+	 * 		a {@link Map} with string keys, an {@link Iterable}, a {@link CharSequence}, a {@link Number}, a
+	 * 		{@link Boolean}, an {@link Enum} or {@code null}.
+	 * @return the JSON text.
+	 */
+	static String write(Object value) {
+		StringBuilder builder = new StringBuilder();
+		write(builder, value);
+		return builder.toString();
+	}
+
+	private static void write(StringBuilder builder, Object value) {
+		if (value == null || value instanceof Boolean || value instanceof Number) {
+			builder.append(value);
+		} else if (value instanceof Map) {
+			builder.append('{');
+			boolean first = true;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (!first) {
+					builder.append(',');
+				}
+				first = false;
+				writeString(builder, entry.getKey().toString());
+				builder.append(':');
+				write(builder, entry.getValue());
+			}
+			builder.append('}');
+		} else if (value instanceof Iterable) {
+			builder.append('[');
+			boolean first = true;
+			for (Object element : (Iterable<?>) value) {
+				if (!first) {
+					builder.append(',');
+				}
+				first = false;
+				write(builder, element);
+			}
+			builder.append(']');
+		} else {
+			writeString(builder, value.toString());
+		}
+	}
+
+	private static void writeString(StringBuilder builder, String string) {
+		builder.append('"');
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			switch (c) {
+				case '"':
+					builder.append("\\\"");
+					break;
+				case '\\':
+					builder.append("\\\\");
+					break;
+				case '\n':
+					builder.append("\\n");
+					break;
+				case '\r':
+					builder.append("\\r");
+					break;
+				case '\t':
+					builder.append("\\t");
+					break;
+				default:
+					if (c < 0x20) {
+						builder.append(String.format("\\u%04x", (int) c));
+					} else {
+						builder.append(c);
+					}
+			}
+		}
+		builder.append('"');
+	}
+
+	private Object readValue(int depth) {
+		if (depth > MAX_DEPTH) {
+			throw error("Too deep nesting");
+		}
+		skipWhitespace();
+		if (position >= text.length()) {
+			throw error("Unexpected end");
+		}
+		char c = text.charAt(position);
+		switch (c) {
+			case '{':
+				return readObject(depth);
+			case '[':
+				return readArray(depth);
+			case '"':
+				return readString();
+			case 't':
+				return readLiteral("true", Boolean.TRUE);
+			case 'f':
+				return readLiteral("false", Boolean.FALSE);
+			case 'n':
+				return readLiteral("null", null);
+			default:
+				return readNumber();
+		}
+	}
+
+	private Map<String, Object> readObject(int depth) {
+		Map<String, Object> object = new LinkedHashMap<>();
+		position++;
+		skipWhitespace();
+		if (peek() == '}') {
+			position++;
+			return object;
+		}
+		while (true) {
+			skipWhitespace();
+			if (peek() != '"') {
+				throw error("Expected a key");
+			}
+			String key = readString();
+			skipWhitespace();
+			expect(':');
+			object.put(key, readValue(depth + 1));
+			skipWhitespace();
+			if (peek() == ',') {
+				position++;
+			} else {
+				expect('}');
+				return object;
+			}
+		}
+	}
+
+	private List<Object> readArray(int depth) {
+		List<Object> array = new ArrayList<>();
+		position++;
+		skipWhitespace();
+		if (peek() == ']') {
+			position++;
+			return array;
+		}
+		while (true) {
+			array.add(readValue(depth + 1));
+			skipWhitespace();
+			if (peek() == ',') {
+				position++;
+			} else {
+				expect(']');
+				return array;
+			}
+		}
+	}
+
+	private String readString() {
+		StringBuilder builder = new StringBuilder();
+		position++;
+		while (true) {
+			if (position >= text.length()) {
+				throw error("Unterminated string");
+			}
+			char c = text.charAt(position++);
+			if (c == '"') {
+				return builder.toString();
+			}
+			if (c != '\\') {
+				builder.append(c);
+				continue;
+			}
+			if (position >= text.length()) {
+				throw error("Unterminated string");
+			}
+			char escaped = text.charAt(position++);
+			switch (escaped) {
+				case 'b':
+					builder.append('\b');
+					break;
+				case 'f':
+					builder.append('\f');
+					break;
+				case 'n':
+					builder.append('\n');
+					break;
+				case 'r':
+					builder.append('\r');
+					break;
+				case 't':
+					builder.append('\t');
+					break;
+				case 'u':
+					if (position + 4 > text.length()) {
+						throw error("Broken escape");
+					}
+					try {
+						builder.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("Broken escape");
+					}
+					position += 4;
+					break;
+				default:
+					builder.append(escaped);
+			}
+		}
+	}
+
+	private Object readLiteral(String literal, Object value) {
+		if (!text.startsWith(literal, position)) {
+			throw error("Unexpected value");
+		}
+		position += literal.length();
+		return value;
+	}
+
+	private Number readNumber() {
+		int start = position;
+		while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+			position++;
+		}
+		String number = text.substring(start, position);
+		try {
+			if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+				return Long.parseLong(number);
+			}
+			return Double.parseDouble(number);
+		} catch (NumberFormatException e) {
+			throw error("Unexpected value");
+		}
+	}
+
+	private void skipWhitespace() {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+	}
+
+	private char peek() {
+		if (position >= text.length()) {
+			throw error("Unexpected end");
+		}
+		return text.charAt(position);
+	}
+
+	private void expect(char c) {
+		if (peek() != c) {
+			throw error("Expected '" + c + "'");
+		}
+		position++;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at " + position + " of the JSON");
+	}
+}
@@ -0,0 +1,29 @@
+package ua.comparison.image;
+
+/**
+ * The distance of the luma of the pixels. The luma is counted in the integers as {@code 299 R + 587 G + 114 B},
+ * which is the Rec. 601 luma multiplied by 1000.
+ */
+final class LumaPixelDistance implements PixelDistance {
+
+	private static final int MAX_LUMA = 255 * 1000;
+
+	/**
+	 * The biggest luma distance which still means the pixels are equal.
+	 */
+	private final int maxEqualDistance;
+
+	LumaPixelDistance(double toleranceLevel) {
+		EuclideanPixelDistance.checkToleranceLevel(toleranceLevel);
+		this.maxEqualDistance = (int) Math.floor(toleranceLevel * MAX_LUMA);
+	}
+
+	@Override
+	public boolean isDifferent(int rgb1, int rgb2) {
+		return Math.abs(luma(rgb1) - luma(rgb2)) > maxEqualDistance;
+	}
+
+	static int luma(int rgb) {
+		return 299 * ((rgb >> 16) & 0xff) + 587 * ((rgb >> 8) & 0xff) + 114 * (rgb & 0xff);
+	}
+}
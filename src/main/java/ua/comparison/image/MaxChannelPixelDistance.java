@@ -0,0 +1,25 @@
+package ua.comparison.image;
+
+/**
+ * The distance in the biggest of the color channels.
+ */
+final class MaxChannelPixelDistance implements PixelDistance {
+
+	/**
+	 * The biggest channel distance which still means the pixels are equal.
+	 */
+	private final int maxEqualDistance;
+
+	MaxChannelPixelDistance(double toleranceLevel) {
+		EuclideanPixelDistance.checkToleranceLevel(toleranceLevel);
+		this.maxEqualDistance = (int) Math.floor(toleranceLevel * 255);
+	}
+
+	@Override
+	public boolean isDifferent(int rgb1, int rgb2) {
+		int red = Math.abs(((rgb1 >> 16) & 0xff) - ((rgb2 >> 16) & 0xff));
+		int green = Math.abs(((rgb1 >> 8) & 0xff) - ((rgb2 >> 8) & 0xff));
+		int blue = Math.abs((rgb1 & 0xff) - (rgb2 & 0xff));
+		return Math.max(red, Math.max(green, blue)) > maxEqualDistance;
+	}
+}
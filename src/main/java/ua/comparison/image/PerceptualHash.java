@@ -0,0 +1,48 @@
+package ua.comparison.image;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * The 64-bit hash of an image which is similar for similar images. The hashes are compared by the Hamming distance,
+ * see {@link #distance(long, long)}, so the images which are equal for the eye have the hashes with a few different
+ * bits. It's used to find the candidates for the full comparison by {@link ImageComparison}.
+ */
+@FunctionalInterface
+public interface PerceptualHash {
+
+	/**
+	 * Calculate the hash of the image.
+	 *
+	 * @param image
+	 * 		the {@link BufferedImage} object.
+	 * @return the hash.
+	 */
+	long hash(BufferedImage image);
+
+	/**
+	 * The average hash: the image is reduced to 8 x 8 cells, every bit says if the luma of its cell is above the
+	 * average luma of the image.
+	 *
+	 * @return the {@link PerceptualHash} object.
+	 */
+	static PerceptualHash average() {
+		return AverageHash.INSTANCE;
+	}
+
+	/**
+	 * The difference hash: the image is reduced to 9 x 8 cells, every bit says if the luma of a cell is below the luma
+	 * of its right neighbour. It's more robust to the changes of the brightness than the {@link #average()} hash.
+	 *
+	 * @return the {@link PerceptualHash} object.
+	 */
+	static PerceptualHash difference() {
+		return DifferenceHash.INSTANCE;
+	}
+
+	/**
+	 * @return the count of the different bits of the hashes.
+	 */
+	static int distance(long hash1, long hash2) {
+		return Long.bitCount(hash1 ^ hash2);
+	}
+}
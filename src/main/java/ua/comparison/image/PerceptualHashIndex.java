@@ -0,0 +1,279 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.ComparisonResult;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static ua.comparison.image.ImageComparisonTools.readImage;
+
+/**
+ * Index of image files by their {@link PerceptualHash}, which finds the files similar to an image without comparing
+ * it with all of them. It's the multi-index hashing: the 64 bits of the hashes are split into
+ * {@code maxDistance + 1} chunks, and every chunk has its own table of the files by the value of the chunk. Two hashes
+ * which differ in not more than {@code maxDistance} bits have at least one equal chunk, so a search looks only at the
+ * files which share a chunk with the searched hash, which is a small part of them for the random-like hashes.
+ * A search for a bigger distance checks all files.
+ * <p>
+ * The hashes only shortlist the candidates, {@link #findMatch(BufferedImage, int)} confirms them by the comparison of
+ * the pixels. The index is not thread-safe.
+ */
+public class PerceptualHashIndex {
+
+	/**
+	 * The default max distance of the indexed search.
+	 */
+	public static final int DEFAULT_MAX_DISTANCE = 8;
+	/**
+	 * The max count of the bits of the index of a table, the longer chunks are hashed into it.
+	 */
+	private static final int MAX_TABLE_BITS = 16;
+
+	private final PerceptualHash perceptualHash;
+	/**
+	 * The max distance of the indexed search.
+	 */
+	private final int maxDistance;
+	/**
+	 * The first bit of every chunk, with the end of the last one at the end.
+	 */
+	private final int[] chunkStarts;
+	/**
+	 * The tables of the chunks: the numbers of the files by the index of the value of the chunk.
+	 */
+	private final int[][][] tables;
+	/**
+	 * The hashes of the files of the tables, so a search reads them one after another.
+	 */
+	private final long[][][] tableHashes;
+	private final int[][] tableSizes;
+	/**
+	 * The rule which says if two pixels are different, for the confirmation of the candidates.
+	 */
+	private PixelDistance pixelDistance = PixelDistance.defaultDistance();
+	private long[] hashes = new long[16];
+	private File[] files = new File[16];
+	private int size;
+
+	/**
+	 * Create an index of the {@link PerceptualHash#difference()} hashes for the search within the
+	 * {@link #DEFAULT_MAX_DISTANCE}.
+	 */
+	public PerceptualHashIndex() {
+		this(PerceptualHash.difference(), DEFAULT_MAX_DISTANCE);
+	}
+
+	/**
+	 * @param perceptualHash
+	 * 		the hash of the images.
+	 * @param maxDistance
+	 * 		the max distance of the indexed search, between "0" and "63". The search for a bigger distance checks all
+	 * 		files. The smaller it is, the faster is the search.
+	 */
+	public PerceptualHashIndex(PerceptualHash perceptualHash, int maxDistance) {
+		if (maxDistance < 0 || maxDistance >= Long.SIZE) {
+			throw new IllegalArgumentException("The max distance should be between 0 and 63, but was " + maxDistance);
+		}
+		this.perceptualHash = perceptualHash;
+		this.maxDistance = maxDistance;
+		int chunks = maxDistance + 1;
+		chunkStarts = new int[chunks + 1];
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			chunkStarts[chunk + 1] = chunkStarts[chunk] + Long.SIZE / chunks + (chunk < Long.SIZE % chunks ? 1 : 0);
+		}
+		tables = new int[chunks][][];
+		tableHashes = new long[chunks][][];
+		tableSizes = new int[chunks][];
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			int tableBits = Math.min(chunkStarts[chunk + 1] - chunkStarts[chunk], MAX_TABLE_BITS);
+			tables[chunk] = new int[1 << tableBits][];
+			tableHashes[chunk] = new long[1 << tableBits][];
+			tableSizes[chunk] = new int[1 << tableBits];
+		}
+	}
+
+	/**
+	 * Set the rule which says if two pixels are different, for the confirmation of the candidates.
+	 *
+	 * @param pixelDistance
+	 * 		the {@link PixelDistance} object, {@link PixelDistance#defaultDistance()} by default.
+	 */
+	public void setPixelDistance(PixelDistance pixelDistance) {
+		this.pixelDistance = pixelDistance;
+	}
+
+	/**
+	 * Add the image file to the index.
+	 *
+	 * @param file
+	 * 		the image file.
+	 * @throws IOException
+	 * 		if the file can't be read.
+	 */
+	public void add(File file) throws IOException {
+		add(file, readImage(file));
+	}
+
+	/**
+	 * Add the image file which is already decoded to the index.
+	 *
+	 * @param file
+	 * 		the image file.
+	 * @param image
+	 * 		the decoded image of the file.
+	 */
+	public void add(File file, BufferedImage image) {
+		add(file, perceptualHash.hash(image));
+	}
+
+	/**
+	 * Add the image file with the known hash to the index, for example with the hash which is stored with the file.
+	 *
+	 * @param file
+	 * 		the image file.
+	 * @param hash
+	 * 		the hash of the image by the {@link PerceptualHash} of this index.
+	 */
+	public void add(File file, long hash) {
+		if (size == hashes.length) {
+			hashes = Arrays.copyOf(hashes, size * 2);
+			files = Arrays.copyOf(files, size * 2);
+		}
+		hashes[size] = hash;
+		files[size] = file;
+		for (int chunk = 0; chunk < tables.length; chunk++) {
+			int index = tableIndex(chunk, hash);
+			int[] entries = tables[chunk][index];
+			long[] entryHashes = tableHashes[chunk][index];
+			int count = tableSizes[chunk][index];
+			if (entries == null) {
+				entries = new int[2];
+				entryHashes = new long[2];
+			} else if (count == entries.length) {
+				entries = Arrays.copyOf(entries, count * 2);
+				entryHashes = Arrays.copyOf(entryHashes, count * 2);
+			}
+			entries[count] = size;
+			entryHashes[count] = hash;
+			tables[chunk][index] = entries;
+			tableHashes[chunk][index] = entryHashes;
+			tableSizes[chunk][index] = count + 1;
+		}
+		size++;
+	}
+
+	/**
+	 * @return the count of the files in the index.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Find the files whose hashes differ from the hash of the image in not more than the provided count of bits.
+	 *
+	 * @param image
+	 * 		the {@link BufferedImage} object.
+	 * @param maxDistance
+	 * 		the max count of the different bits of the hashes.
+	 * @return the files, the most similar first.
+	 */
+	public List<File> findCandidates(BufferedImage image, int maxDistance) {
+		return findCandidates(perceptualHash.hash(image), maxDistance);
+	}
+
+	/**
+	 * Find the files whose hashes differ from the provided hash in not more than the provided count of bits.
+	 *
+	 * @param hash
+	 * 		the hash by the {@link PerceptualHash} of this index.
+	 * @param maxDistance
+	 * 		the max count of the different bits of the hashes.
+	 * @return the files, the most similar first.
+	 */
+	public List<File> findCandidates(long hash, int maxDistance) {
+		// the files by their distance, so they are sorted by it
+		List<List<File>> byDistance = new ArrayList<>();
+		for (int distance = 0; distance <= Math.min(maxDistance, Long.SIZE); distance++) {
+			byDistance.add(new ArrayList<>());
+		}
+		if (maxDistance > this.maxDistance) {
+			for (int file = 0; file < size; file++) {
+				int distance = PerceptualHash.distance(hashes[file], hash);
+				if (distance <= maxDistance) {
+					byDistance.get(distance).add(files[file]);
+				}
+			}
+		} else {
+			for (int chunk = 0; chunk < tables.length; chunk++) {
+				int index = tableIndex(chunk, hash);
+				int[] entries = tables[chunk][index];
+				long[] entryHashes = tableHashes[chunk][index];
+				for (int i = 0; i < tableSizes[chunk][index]; i++) {
+					int distance = PerceptualHash.distance(entryHashes[i], hash);
+					// a file is taken only in the first chunk which is equal, so it's found once
+					if (distance <= maxDistance && firstEqualChunk(entryHashes[i], hash) == chunk) {
+						byDistance.get(distance).add(files[entries[i]]);
+					}
+				}
+			}
+		}
+		List<File> candidates = new ArrayList<>();
+		byDistance.forEach(candidates::addAll);
+		return candidates;
+	}
+
+	/**
+	 * Find the file of the image which matches the provided one. The candidates are found by the hashes and then
+	 * checked by {@link ImageComparison#quickCompareImages()}, the most similar first.
+	 *
+	 * @param image
+	 * 		the {@link BufferedImage} object.
+	 * @param maxDistance
+	 * 		the max count of the different bits of the hashes of the candidates.
+	 * @return the first candidate which matches, if any.
+	 * @throws IOException
+	 * 		if a candidate can't be read.
+	 */
+	public Optional<File> findMatch(BufferedImage image, int maxDistance) throws IOException {
+		for (File candidate : findCandidates(image, maxDistance)) {
+			ImageComparison imageComparison = new ImageComparison(image, readImage(candidate));
+			imageComparison.setPixelDistance(pixelDistance);
+			if (imageComparison.quickCompareImages().getCheckResult() == ComparisonResult.CheckResult.Match) {
+				return Optional.of(candidate);
+			}
+		}
+		return Optional.empty();
+	}
+
+	private long chunkValue(int chunk, long hash) {
+		int length = chunkStarts[chunk + 1] - chunkStarts[chunk];
+		return (hash >>> chunkStarts[chunk]) & (length == Long.SIZE ? -1L : (1L << length) - 1);
+	}
+
+	private int tableIndex(int chunk, long hash) {
+		long value = chunkValue(chunk, hash);
+		int mask = tables[chunk].length - 1;
+		if (value <= mask) {
+			return (int) value;
+		}
+		value *= 0x9E3779B97F4A7C15L;
+		return (int) (value >>> (Long.SIZE - MAX_TABLE_BITS)) & mask;
+	}
+
+	/**
+	 * @return the first chunk which is equal in both hashes, or the count of the chunks if there is no one.
+	 */
+	private int firstEqualChunk(long hash1, long hash2) {
+		int chunk = 0;
+		while (chunk < tables.length && chunkValue(chunk, hash1) != chunkValue(chunk, hash2)) {
+			chunk++;
+		}
+		return chunk;
+	}
+}
@@ -0,0 +1,67 @@
+package ua.comparison.image;
+
+/**
+ * The rule which says if two pixels are different. The implementations don't allocate anything per pixel,
+ * so the comparison loop stays free of the garbage. The pixels with the same RGB value are never different.
+ */
+@FunctionalInterface
+public interface PixelDistance {
+
+	/**
+	 * The default tolerance level: the pixels are different if they differ more than 10%.
+	 */
+	double DEFAULT_TOLERANCE_LEVEL = 0.1;
+
+	/**
+	 * Say if the two pixels are different.
+	 *
+	 * @param rgb1
+	 * 		the RGB value of the Pixel of the Image1.
+	 * @param rgb2
+	 * 		the RGB value of the Pixel of the Image2.
+	 * @return {@code true} if they' are difference, {@code false} otherwise.
+	 */
+	boolean isDifferent(int rgb1, int rgb2);
+
+	/**
+	 * The distance in the RGB space. The pixels are different if the distance between them is bigger than the
+	 * provided part of the distance between black and white.
+	 *
+	 * @param toleranceLevel
+	 * 		the part of the max distance, between "0" and "1".
+	 * @return the {@link PixelDistance} object.
+	 */
+	static PixelDistance euclidean(double toleranceLevel) {
+		return new EuclideanPixelDistance(toleranceLevel);
+	}
+
+	/**
+	 * The distance in the biggest of the color channels.
+	 *
+	 * @param toleranceLevel
+	 * 		the part of the max channel value, between "0" and "1".
+	 * @return the {@link PixelDistance} object.
+	 */
+	static PixelDistance maxChannel(double toleranceLevel) {
+		return new MaxChannelPixelDistance(toleranceLevel);
+	}
+
+	/**
+	 * The distance of the luma (Rec. 601) of the pixels, so only the brightness changes are found.
+	 *
+	 * @param toleranceLevel
+	 * 		the part of the max luma, between "0" and "1".
+	 * @return the {@link PixelDistance} object.
+	 */
+	static PixelDistance luma(double toleranceLevel) {
+		return new LumaPixelDistance(toleranceLevel);
+	}
+
+	/**
+	 * @return the default {@link PixelDistance}, the {@link #euclidean(double)} one with the
+	 * {@link #DEFAULT_TOLERANCE_LEVEL}.
+	 */
+	static PixelDistance defaultDistance() {
+		return EuclideanPixelDistance.DEFAULT;
+	}
+}
@@ -0,0 +1,273 @@
+package ua.comparison.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Reads whole rows of an image as packed RGB values, the same values as {@link BufferedImage#getRGB(int, int)}
+ * returns for the color channels. The common image types are read straight from the backing array of the raster,
+ * all other types are converted row by row by their {@link java.awt.image.ColorModel}.
+ */
+abstract class PixelRowReader {
+
+	private final int width;
+	private final int height;
+	/**
+	 * The number of the first row of the image.
+	 */
+	private int fromY;
+
+	PixelRowReader(BufferedImage image) {
+		this(image.getWidth(), image.getHeight());
+	}
+
+	PixelRowReader(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Create the fastest reader for the provided image.
+	 *
+	 * @param image
+	 * 		the image to be read.
+	 * @return the {@link PixelRowReader} object.
+	 */
+	static PixelRowReader forImage(BufferedImage image) {
+		return forImage(image, 0);
+	}
+
+	/**
+	 * Create the fastest reader for the provided band of a bigger image.
+	 *
+	 * @param image
+	 * 		the band to be read.
+	 * @param fromY
+	 * 		the number of the first row of the band in the bigger image. The rows are read by these numbers.
+	 * @return the {@link PixelRowReader} object.
+	 */
+	static PixelRowReader forImage(BufferedImage image, int fromY) {
+		PixelRowReader reader = createReader(image);
+		reader.fromY = fromY;
+		return reader;
+	}
+
+	/**
+	 * Create the reader of the mapped pixels of the raw image. The reader can be shared by several threads.
+	 *
+	 * @param image
+	 * 		the image to be read.
+	 * @return the {@link PixelRowReader} object.
+	 */
+	static PixelRowReader forImage(RawImage image) {
+		return new RawImageReader(image);
+	}
+
+	private static PixelRowReader createReader(BufferedImage image) {
+		switch (image.getType()) {
+			case BufferedImage.TYPE_INT_RGB:
+			case BufferedImage.TYPE_INT_ARGB:
+				return new IntRgbReader(image);
+			case BufferedImage.TYPE_INT_BGR:
+				return new IntBgrReader(image);
+			case BufferedImage.TYPE_3BYTE_BGR:
+			case BufferedImage.TYPE_4BYTE_ABGR:
+				return new InterleavedByteReader(image);
+			default:
+				return new ColorModelReader(image);
+		}
+	}
+
+	/**
+	 * Read one row of the image.
+	 *
+	 * @param y
+	 * 		the number of the row.
+	 * @param rgb
+	 * 		the destination of the pixels, at least as long as the width of the image. Only the lowest 24 bits of the
+	 * 		values are the color, the highest ones are undefined.
+	 */
+	final void readRow(int y, int[] rgb) {
+		readRow(y, 0, width, rgb);
+	}
+
+	/**
+	 * Read a part of one row of the image.
+	 *
+	 * @param y
+	 * 		the number of the row.
+	 * @param x
+	 * 		the first column to be read.
+	 * @param width
+	 * 		the count of the columns to be read.
+	 * @param rgb
+	 * 		the destination of the pixels, beginning from index "0". Only the lowest 24 bits of the values are the
+	 * 		color, the highest ones are undefined.
+	 */
+	final void readRow(int y, int x, int width, int[] rgb) {
+		readImageRow(y - fromY, x, width, rgb);
+	}
+
+	/**
+	 * Read a part of one row, the rows are numbered from "0" in the image.
+	 *
+	 * @see #readRow(int, int, int, int[])
+	 */
+	abstract void readImageRow(int y, int x, int width, int[] rgb);
+
+	/**
+	 * @return the width of the image.
+	 */
+	final int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the last row of the image, exclusive. It's the height of the image if it's not a band.
+	 */
+	final int getToY() {
+		return fromY + height;
+	}
+
+	/**
+	 * Base of the readers of the images where every pixel is one int.
+	 */
+	private abstract static class PackedIntReader extends PixelRowReader {
+
+		final int[] data;
+		final int offset;
+		final int scanlineStride;
+
+		PackedIntReader(BufferedImage image) {
+			super(image);
+			WritableRaster raster = image.getRaster();
+			DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+			SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+			this.data = dataBuffer.getData();
+			this.scanlineStride = sampleModel.getScanlineStride();
+			this.offset = dataBuffer.getOffset()
+					- raster.getSampleModelTranslateY() * scanlineStride
+					- raster.getSampleModelTranslateX();
+		}
+	}
+
+	/**
+	 * Reader of the images where every pixel is one int in the 0x(AA)RRGGBB format.
+	 */
+	private static final class IntRgbReader extends PackedIntReader {
+
+		IntRgbReader(BufferedImage image) {
+			super(image);
+		}
+
+		@Override
+		void readImageRow(int y, int x, int width, int[] rgb) {
+			System.arraycopy(data, offset + y * scanlineStride + x, rgb, 0, width);
+		}
+	}
+
+	/**
+	 * Reader of the images where every pixel is one int in the 0x00BBGGRR format.
+	 */
+	private static final class IntBgrReader extends PackedIntReader {
+
+		IntBgrReader(BufferedImage image) {
+			super(image);
+		}
+
+		@Override
+		void readImageRow(int y, int x, int width, int[] rgb) {
+			int index = offset + y * scanlineStride + x;
+			for (int i = 0; i < width; i++, index++) {
+				int bgr = data[index];
+				rgb[i] = (bgr & 0xff) << 16 | bgr & 0xff00 | (bgr >> 16) & 0xff;
+			}
+		}
+	}
+
+	/**
+	 * Reader of the images where every pixel is a group of bytes, like {@link BufferedImage#TYPE_3BYTE_BGR}
+	 * and {@link BufferedImage#TYPE_4BYTE_ABGR}.
+	 */
+	private static final class InterleavedByteReader extends PixelRowReader {
+
+		private final byte[] data;
+		private final int offset;
+		private final int scanlineStride;
+		private final int pixelStride;
+		private final int redOffset;
+		private final int greenOffset;
+		private final int blueOffset;
+
+		InterleavedByteReader(BufferedImage image) {
+			super(image);
+			WritableRaster raster = image.getRaster();
+			DataBufferByte dataBuffer = (DataBufferByte) raster.getDataBuffer();
+			ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+			int[] bandOffsets = sampleModel.getBandOffsets();
+			this.data = dataBuffer.getData();
+			this.scanlineStride = sampleModel.getScanlineStride();
+			this.pixelStride = sampleModel.getPixelStride();
+			this.offset = dataBuffer.getOffset()
+					- raster.getSampleModelTranslateY() * scanlineStride
+					- raster.getSampleModelTranslateX() * pixelStride;
+			this.redOffset = bandOffsets[0];
+			this.greenOffset = bandOffsets[1];
+			this.blueOffset = bandOffsets[2];
+		}
+
+		@Override
+		void readImageRow(int y, int x, int width, int[] rgb) {
+			int index = offset + y * scanlineStride + x * pixelStride;
+			for (int i = 0; i < width; i++, index += pixelStride) {
+				rgb[i] = (data[index + redOffset] & 0xff) << 16
+						| (data[index + greenOffset] & 0xff) << 8
+						| data[index + blueOffset] & 0xff;
+			}
+		}
+
+	}
+
+	/**
+	 * Reader of any other image. The pixels are converted by the {@link java.awt.image.ColorModel} of the image,
+	 * but a whole row at once.
+	 */
+	private static final class ColorModelReader extends PixelRowReader {
+
+		private final BufferedImage image;
+
+		ColorModelReader(BufferedImage image) {
+			super(image);
+			this.image = image;
+		}
+
+		@Override
+		void readImageRow(int y, int x, int width, int[] rgb) {
+			image.getRGB(x, y, width, 1, rgb, 0, width);
+		}
+
+	}
+
+	/**
+	 * Reader of the {@link RawImage}, the pixels are copied straight from the mapped file.
+	 */
+	private static final class RawImageReader extends PixelRowReader {
+
+		private final RawImage image;
+
+		RawImageReader(RawImage image) {
+			super(image.getWidth(), image.getHeight());
+			this.image = image;
+		}
+
+		@Override
+		void readImageRow(int y, int x, int width, int[] rgb) {
+			image.readRow(y, x, width, rgb);
+		}
+
+	}
+}
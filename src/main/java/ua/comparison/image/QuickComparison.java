@@ -0,0 +1,163 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Check if two images match, stopping at the first difference. The rows which are equal bit by bit are skipped
+ * without checking their pixels, so a match costs one sequential scan of the images and a mismatch usually
+ * much less.
+ */
+final class QuickComparison {
+
+	private final PixelDistance pixelDistance;
+	private final int threshold;
+	/**
+	 * If the regions are joined by the {@link DilationLabeler}, so the neighbours are searched in the whole square
+	 * around a pixel, not only along the lines.
+	 */
+	private final boolean dilation;
+
+	/**
+	 * @param pixelDistance
+	 * 		the rule which says if two pixels are different.
+	 * @param threshold
+	 * 		the max distance between the pixels of the same region.
+	 */
+	QuickComparison(PixelDistance pixelDistance, int threshold) {
+		this(pixelDistance, threshold, false);
+	}
+
+	/**
+	 * @param dilation
+	 * 		if the regions are joined by the {@link DilationLabeler}, see {@link ComparisonOptions#withDilation(boolean)}.
+	 * @see #QuickComparison(PixelDistance, int)
+	 */
+	QuickComparison(PixelDistance pixelDistance, int threshold, boolean dilation) {
+		this.pixelDistance = pixelDistance;
+		this.threshold = threshold;
+		this.dilation = dilation;
+	}
+
+	/**
+	 * Find the first difference of the images of the same size.
+	 *
+	 * @param image1
+	 *        {@link BufferedImage} object of the first image.
+	 * @param image2
+	 *        {@link BufferedImage} object of the second image.
+	 * @param singlePixels
+	 * 		if a single different pixel without any different neighbour is a difference.
+	 * 		Such pixels make the rectangles of size "0".
+	 * @return the rectangle which covers the first different pixel, and its different neighbour if the single pixels
+	 * are not differences. {@code null} if there is no difference.
+	 */
+	Rectangle findFirstDifference(BufferedImage image1, BufferedImage image2, boolean singlePixels) {
+		if (sharePixels(image1, image2)) {
+			return null;
+		}
+		PixelRowReader reader1 = PixelRowReader.forImage(image1);
+		PixelRowReader reader2 = PixelRowReader.forImage(image2);
+		int width = image1.getWidth();
+		int[] row1 = new int[width];
+		int[] row2 = new int[width];
+		for (int y = 0; y < image1.getHeight(); y++) {
+			reader1.readRow(y, row1);
+			reader2.readRow(y, row2);
+			if (Arrays.equals(row1, row2)) {
+				continue;
+			}
+			for (int x = 0; x < width; x++) {
+				if (!pixelDistance.isDifferent(row1[x], row2[x])) {
+					continue;
+				}
+				RegionBounds bounds = new RegionBounds(1);
+				bounds.add(bounds.addRegion(), x, y);
+				if (singlePixels || addDifferentNeighbour(bounds, reader1, reader2, x, y)) {
+					return bounds.toRectangle(0);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Check if the images are backed by the same pixels, for example if it's the same image twice.
+	 */
+	static boolean sharePixels(BufferedImage image1, BufferedImage image2) {
+		if (image1 == image2) {
+			return true;
+		}
+		WritableRaster raster1 = image1.getRaster();
+		WritableRaster raster2 = image2.getRaster();
+		return raster1.getDataBuffer() == raster2.getDataBuffer()
+				&& raster1.getSampleModelTranslateX() == raster2.getSampleModelTranslateX()
+				&& raster1.getSampleModelTranslateY() == raster2.getSampleModelTranslateY()
+				&& raster1.getSampleModel().equals(raster2.getSampleModel())
+				&& image1.getColorModel().equals(image2.getColorModel());
+	}
+
+	/**
+	 * Find a different pixel which is in the same region as the provided one, in any of the directions which are
+	 * used by the {@link RegionLabeler}, or anywhere in the square of the threshold for the dilation.
+	 *
+	 * @return {@code true} if it's found and added to the bounds.
+	 */
+	private boolean addDifferentNeighbour(RegionBounds bounds, PixelRowReader reader1, PixelRowReader reader2, int x, int y) {
+		if (dilation) {
+			return addDifferentNeighbourInSquare(bounds, reader1, reader2, x, y);
+		}
+		int[] pixel1 = new int[1];
+		int[] pixel2 = new int[1];
+		for (int stepY = -1; stepY <= 1; stepY++) {
+			for (int stepX = -1; stepX <= 1; stepX++) {
+				if (stepX == 0 && stepY == 0) {
+					continue;
+				}
+				for (int i = 1; i <= threshold; i++) {
+					int neighbourX = x + stepX * i;
+					int neighbourY = y + stepY * i;
+					if (neighbourX < 0 || neighbourY < 0 || neighbourX >= reader1.getWidth() || neighbourY >= reader1.getToY()) {
+						break;
+					}
+					reader1.readRow(neighbourY, neighbourX, 1, pixel1);
+					reader2.readRow(neighbourY, neighbourX, 1, pixel2);
+					if (pixelDistance.isDifferent(pixel1[0], pixel2[0])) {
+						bounds.add(0, neighbourX, neighbourY);
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Find a different pixel which is not farther than the threshold by both the columns and the rows, which is in
+	 * the same region for the {@link DilationLabeler}.
+	 *
+	 * @return {@code true} if it's found and added to the bounds.
+	 */
+	private boolean addDifferentNeighbourInSquare(RegionBounds bounds, PixelRowReader reader1, PixelRowReader reader2,
+			int x, int y) {
+		int fromX = Math.max(x - threshold, 0);
+		int toX = Math.min(x + threshold + 1, reader1.getWidth());
+		int[] row1 = new int[toX - fromX];
+		int[] row2 = new int[toX - fromX];
+		for (int neighbourY = Math.max(y - threshold, 0); neighbourY < Math.min(y + threshold + 1, reader1.getToY()); neighbourY++) {
+			reader1.readRow(neighbourY, fromX, toX - fromX, row1);
+			reader2.readRow(neighbourY, fromX, toX - fromX, row2);
+			for (int neighbourX = fromX; neighbourX < toX; neighbourX++) {
+				if ((neighbourX != x || neighbourY != y)
+						&& pixelDistance.isDifferent(row1[neighbourX - fromX], row2[neighbourX - fromX])) {
+					bounds.add(0, neighbourX, neighbourY);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,244 @@
+package ua.comparison.image;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A decoded image stored as raw pixels, so a baseline is decoded once and then only mapped to the memory by
+ * {@link #open(File)}. The pixels are read straight from the mapped file by the {@link ImageComparator}, without
+ * a copy on the heap, and the page cache shares the file between all processes which compare with it.
+ * <p>
+ * The file is a header of four ints: a magic number, the version, the width and the height, and two longs: the length
+ * and the time of the last modification of the image file it was converted from, "-1" if it's not known. The pixels
+ * follow row after row, every pixel is one int in the 0xAARRGGBB format. All numbers are little-endian.
+ * <p>
+ * Every {@link #open(File)} maps the file again and a mapping is released only by the garbage collector, so the files
+ * which are opened many times should be kept in a {@link RawImageCache}.
+ */
+public final class RawImage {
+
+	/**
+	 * The extension of the raw file of an image, which is added to the name of the image.
+	 */
+	public static final String FILE_EXTENSION = ".argb";
+
+	private static final int MAGIC = 0x49434152;
+	private static final int VERSION = 2;
+	private static final int HEADER_BYTES = 4 * Integer.BYTES + 2 * Long.BYTES;
+
+	private final int width;
+	private final int height;
+	/**
+	 * The length of the image file which was converted, "-1" if it's not known.
+	 */
+	private final long imageLength;
+	/**
+	 * The time of the last modification of the image file which was converted, "-1" if it's not known.
+	 */
+	private final long imageLastModified;
+	/**
+	 * The mapped pixels, row after row. Only the duplicates are read, so the position of this buffer never changes.
+	 */
+	private final IntBuffer pixels;
+
+	private RawImage(int width, int height, long imageLength, long imageLastModified, IntBuffer pixels) {
+		this.width = width;
+		this.height = height;
+		this.imageLength = imageLength;
+		this.imageLastModified = imageLastModified;
+		this.pixels = pixels;
+	}
+
+	/**
+	 * Map the raw file to the memory. The file stays mapped until this object is garbage collected.
+	 *
+	 * @param file
+	 * 		the raw file.
+	 * @return the {@link RawImage} object.
+	 * @throws IOException
+	 * 		if the file can't be read or it's not a raw file.
+	 */
+	public static RawImage open(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_BYTES) {
+				throw new IOException("Not a raw image file: " + file);
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// read the whole header
+			}
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("Not a raw image file: " + file);
+			}
+			int width = header.getInt();
+			int height = header.getInt();
+			long imageLength = header.getLong();
+			long imageLastModified = header.getLong();
+			if (width < 0 || height < 0 || size != HEADER_BYTES + (long) width * height * Integer.BYTES) {
+				throw new IOException("Corrupted raw image file: " + file);
+			}
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("The raw image file is too big to be mapped: " + file);
+			}
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, size - HEADER_BYTES);
+			return new RawImage(width, height, imageLength, imageLastModified,
+					mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer());
+		}
+	}
+
+	/**
+	 * Open the raw file of the baseline, or convert the baseline to it if the file is missing or it was converted from
+	 * another length or time of the last modification of the baseline, the same as the key of the
+	 * {@link DecodedImageCache}.
+	 *
+	 * @param baseline
+	 * 		the image file.
+	 * @return the {@link RawImage} object.
+	 * @throws IOException
+	 * 		if the baseline can't be read or the raw file can't be written.
+	 */
+	public static RawImage forBaseline(File baseline) throws IOException {
+		// the attributes are read before the image, a baseline which changes meanwhile is converted again next time
+		BasicFileAttributes attributes = Files.readAttributes(baseline.toPath(), BasicFileAttributes.class);
+		long length = attributes.size();
+		long lastModified = attributes.lastModifiedTime().toMillis();
+		File rawFile = getRawFile(baseline);
+		if (rawFile.isFile()) {
+			try {
+				RawImage stored = open(rawFile);
+				if (stored.imageLength == length && stored.imageLastModified == lastModified) {
+					return stored;
+				}
+			} catch (IOException e) {
+				// a raw file of an older version or a broken one is written again
+			}
+		}
+		write(ImageComparisonTools.readImage(baseline), rawFile, length, lastModified);
+		return open(rawFile);
+	}
+
+	/**
+	 * @return the raw file of the image file, next to it.
+	 */
+	public static File getRawFile(File image) {
+		return new File(image.getPath() + FILE_EXTENSION);
+	}
+
+	/**
+	 * Write the image to the raw file. The file is written under a temporary name and then renamed, so the other
+	 * processes never map a partly written file.
+	 *
+	 * @param image
+	 * 		the {@link BufferedImage} object.
+	 * @param file
+	 * 		the raw file.
+	 * @throws IOException
+	 * 		if the file can't be written.
+	 */
+	public static void write(BufferedImage image, File file) throws IOException {
+		write(image, file, -1, -1);
+	}
+
+	/**
+	 * @param imageLength
+	 * 		the length of the image file, "-1" if it's not known.
+	 * @param imageLastModified
+	 * 		the time of the last modification of the image file, "-1" if it's not known.
+	 * @see #write(BufferedImage, File)
+	 */
+	private static void write(BufferedImage image, File file, long imageLength, long imageLastModified) throws IOException {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		Path target = file.getAbsoluteFile().toPath();
+		Path temporary = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.allocate(Math.max(HEADER_BYTES, width * Integer.BYTES))
+						.order(ByteOrder.LITTLE_ENDIAN);
+				buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putLong(imageLength).putLong(imageLastModified);
+				writeFully(channel, buffer);
+				PixelRowReader reader = PixelRowReader.forImage(image);
+				int[] row = new int[width];
+				boolean hasAlpha = image.getColorModel().hasAlpha();
+				for (int y = 0; y < height; y++) {
+					if (hasAlpha) {
+						image.getRGB(0, y, width, 1, row, 0, width);
+					} else {
+						reader.readRow(y, row);
+						for (int x = 0; x < width; x++) {
+							row[x] |= 0xff000000;
+						}
+					}
+					buffer.asIntBuffer().put(row);
+					buffer.position(width * Integer.BYTES);
+					writeFully(channel, buffer);
+				}
+			}
+			Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Read a part of one row of the image. It can be called by several threads at once.
+	 *
+	 * @param y
+	 * 		the number of the row.
+	 * @param x
+	 * 		the first column to be read.
+	 * @param width
+	 * 		the count of the columns to be read.
+	 * @param argb
+	 * 		the destination of the pixels, beginning from index "0".
+	 */
+	void readRow(int y, int x, int width, int[] argb) {
+		IntBuffer row = pixels.duplicate();
+		row.position(y * this.width + x);
+		row.get(argb, 0, width);
+	}
+
+	/**
+	 * Copy the pixels to a new image of {@link BufferedImage#TYPE_INT_ARGB}.
+	 *
+	 * @return the {@link BufferedImage} object.
+	 */
+	public BufferedImage toBufferedImage() {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			readRow(y, 0, width, row);
+			image.setRGB(0, y, width, 1, row, 0, width);
+		}
+		return image;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+}
@@ -0,0 +1,139 @@
+package ua.comparison.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Cache of the opened {@link RawImage} files, so a raw file which is compared many times is mapped once. Java 8 can't
+ * unmap a file, a mapping is released only when its {@link RawImage} is garbage collected, so without the cache every
+ * comparison adds a mapping and a busy process can run out of them.
+ * <p>
+ * A file is found by its path, the time of the last modification and the length, the same as in the
+ * {@link DecodedImageCache}, so a changed file is mapped again. The least recently used files are evicted when there
+ * are more than the max count of them. The cache is thread-safe, but two threads which miss the same file at once
+ * both map it.
+ */
+public class RawImageCache {
+
+	/**
+	 * The max count of the cached files.
+	 */
+	private final int maxImages;
+	/**
+	 * The files in the order of the access, the least recently used first.
+	 */
+	private final LinkedHashMap<Path, Entry> images = new LinkedHashMap<>(16, 0.75f, true);
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	/**
+	 * @param maxImages
+	 * 		the max count of the cached files.
+	 */
+	public RawImageCache(int maxImages) {
+		if (maxImages < 0) {
+			throw new IllegalArgumentException("The max images should not be negative, but was " + maxImages);
+		}
+		this.maxImages = maxImages;
+	}
+
+	/**
+	 * Take the mapped file from the cache or map it.
+	 *
+	 * @param file
+	 * 		the raw file.
+	 * @return the {@link RawImage} object.
+	 * @throws IOException
+	 * 		if the file can't be read or it's not a raw file.
+	 * @see RawImage#open(File)
+	 */
+	public RawImage open(File file) throws IOException {
+		Path path = file.toPath().toAbsolutePath().normalize();
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		long lastModified = attributes.lastModifiedTime().toMillis();
+		long length = attributes.size();
+		synchronized (this) {
+			Entry entry = images.get(path);
+			if (entry != null && entry.lastModified == lastModified && entry.length == length) {
+				hitCount++;
+				return entry.image;
+			}
+			missCount++;
+		}
+
+		RawImage image = RawImage.open(path.toFile());
+		put(path, new Entry(lastModified, length, image));
+		return image;
+	}
+
+	private synchronized void put(Path path, Entry entry) {
+		// the older version of the file is replaced
+		images.put(path, entry);
+		Iterator<Entry> eldest = images.values().iterator();
+		while (images.size() > maxImages) {
+			eldest.next();
+			eldest.remove();
+			evictionCount++;
+		}
+	}
+
+	/**
+	 * Remove all files, they are unmapped when their {@link RawImage} objects are garbage collected.
+	 */
+	public synchronized void clear() {
+		images.clear();
+	}
+
+	/**
+	 * @return the count of the cached files.
+	 */
+	public synchronized int size() {
+		return images.size();
+	}
+
+	/**
+	 * @return how many times a file was found in the cache.
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return how many times a file was mapped.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return how many files were removed to keep the max count.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "RawImageCache{" + "images=" + images.size() + ", hits=" + hitCount + ", misses=" + missCount
+				+ ", evictions=" + evictionCount + '}';
+	}
+
+	private static final class Entry {
+
+		private final long lastModified;
+		private final long length;
+		private final RawImage image;
+
+		private Entry(long lastModified, long length, RawImage image) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.image = image;
+		}
+	}
+}
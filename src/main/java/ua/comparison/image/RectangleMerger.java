@@ -0,0 +1,109 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.Rectangle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import static java.util.Comparator.comparingInt;
+
+/**
+ * Merge the overlapping or close rectangles into their bounding rectangles. The rectangles are swept in the order of
+ * their {@link Rectangle#getMinX()}, every one is checked only against the active rectangles, the ones which reach
+ * its {@code minX}.
+ * <p>
+ * All active rectangles reach the {@code minX} of the swept one, so every two of them overlap by X and, as they are
+ * merged, they never overlap by Y. So the active rectangles are kept in a map ordered by their {@code minY}, and a
+ * swept rectangle visits only its neighbours by Y, which are closer than the gap. The passed rectangles are found
+ * in a queue ordered by their {@code maxX}. One sweep takes O(n log n).
+ * <p>
+ * A merged rectangle can grow back over the already passed ones, so the sweep is repeated until it merges nothing,
+ * which is usually after one or two more sweeps.
+ */
+final class RectangleMerger {
+
+	private RectangleMerger() {
+	}
+
+	/**
+	 * Merge the rectangles until no two of them overlap.
+	 *
+	 * @param rectangles
+	 * 		the rectangles, they are not modified.
+	 * @param gap
+	 * 		the max count of the pixels between two rectangles which are merged, "0" means they should overlap or touch.
+	 * @return the merged rectangles, in the order of their {@code minX} and {@code minY}.
+	 * @see Rectangle#isOverlapping(Rectangle, int)
+	 */
+	static List<Rectangle> merge(List<Rectangle> rectangles, int gap) {
+		if (gap < 0) {
+			throw new IllegalArgumentException("The gap should not be negative, but was " + gap);
+		}
+		List<Rectangle> merged = new ArrayList<>(rectangles.size());
+		for (Rectangle rectangle : rectangles) {
+			merged.add(copy(rectangle));
+		}
+		boolean changed = true;
+		while (changed) {
+			merged.sort(comparingInt(Rectangle::getMinX));
+			List<Rectangle> passed = new ArrayList<>(merged.size());
+			TreeMap<Integer, Rectangle> active = new TreeMap<>();
+			// the active rectangles and the merged ones, which are skipped
+			PriorityQueue<Rectangle> ends = new PriorityQueue<>(comparingInt(Rectangle::getMaxX));
+			changed = false;
+			for (Rectangle rectangle : merged) {
+				// no next rectangle can reach them
+				while (!ends.isEmpty() && (long) ends.peek().getMaxX() + gap + 1 < rectangle.getMinX()) {
+					Rectangle other = ends.poll();
+					if (active.get(other.getMinY()) == other) {
+						active.remove(other.getMinY());
+						passed.add(other);
+					}
+				}
+				changed |= mergeActive(rectangle, active, gap);
+				active.put(rectangle.getMinY(), rectangle);
+				ends.add(rectangle);
+			}
+			passed.addAll(active.values());
+			merged = passed;
+		}
+		merged.sort(comparingInt(Rectangle::getMinX).thenComparingInt(Rectangle::getMinY));
+		return merged;
+	}
+
+	/**
+	 * Merge the active rectangles which overlap the provided one into it, also the ones which overlap it only after
+	 * it grows. The active rectangles which overlap it by Y follow one another in the map.
+	 *
+	 * @return {@code true} if any rectangle is merged.
+	 */
+	private static boolean mergeActive(Rectangle rectangle, TreeMap<Integer, Rectangle> active, int gap) {
+		boolean changed = false;
+		boolean grown = true;
+		while (grown) {
+			grown = false;
+			// the last active rectangle which begins before the end of this one
+			Map.Entry<Integer, Rectangle> entry = active.floorEntry((int) Math.min((long) rectangle.getMaxY() + gap + 1, Integer.MAX_VALUE));
+			while (entry != null && rectangle.isOverlapping(entry.getValue(), gap)) {
+				rectangle.extendTo(entry.getValue());
+				active.remove(entry.getKey());
+				grown = true;
+				changed = true;
+				entry = active.lowerEntry(entry.getKey());
+			}
+		}
+		return changed;
+	}
+
+	private static Rectangle copy(Rectangle rectangle) {
+		Rectangle copy = new Rectangle();
+		copy.setMinX(rectangle.getMinX());
+		copy.setMinY(rectangle.getMinY());
+		copy.setMaxX(rectangle.getMaxX());
+		copy.setMaxY(rectangle.getMaxY());
+		return copy;
+	}
+}
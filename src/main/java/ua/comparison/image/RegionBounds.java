@@ -0,0 +1,219 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact table of the bounds of the labeled regions. Every region takes {@value #FIELDS} ints: the min and the max
+ * image coordinates and the count of its pixels. The regions are numbered from 0.
+ */
+final class RegionBounds {
+
+	private static final int FIELDS = 5;
+	private static final int MIN_X = 0;
+	private static final int MIN_Y = 1;
+	private static final int MAX_X = 2;
+	private static final int MAX_Y = 3;
+	private static final int PIXELS = 4;
+
+	private int[] table;
+	/**
+	 * The count of the regions.
+	 */
+	private int size;
+
+	RegionBounds() {
+		this(16);
+	}
+
+	RegionBounds(int capacity) {
+		table = new int[Math.max(capacity, 1) * FIELDS];
+	}
+
+	/**
+	 * Add a new empty region.
+	 *
+	 * @return the number of the new region.
+	 */
+	int addRegion() {
+		if ((size + 1) * FIELDS > table.length) {
+			table = Arrays.copyOf(table, table.length * 2);
+		}
+		int offset = size * FIELDS;
+		table[offset + MIN_X] = Integer.MAX_VALUE;
+		table[offset + MIN_Y] = Integer.MAX_VALUE;
+		table[offset + MAX_X] = Integer.MIN_VALUE;
+		table[offset + MAX_Y] = Integer.MIN_VALUE;
+		table[offset + PIXELS] = 0;
+		return size++;
+	}
+
+	/**
+	 * Extend the bounds of the region to cover the pixel.
+	 *
+	 * @param region
+	 * 		the number of the region.
+	 * @param x
+	 * 		the x coordinate of the pixel in the image.
+	 * @param y
+	 * 		the y coordinate of the pixel in the image.
+	 */
+	void add(int region, int x, int y) {
+		int offset = region * FIELDS;
+		if (x < table[offset + MIN_X]) {
+			table[offset + MIN_X] = x;
+		}
+		if (x > table[offset + MAX_X]) {
+			table[offset + MAX_X] = x;
+		}
+		if (y < table[offset + MIN_Y]) {
+			table[offset + MIN_Y] = y;
+		}
+		if (y > table[offset + MAX_Y]) {
+			table[offset + MAX_Y] = y;
+		}
+		table[offset + PIXELS]++;
+	}
+
+	/**
+	 * Extend the bounds of the region to cover a run of pixels in one row.
+	 *
+	 * @param region
+	 * 		the number of the region.
+	 * @param fromX
+	 * 		the x coordinate of the first pixel of the run.
+	 * @param toX
+	 * 		the x coordinate of the last pixel of the run, inclusive.
+	 * @param y
+	 * 		the y coordinate of the row.
+	 */
+	void addRun(int region, int fromX, int toX, int y) {
+		int offset = region * FIELDS;
+		if (fromX < table[offset + MIN_X]) {
+			table[offset + MIN_X] = fromX;
+		}
+		if (toX > table[offset + MAX_X]) {
+			table[offset + MAX_X] = toX;
+		}
+		if (y < table[offset + MIN_Y]) {
+			table[offset + MIN_Y] = y;
+		}
+		if (y > table[offset + MAX_Y]) {
+			table[offset + MAX_Y] = y;
+		}
+		table[offset + PIXELS] += toX - fromX + 1;
+	}
+
+	/**
+	 * Extend the bounds of the region to cover a region of other bounds.
+	 *
+	 * @param region
+	 * 		the number of the region.
+	 * @param other
+	 * 		the other bounds.
+	 * @param otherRegion
+	 * 		the number of the region in the other bounds.
+	 */
+	void merge(int region, RegionBounds other, int otherRegion) {
+		int offset = region * FIELDS;
+		int otherOffset = otherRegion * FIELDS;
+		table[offset + MIN_X] = Math.min(table[offset + MIN_X], other.table[otherOffset + MIN_X]);
+		table[offset + MIN_Y] = Math.min(table[offset + MIN_Y], other.table[otherOffset + MIN_Y]);
+		table[offset + MAX_X] = Math.max(table[offset + MAX_X], other.table[otherOffset + MAX_X]);
+		table[offset + MAX_Y] = Math.max(table[offset + MAX_Y], other.table[otherOffset + MAX_Y]);
+		table[offset + PIXELS] += other.table[otherOffset + PIXELS];
+	}
+
+	/**
+	 * Add copies of all regions of other bounds after the regions of these ones, in the same order.
+	 *
+	 * @param other
+	 * 		the other bounds.
+	 */
+	void addAll(RegionBounds other) {
+		int length = (size + other.size) * FIELDS;
+		if (length > table.length) {
+			table = Arrays.copyOf(table, Math.max(length, table.length * 2));
+		}
+		System.arraycopy(other.table, 0, table, size * FIELDS, other.size * FIELDS);
+		size += other.size;
+	}
+
+	/**
+	 * Remove all regions, the table keeps its capacity.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return the count of the regions.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the count of the pixels of the region.
+	 */
+	int getPixelCount(int region) {
+		return table[region * FIELDS + PIXELS];
+	}
+
+	/**
+	 * @return the count of the pixels of all regions.
+	 */
+	long getTotalPixelCount() {
+		long count = 0;
+		for (int region = 0; region < size; region++) {
+			count += table[region * FIELDS + PIXELS];
+		}
+		return count;
+	}
+
+	/**
+	 * @return the count of the bytes of the table.
+	 */
+	long getByteCount() {
+		return (long) table.length * Integer.BYTES;
+	}
+
+	/**
+	 * Create the {@link Rectangle} of the region. The {@link Rectangle} keeps the rows of the image in its X
+	 * and the columns in its Y, the same way as it's drawn by {@link ImageComparison#getImageComparison()}.
+	 *
+	 * @param region
+	 * 		the number of the region.
+	 * @return the {@link Rectangle} object.
+	 */
+	Rectangle toRectangle(int region) {
+		int offset = region * FIELDS;
+		Rectangle rectangle = new Rectangle();
+		rectangle.setMinX(table[offset + MIN_Y]);
+		rectangle.setMinY(table[offset + MIN_X]);
+		rectangle.setMaxX(table[offset + MAX_Y]);
+		rectangle.setMaxY(table[offset + MAX_X]);
+		return rectangle;
+	}
+
+	/**
+	 * Create the {@link Rectangle} objects of all regions which are not smaller than the provided size.
+	 *
+	 * @param minimumRectangleSize
+	 * 		the minimum size of a rectangle.
+	 * @return the list of the rectangles in the order of the regions.
+	 */
+	List<Rectangle> toRectangles(int minimumRectangleSize) {
+		List<Rectangle> rectangles = new ArrayList<>();
+		for (int region = 0; region < size; region++) {
+			Rectangle rectangle = toRectangle(region);
+			if (rectangle.getSize() >= minimumRectangleSize) {
+				rectangles.add(rectangle);
+			}
+		}
+		return rectangles;
+	}
+}
@@ -0,0 +1,379 @@
+package ua.comparison.image;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Two-pass connected-component labeling of the {@link DifferenceMask}.
+ * <p>
+ * Two difference pixels belong to the same region if they lie on the same row, column or diagonal and the
+ * distance between them is not bigger than the {@code threshold}. The first pass gives every pixel a provisional
+ * label taken from its already visited neighbours, records the equivalences in a {@link UnionFind} and collects the
+ * bounds of every provisional label. The second pass joins the bounds of the equivalent labels into the regions.
+ * <p>
+ * The labels of the pixels are needed only while the next {@code threshold} rows are labeled, so they are kept in a
+ * small window of rows instead of a matrix of the size of the image.
+ * <p>
+ * The mask can be split into {@link Strip strips} of rows, which are labeled independently, for example in
+ * parallel. The labels which meet on the seams of the strips are joined by {@link #joinStrips()}, so the result
+ * doesn't depend on the count of the strips. Every strip can have its own mask, which should contain also the
+ * {@code threshold} rows before the strip. When the strips are joined one after another, only the last strips are
+ * kept in the memory, so the images can be labeled band by band: the bounds of the labels of the strips which can't
+ * be reached any more are moved into one table and the strips are dropped.
+ * <p>
+ * The work is linear in the count of pixels and nothing is recursive, so the big regions can't overflow the stack.
+ * The first strip and the final regions can use the {@link WorkingBuffers} of the thread instead of new arrays.
+ */
+final class RegionLabeler {
+
+	/**
+	 * The max distance between the pixels of the same region.
+	 */
+	private final int threshold;
+	private final List<Strip> strips = new ArrayList<>();
+	/**
+	 * The count of the strips which are already joined.
+	 */
+	private int joinedStrips;
+	/**
+	 * The count of the first strips which are released, they can't be reached by the next strips.
+	 */
+	private int releasedStrips;
+	/**
+	 * The equivalences of the labels of all joined strips, one strip after another.
+	 */
+	private final UnionFind equivalences;
+	/**
+	 * The bounds of the labels of the released strips, by their labels in all strips. The strips are released one
+	 * after another, so their labels are the first ones.
+	 */
+	private final RegionBounds releasedBounds = new RegionBounds();
+	/**
+	 * The reused buffers, {@code null} if the labeler allocates its own ones.
+	 */
+	private final WorkingBuffers buffers;
+
+	RegionLabeler(int threshold) {
+		this(threshold, null);
+	}
+
+	/**
+	 * @param buffers
+	 * 		the buffers of the first strip and of the final regions, {@code null} if new ones should be allocated.
+	 * 		The final regions are valid only till the buffers are used again.
+	 */
+	RegionLabeler(int threshold, WorkingBuffers buffers) {
+		this.threshold = Math.max(threshold, 0);
+		this.buffers = buffers;
+		this.equivalences = buffers == null ? new UnionFind() : buffers.equivalences();
+	}
+
+	/**
+	 * Group the different pixels of the mask into regions.
+	 *
+	 * @param mask
+	 * 		the mask of the different pixels.
+	 * @param threshold
+	 * 		the max distance between the pixels of the same region.
+	 * @return the bounds of the found regions, numbered from "0" in the order of their first pixel.
+	 */
+	static RegionBounds labelRegions(DifferenceMask mask, int threshold) {
+		return labelRegions(mask, threshold, null);
+	}
+
+	/**
+	 * Group the different pixels of the mask into regions with the reused buffers.
+	 *
+	 * @param buffers
+	 * 		the buffers of the labeling, {@code null} if new ones should be allocated.
+	 * @return the bounds of the found regions, which are valid only till the buffers are used again.
+	 * @see #labelRegions(DifferenceMask, int)
+	 */
+	static RegionBounds labelRegions(DifferenceMask mask, int threshold, WorkingBuffers buffers) {
+		RegionLabeler labeler = new RegionLabeler(threshold, buffers);
+		labeler.addStrip(mask, mask.getFromY(), mask.getToY()).label();
+		return labeler.mergeStrips();
+	}
+
+	/**
+	 * Add the next strip. The strips should be added in the order of their rows and cover the whole image.
+	 *
+	 * @param mask
+	 * 		the mask which contains the strip and the {@code threshold} rows before it.
+	 * @param fromY
+	 * 		the first row of the strip, inclusive.
+	 * @param toY
+	 * 		the last row of the strip, exclusive.
+	 * @return the {@link Strip} object.
+	 */
+	Strip addStrip(DifferenceMask mask, int fromY, int toY) {
+		Strip strip = new Strip(mask, fromY, toY, strips.isEmpty() ? buffers : null);
+		strips.add(strip);
+		return strip;
+	}
+
+	/**
+	 * Join the provisional labels of the added strips, which should be {@link Strip#label() labeled} already, to the
+	 * labels of the strips before them. The strips which can't be reached by the next strips are released.
+	 */
+	void joinStrips() {
+		for (; joinedStrips < strips.size(); joinedStrips++) {
+			Strip strip = strips.get(joinedStrips);
+			strip.labelOffset = equivalences.size();
+			for (int label = 0; label < strip.equivalences.size(); label++) {
+				equivalences.makeLabel();
+				equivalences.union(strip.labelOffset + label, strip.labelOffset + strip.equivalences.find(label));
+			}
+			if (joinedStrips > 0) {
+				joinSeam(joinedStrips);
+			}
+			strip.release();
+			for (; releasedStrips < joinedStrips && strips.get(releasedStrips).toY <= strip.toY - threshold; releasedStrips++) {
+				releasedBounds.addAll(strips.get(releasedStrips).bounds);
+				strips.set(releasedStrips, null);
+			}
+		}
+	}
+
+	/**
+	 * @return the count of the strips which are kept, the added strips without the released ones.
+	 */
+	int getKeptStripCount() {
+		return strips.size() - releasedStrips;
+	}
+
+	/**
+	 * Join all strips and create the final regions. They are numbered in the order of their first pixel, the same as
+	 * for a single strip.
+	 *
+	 * @return the bounds of the final regions.
+	 */
+	RegionBounds mergeStrips() {
+		joinStrips();
+		// The root of every region is its smallest label, which is the label of its first pixel.
+		int labels = equivalences.size();
+		int[] finalRegions = buffers == null ? new int[labels] : buffers.finalRegions(labels);
+		RegionBounds bounds = buffers == null ? new RegionBounds() : buffers.regions();
+		for (int label = 0; label < labels; label++) {
+			int root = equivalences.find(label);
+			finalRegions[label] = root == label ? bounds.addRegion() : finalRegions[root];
+		}
+		for (int label = 0; label < releasedBounds.size(); label++) {
+			bounds.merge(finalRegions[label], releasedBounds, label);
+		}
+		for (Strip strip : strips.subList(releasedStrips, strips.size())) {
+			for (int label = 0; label < strip.bounds.size(); label++) {
+				bounds.merge(finalRegions[strip.labelOffset + label], strip.bounds, label);
+			}
+		}
+		return bounds;
+	}
+
+	/**
+	 * Join the labels of the first rows of the strip with the labels of the rows before the strip. Only the rows
+	 * which are closer to the seam than the {@code threshold} can reach over it.
+	 */
+	private void joinSeam(int stripIndex) {
+		Strip strip = strips.get(stripIndex);
+		DifferenceMask mask = strip.mask;
+		for (int y = strip.fromY; y < strip.headEnd; y++) {
+			for (int x = mask.nextSetBit(y, 0); x >= 0; x = mask.nextSetBit(y, x + 1)) {
+				int label = strip.labelOffset + strip.headLabel(x, y);
+				for (int stepX = -1; stepX <= 1; stepX++) {
+					int distance = strip.nearest(x, y, stepX, -1, mask.getFromY());
+					int neighbourY = y - distance;
+					if (distance > 0 && neighbourY < strip.fromY) {
+						Strip neighbourStrip = strips.get(stripOf(neighbourY, stripIndex));
+						int neighbourLabel = neighbourStrip.tailLabel(x + stepX * distance, neighbourY);
+						equivalences.union(label, neighbourStrip.labelOffset + neighbourLabel);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the index of the strip which contains the row, searching back from the provided strip.
+	 */
+	private int stripOf(int y, int stripIndex) {
+		while (strips.get(stripIndex).fromY > y) {
+			stripIndex--;
+		}
+		return stripIndex;
+	}
+
+	/**
+	 * The rows of the mask which are labeled together. The strips of one {@link RegionLabeler} don't share any
+	 * state, so they can be labeled in different threads.
+	 */
+	final class Strip {
+
+		private final int fromY;
+		private final int toY;
+		/**
+		 * The end of the first {@code threshold} rows, which can be joined with the strip before.
+		 */
+		private final int headEnd;
+		private final int width;
+		private UnionFind equivalences;
+		private final RegionBounds bounds;
+		/**
+		 * The offset of the labels of the strip in the labels of all strips.
+		 */
+		private int labelOffset;
+		private DifferenceMask mask;
+		/**
+		 * The labels of the last {@code threshold + 1} rows, one row after another in a ring.
+		 */
+		private final int[] window;
+		/**
+		 * The labels of the first rows till {@link #headEnd}.
+		 */
+		private int[] head;
+		/**
+		 * The offsets of the current row and of the {@code threshold} rows before it in the {@link #window}.
+		 */
+		private final int[] rowOffsets;
+
+		/**
+		 * @param buffers
+		 * 		the reused buffers, {@code null} if new ones should be allocated. The old labels in them are not
+		 * 		cleared, they are read only at the different pixels, which are labeled before.
+		 */
+		private Strip(DifferenceMask mask, int fromY, int toY, WorkingBuffers buffers) {
+			this.mask = mask;
+			this.fromY = fromY;
+			this.toY = toY;
+			this.headEnd = Math.min(toY, fromY + threshold);
+			this.width = mask.getWidth();
+			int windowLength = (threshold + 1) * width;
+			int headLength = (headEnd - fromY) * width;
+			if (buffers == null) {
+				this.equivalences = new UnionFind();
+				this.bounds = new RegionBounds();
+				this.window = new int[windowLength];
+				this.head = new int[headLength];
+			} else {
+				this.equivalences = buffers.stripEquivalences();
+				this.bounds = buffers.stripBounds();
+				this.window = buffers.labelWindow(windowLength);
+				this.head = buffers.headLabels(headLength);
+			}
+			this.rowOffsets = new int[threshold + 1];
+		}
+
+		/**
+		 * Give every difference pixel of the strip a provisional label. Only the neighbours before the pixel in the
+		 * scanning order are checked, the neighbours after it will check this pixel later. The neighbours before the
+		 * strip are joined later by {@link #joinStrips()}.
+		 */
+		void label() {
+			for (int y = fromY; y < toY; y++) {
+				for (int distance = 0; distance <= threshold; distance++) {
+					rowOffsets[distance] = windowIndex(0, y - distance);
+				}
+				// the pixels of one run with the same label are added to the bounds at once
+				int runLabel = -1;
+				int runStart = 0;
+				int runEnd = -2;
+				for (int x = mask.nextSetBit(y, 0); x >= 0; x = mask.nextSetBit(y, x + 1)) {
+					// the nearest pixel on the left is the previous one of the row
+					int label = runLabel >= 0 && x - runEnd <= threshold ? window[rowOffsets[0] + runEnd] : -1;
+					label = join(label, x, y, -1, -1);
+					label = join(label, x, y, 0, -1);
+					label = join(label, x, y, 1, -1);
+					if (label < 0) {
+						label = equivalences.makeLabel();
+						bounds.addRegion();
+					}
+					window[rowOffsets[0] + x] = label;
+					if (y < headEnd) {
+						head[(y - fromY) * width + x] = label;
+					}
+					if (label != runLabel || x != runEnd + 1) {
+						if (runLabel >= 0) {
+							bounds.addRun(runLabel, runStart, runEnd, y);
+						}
+						runLabel = label;
+						runStart = x;
+					}
+					runEnd = x;
+				}
+				if (runLabel >= 0) {
+					bounds.addRun(runLabel, runStart, runEnd, y);
+				}
+			}
+		}
+
+		/**
+		 * Release the data which is not needed after the strip is joined. Only the last rows and the bounds stay, the
+		 * next strips can be joined to them.
+		 */
+		private void release() {
+			mask = null;
+			head = null;
+			// the equivalences are copied to the ones of all strips
+			equivalences = null;
+		}
+
+		/**
+		 * @return the provisional label of a different pixel in the first {@code threshold} rows.
+		 */
+		private int headLabel(int x, int y) {
+			return head[(y - fromY) * width + x];
+		}
+
+		/**
+		 * @return the provisional label of a different pixel in the last {@code threshold} rows.
+		 */
+		private int tailLabel(int x, int y) {
+			return window[windowIndex(x, y)];
+		}
+
+		private int windowIndex(int x, int y) {
+			return Math.floorMod(y - fromY, threshold + 1) * width + x;
+		}
+
+		/**
+		 * Find the nearest different pixel in one direction. The farther pixels in the same direction are not
+		 * interesting: they are closer than {@code threshold} to the nearest one, so they already have an equivalent
+		 * label.
+		 *
+		 * @param minY
+		 * 		the first row which can be checked.
+		 * @return the distance to the nearest different pixel or "0" if there is no one within the {@code threshold}.
+		 */
+		private int nearest(int x, int y, int stepX, int stepY, int minY) {
+			for (int i = 1; i <= threshold; i++) {
+				int neighbourX = x + stepX * i;
+				int neighbourY = y + stepY * i;
+				if (neighbourY < minY || neighbourX < 0 || neighbourX >= width) {
+					return 0;
+				}
+				if (mask.get(neighbourX, neighbourY)) {
+					return i;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Join the provisional label of the nearest neighbour in the direction to the label of the current pixel.
+		 *
+		 * @param label
+		 * 		the provisional label of the current pixel or "-1" if it has no label yet.
+		 * @return the new provisional label of the current pixel.
+		 */
+		private int join(int label, int x, int y, int stepX, int stepY) {
+			int distance = nearest(x, y, stepX, stepY, fromY);
+			if (distance == 0) {
+				return label;
+			}
+			int neighbourLabel = window[rowOffsets[-stepY * distance] + x + stepX * distance];
+			if (label < 0 || label == neighbourLabel) {
+				return neighbourLabel;
+			}
+			return equivalences.union(label, neighbourLabel);
+		}
+	}
+}
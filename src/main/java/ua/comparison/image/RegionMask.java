@@ -0,0 +1,301 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * The part of the images which is compared, for example without the clocks, the ads or the animations of
+ * a screenshot. It's compiled to the spans of the checked pixels of every row, so the comparison reads and compares
+ * only the checked pixels. The ignored pixels are empty in the {@link DifferenceMask}, so the labeling skips them
+ * like the equal ones.
+ * <p>
+ * The rectangles are the same as the differences of a {@link ua.comparison.image.model.ComparisonResult}: the bounds
+ * are inclusive, the {@code X} bounds are the rows and the {@code Y} bounds are the columns. They are cut by the border
+ * of the image. The equal rows share their spans, so a mask of rectangles takes memory
+ * only for the rows where the rectangles begin or end.
+ */
+public final class RegionMask {
+
+	private static final int[] NO_SPANS = new int[0];
+
+	private final int width;
+	private final int height;
+	/**
+	 * The checked pixels of every row: the pairs of the first column, inclusive, and the last one, exclusive.
+	 * The spans of a row are sorted and they neither overlap nor touch.
+	 */
+	private final int[][] spans;
+
+	private RegionMask(int width, int height, int[][] spans) {
+		this.width = width;
+		this.height = height;
+		this.spans = spans;
+	}
+
+	/**
+	 * Create the mask which checks only the pixels of the rectangles.
+	 *
+	 * @param width
+	 * 		the width of the images.
+	 * @param height
+	 * 		the height of the images.
+	 * @param rectangles
+	 * 		the checked rectangles, they can overlap.
+	 * @return the {@link RegionMask} object.
+	 */
+	public static RegionMask include(int width, int height, Collection<Rectangle> rectangles) {
+		return new RegionMask(width, height, toSpans(width, height, rectangles));
+	}
+
+	/**
+	 * Create the mask which checks all pixels except the ones of the rectangles.
+	 *
+	 * @param width
+	 * 		the width of the images.
+	 * @param height
+	 * 		the height of the images.
+	 * @param rectangles
+	 * 		the ignored rectangles, they can overlap.
+	 * @return the {@link RegionMask} object.
+	 */
+	public static RegionMask exclude(int width, int height, Collection<Rectangle> rectangles) {
+		List<Rectangle> all = new ArrayList<>();
+		all.add(rectangle(0, 0, height - 1, width - 1));
+		return include(width, height, all).without(rectangles);
+	}
+
+	/**
+	 * Create the mask from a mask image of the size of the compared images. The opaque not black pixels are checked,
+	 * the black or transparent ones are ignored.
+	 *
+	 * @param image
+	 * 		the mask image.
+	 * @return the {@link RegionMask} object.
+	 */
+	public static RegionMask fromImage(BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int[][] spans = new int[height][];
+		int[] row = new int[width];
+		int[] rowSpans = new int[width + 1];
+		for (int y = 0; y < height; y++) {
+			image.getRGB(0, y, width, 1, row, 0, width);
+			int count = 0;
+			for (int x = 0; x < width; x++) {
+				boolean checked = (row[x] & 0xffffff) != 0 && (row[x] >>> 24) != 0;
+				if (checked == (count % 2 == 0)) {
+					rowSpans[count++] = x;
+				}
+			}
+			if (count % 2 != 0) {
+				rowSpans[count++] = width;
+			}
+			int[] copy = Arrays.copyOf(rowSpans, count);
+			spans[y] = y > 0 && Arrays.equals(spans[y - 1], copy) ? spans[y - 1] : copy;
+		}
+		return new RegionMask(width, height, spans);
+	}
+
+	/**
+	 * Ignore the pixels of the rectangles too.
+	 *
+	 * @param rectangles
+	 * 		the ignored rectangles, they can overlap.
+	 * @return the new {@link RegionMask} object, this one is not changed.
+	 */
+	public RegionMask without(Collection<Rectangle> rectangles) {
+		int[][] ignored = toSpans(width, height, rectangles);
+		int[][] result = new int[height][];
+		for (int y = 0; y < height; y++) {
+			if (y > 0 && spans[y] == spans[y - 1] && ignored[y] == ignored[y - 1]) {
+				result[y] = result[y - 1];
+			} else {
+				result[y] = subtract(spans[y], ignored[y]);
+			}
+		}
+		return new RegionMask(width, height, result);
+	}
+
+	/**
+	 * Compile the rectangles to the spans of every row. The rows between the borders of the rectangles share one
+	 * array.
+	 */
+	private static int[][] toSpans(int width, int height, Collection<Rectangle> rectangles) {
+		List<Rectangle> clipped = new ArrayList<>();
+		TreeSet<Integer> borders = new TreeSet<>();
+		borders.add(height);
+		for (Rectangle rectangle : rectangles) {
+			int firstRow = Math.max(rectangle.getMinX(), 0);
+			int firstColumn = Math.max(rectangle.getMinY(), 0);
+			int lastRow = Math.min(rectangle.getMaxX(), height - 1);
+			int lastColumn = Math.min(rectangle.getMaxY(), width - 1);
+			if (firstRow <= lastRow && firstColumn <= lastColumn) {
+				clipped.add(rectangle(firstRow, firstColumn, lastRow, lastColumn));
+				borders.add(firstRow);
+				borders.add(lastRow + 1);
+			}
+		}
+		int[][] spans = new int[height][];
+		int fromY = 0;
+		for (int toY : borders) {
+			int[] bandSpans = toSpans(clipped, fromY);
+			Arrays.fill(spans, fromY, toY, bandSpans);
+			fromY = toY;
+		}
+		return spans;
+	}
+
+	/**
+	 * @return the merged spans of the rectangles which cover the row.
+	 */
+	private static int[] toSpans(List<Rectangle> rectangles, int y) {
+		List<int[]> covering = new ArrayList<>();
+		for (Rectangle rectangle : rectangles) {
+			if (rectangle.getMinX() <= y && y <= rectangle.getMaxX()) {
+				covering.add(new int[]{rectangle.getMinY(), rectangle.getMaxY() + 1});
+			}
+		}
+		if (covering.isEmpty()) {
+			return NO_SPANS;
+		}
+		covering.sort((span1, span2) -> Integer.compare(span1[0], span2[0]));
+		int[] spans = new int[covering.size() * 2];
+		int count = 0;
+		for (int[] span : covering) {
+			if (count > 0 && span[0] <= spans[count - 1]) {
+				spans[count - 1] = Math.max(spans[count - 1], span[1]);
+			} else {
+				spans[count++] = span[0];
+				spans[count++] = span[1];
+			}
+		}
+		return Arrays.copyOf(spans, count);
+	}
+
+	/**
+	 * @return the spans of the pixels which are in the first spans, but not in the second ones.
+	 */
+	private static int[] subtract(int[] spans, int[] ignored) {
+		if (spans.length == 0 || ignored.length == 0) {
+			return spans;
+		}
+		int[] result = new int[spans.length + ignored.length];
+		int count = 0;
+		int i = 0;
+		for (int s = 0; s < spans.length; s += 2) {
+			int from = spans[s];
+			int to = spans[s + 1];
+			while (i < ignored.length && ignored[i + 1] <= from) {
+				i += 2;
+			}
+			for (int j = i; j < ignored.length && ignored[j] < to; j += 2) {
+				if (ignored[j] > from) {
+					result[count++] = from;
+					result[count++] = ignored[j];
+				}
+				from = Math.max(from, ignored[j + 1]);
+			}
+			if (from < to) {
+				result[count++] = from;
+				result[count++] = to;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	private static Rectangle rectangle(int minX, int minY, int maxX, int maxY) {
+		Rectangle rectangle = new Rectangle();
+		rectangle.setMinX(minX);
+		rectangle.setMinY(minY);
+		rectangle.setMaxX(maxX);
+		rectangle.setMaxY(maxY);
+		return rectangle;
+	}
+
+	/**
+	 * @param y
+	 * 		the row.
+	 * @return the checked pixels of the row: the pairs of the first column, inclusive, and the last one, exclusive.
+	 * The array must not be changed.
+	 */
+	int[] getSpans(int y) {
+		return spans[y];
+	}
+
+	/**
+	 * @return if the pixel is checked.
+	 */
+	public boolean isChecked(int x, int y) {
+		int[] rowSpans = spans[y];
+		for (int i = 0; i < rowSpans.length && rowSpans[i] <= x; i += 2) {
+			if (x < rowSpans[i + 1]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the count of the checked pixels.
+	 */
+	public long getCheckedPixelCount() {
+		long count = 0;
+		for (int[] rowSpans : spans) {
+			for (int i = 0; i < rowSpans.length; i += 2) {
+				count += rowSpans[i + 1] - rowSpans[i];
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Clear the bits of the ignored pixels of the rows of the mask, which was populated without this region mask.
+	 *
+	 * @param mask
+	 * 		the populated mask.
+	 * @param fromY
+	 * 		the first row, inclusive.
+	 * @param toY
+	 * 		the last row, exclusive.
+	 */
+	void clearIgnored(DifferenceMask mask, int fromY, int toY) {
+		int stride = (width + 63) >>> 6;
+		for (int y = fromY; y < toY; y++) {
+			int[] rowSpans = spans[y];
+			int s = 0;
+			for (int word = 0; word < stride; word++) {
+				int wordStart = word << 6;
+				int wordEnd = wordStart + 64;
+				long checked = 0;
+				while (s < rowSpans.length && rowSpans[s + 1] <= wordStart) {
+					s += 2;
+				}
+				for (int i = s; i < rowSpans.length && rowSpans[i] < wordEnd; i += 2) {
+					checked |= bits(Math.max(rowSpans[i], wordStart) - wordStart, Math.min(rowSpans[i + 1], wordEnd) - wordStart);
+				}
+				mask.setWord(y, word, mask.getWord(y, word) & checked);
+			}
+		}
+	}
+
+	/**
+	 * @return the bits from the first one, inclusive, to the last one, exclusive, of a word.
+	 */
+	private static long bits(int from, int to) {
+		return (to == 64 ? -1L : (1L << to) - 1) & (-1L << from);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+}
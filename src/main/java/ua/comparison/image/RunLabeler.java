@@ -0,0 +1,135 @@
+package ua.comparison.image;
+
+/**
+ * Connected-component labeling of the {@link DifferenceRuns}, run by run instead of pixel by pixel.
+ * <p>
+ * The regions are the same as the ones of the {@link RegionLabeler}: two difference pixels belong to the same region
+ * if they lie on the same row, column or diagonal and the distance between them is not bigger than the
+ * {@code threshold}. All pixels of a run belong to one region, so only the runs are joined:
+ * <ul>
+ * <li>two runs of a row, if the gap between them is shorter than the {@code threshold};</li>
+ * <li>a run {@code [fromX, toX]} with a run of a row {@code d} rows before, {@code 0 < d <= threshold}, if that run
+ * overlaps {@code [fromX - d, toX - d]}, {@code [fromX, toX]} or {@code [fromX + d, toX + d]}: the pixels on the
+ * diagonals and on the column of the pixels of the run.</li>
+ * </ul>
+ * Every run is a label of a {@link UnionFind}, the bounds of the regions are joined from the ends of the runs. The
+ * work and the memory scale with the count of the runs and the {@code threshold}, not with the area of the image.
+ */
+final class RunLabeler {
+
+	private RunLabeler() {
+	}
+
+	/**
+	 * Group the runs into regions.
+	 *
+	 * @param runs
+	 * 		the runs of the different pixels.
+	 * @param threshold
+	 * 		the max distance between the pixels of the same region.
+	 * @return the bounds of the found regions, numbered from "0" in the order of their first pixel.
+	 */
+	static RegionBounds labelRegions(DifferenceRuns runs, int threshold) {
+		if (threshold <= 0) {
+			return labelPixels(runs);
+		}
+		int[] regions = labelRuns(runs, threshold);
+		RegionBounds bounds = new RegionBounds();
+		for (int y = runs.getFromY(); y < runs.getToY(); y++) {
+			for (int run = runs.getRowStart(y); run < runs.getRowEnd(y); run++) {
+				// the regions are numbered in the order of their first run
+				if (regions[run] == bounds.size()) {
+					bounds.addRegion();
+				}
+				bounds.addRun(regions[run], runs.getRunStart(run), runs.getRunEnd(run), y);
+			}
+		}
+		return bounds;
+	}
+
+	/**
+	 * Group the runs into regions, the positive {@code threshold} is the max distance between the pixels of the same
+	 * region. With the {@code threshold} "1" the regions are the 8-connected components.
+	 *
+	 * @return the number of the region of every run, the regions are numbered from "0" in the order of their first
+	 * pixel.
+	 */
+	static int[] labelRuns(DifferenceRuns runs, int threshold) {
+		int count = runs.size();
+		UnionFind equivalences = new UnionFind(count);
+		for (int run = 0; run < count; run++) {
+			equivalences.makeLabel();
+		}
+		// the first run of every of the rows before, which can still be joined with the next runs of the current row
+		int[] cursors = new int[threshold + 1];
+		for (int y = runs.getFromY(); y < runs.getToY(); y++) {
+			int firstRow = Math.max(y - threshold, runs.getFromY());
+			for (int neighbourY = firstRow; neighbourY < y; neighbourY++) {
+				cursors[y - neighbourY] = runs.getRowStart(neighbourY);
+			}
+			for (int run = runs.getRowStart(y); run < runs.getRowEnd(y); run++) {
+				int fromX = runs.getRunStart(run);
+				int toX = runs.getRunEnd(run);
+				if (run > runs.getRowStart(y) && fromX - runs.getRunEnd(run - 1) <= threshold) {
+					equivalences.union(run - 1, run);
+				}
+				for (int neighbourY = firstRow; neighbourY < y; neighbourY++) {
+					int distance = y - neighbourY;
+					int neighbour = cursors[distance];
+					int rowEnd = runs.getRowEnd(neighbourY);
+					// the runs which end before the left diagonal of this run are before the next runs too
+					while (neighbour < rowEnd && runs.getRunEnd(neighbour) < fromX - distance) {
+						neighbour++;
+					}
+					cursors[distance] = neighbour;
+					for (; neighbour < rowEnd && runs.getRunStart(neighbour) <= toX + distance; neighbour++) {
+						if (isReached(runs.getRunStart(neighbour), runs.getRunEnd(neighbour), fromX, toX, distance)) {
+							equivalences.union(neighbour, run);
+						}
+					}
+				}
+			}
+		}
+		// The root of every region is its smallest run, which is the run of its first pixel.
+		int[] regions = new int[count];
+		int regionCount = 0;
+		for (int run = 0; run < count; run++) {
+			int root = equivalences.find(run);
+			regions[run] = root == run ? regionCount++ : regions[root];
+		}
+		return regions;
+	}
+
+	/**
+	 * Check if a pixel of the neighbour run lies on the column or on a diagonal of a pixel of the run, the neighbour
+	 * run is {@code distance} rows before.
+	 */
+	private static boolean isReached(int neighbourFromX, int neighbourToX, int fromX, int toX, int distance) {
+		if (toX - fromX + 1 >= distance) {
+			// the shifted runs touch each other, so they cover the whole range from the left to the right diagonal
+			return true;
+		}
+		return overlaps(neighbourFromX, neighbourToX, fromX - distance, toX - distance)
+				|| overlaps(neighbourFromX, neighbourToX, fromX, toX)
+				|| overlaps(neighbourFromX, neighbourToX, fromX + distance, toX + distance);
+	}
+
+	private static boolean overlaps(int fromX1, int toX1, int fromX2, int toX2) {
+		return fromX1 <= toX2 && fromX2 <= toX1;
+	}
+
+	/**
+	 * With the zero {@code threshold} no pixels are joined, every pixel is a region.
+	 */
+	private static RegionBounds labelPixels(DifferenceRuns runs) {
+		RegionBounds bounds = new RegionBounds();
+		for (int y = runs.getFromY(); y < runs.getToY(); y++) {
+			for (int run = runs.getRowStart(y); run < runs.getRowEnd(y); run++) {
+				for (int x = runs.getRunStart(run); x <= runs.getRunEnd(run); x++) {
+					bounds.add(bounds.addRegion(), x, y);
+				}
+			}
+		}
+		return bounds;
+	}
+}
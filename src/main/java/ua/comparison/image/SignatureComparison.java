@@ -0,0 +1,232 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.ComparisonStats;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Compare a candidate image with a baseline file which has a {@link TileSignature}. The tiles of the candidate are
+ * hashed and only the tiles whose hashes differ from the signature are compared pixel by pixel. The baseline is
+ * decoded only in the bounding rectangle of the changed tiles, and not at all if no tile changed.
+ * <p>
+ * The result is the same as the one of {@link ImageComparator#compare(BufferedImage, BufferedImage)} with the same
+ * {@link ComparisonOptions}, as long as every changed tile has another hash: the unchanged tiles have the same RGB
+ * values, which are never different. The size of the tiles is the one of the signature, the parallelism and the
+ * block prefilter of the options are not used.
+ * <p>
+ * The hashes have 64 bits, so an accidental collision of a changed tile is very unlikely. But the hash is not
+ * cryptographic: it is not collision-resistant, and a candidate crafted to keep the hashes of the changed tiles is
+ * reported as a match. Don't use it when the candidates come from an untrusted source.
+ */
+public class SignatureComparison {
+
+	/**
+	 * The baseline image file.
+	 */
+	private final File baseline;
+	/**
+	 * The signature of the baseline.
+	 */
+	private final TileSignature baselineSignature;
+	/**
+	 * The candidate image.
+	 */
+	private final BufferedImage candidate;
+	/**
+	 * The comparator whose options the comparison follows.
+	 */
+	private ImageComparator comparator;
+	/**
+	 * The signature of the candidate, computed by the comparison.
+	 */
+	private TileSignature candidateSignature;
+
+	/**
+	 * Create a new instance of {@link SignatureComparison} that can compare the candidate with the baseline.
+	 *
+	 * @param baseline
+	 * 		the baseline image file.
+	 * @param baselineSignature
+	 * 		the signature of the baseline, see {@link TileSignature#forBaseline(File)}.
+	 * @param candidate
+	 * 		the candidate image.
+	 */
+	public SignatureComparison(File baseline, TileSignature baselineSignature, BufferedImage candidate) {
+		this(baseline, baselineSignature, candidate, new ImageComparator());
+	}
+
+	/**
+	 * Create a new instance of {@link SignatureComparison} that can compare the candidate with the baseline with
+	 * the options of the comparator.
+	 *
+	 * @param baseline
+	 * 		the baseline image file.
+	 * @param baselineSignature
+	 * 		the signature of the baseline, see {@link TileSignature#forBaseline(File)}.
+	 * @param candidate
+	 * 		the candidate image.
+	 * @param comparator
+	 * 		the {@link ImageComparator} whose {@link ComparisonOptions} are used.
+	 */
+	public SignatureComparison(File baseline, TileSignature baselineSignature, BufferedImage candidate,
+			ImageComparator comparator) {
+		this.baseline = baseline;
+		this.baselineSignature = baselineSignature;
+		this.candidate = candidate;
+		this.comparator = Objects.requireNonNull(comparator, "comparator");
+	}
+
+	/**
+	 * Create a new instance of {@link SignatureComparison} that can compare the candidate file with the baseline. The
+	 * signature of the baseline is read from its signature file or created.
+	 *
+	 * @param baseline
+	 * 		the baseline image file.
+	 * @param candidate
+	 * 		the candidate image file.
+	 * @throws IOException
+	 * 		if the candidate or the signature of the baseline can't be read.
+	 * @see TileSignature#forBaseline(File)
+	 */
+	public SignatureComparison(File baseline, File candidate) throws IOException {
+		this(baseline, TileSignature.forBaseline(baseline), ImageComparisonTools.readImage(candidate));
+	}
+
+	/**
+	 * Set the rule which says if two pixels are different, it replaces the one of the options of the comparator.
+	 *
+	 * @param pixelDistance
+	 * 		the {@link PixelDistance} object, {@link PixelDistance#defaultDistance()} by default.
+	 */
+	public void setPixelDistance(PixelDistance pixelDistance) {
+		this.comparator = new ImageComparator(comparator.getOptions().withPixelDistance(pixelDistance));
+	}
+
+	/**
+	 * Calculate regions which cover the difference pixels.
+	 *
+	 * @return the result of the comparison.
+	 * @throws IOException
+	 * 		if the baseline can't be read.
+	 */
+	public ComparisonResult compareImages() throws IOException {
+		int width = baselineSignature.getWidth();
+		int height = baselineSignature.getHeight();
+		if (width != candidate.getWidth() || height != candidate.getHeight()) {
+			return comparator.sizeMissmatch(0);
+		}
+
+		ComparisonStats stats = new ComparisonStats();
+		long start = System.nanoTime();
+		int tileSize = baselineSignature.getTileSize();
+		candidateSignature = TileSignature.of(candidate, tileSize);
+		BitSet changedTiles = baselineSignature.findChangedTiles(candidateSignature);
+		DifferenceMask mask = new DifferenceMask(width, height);
+		long hashed = System.nanoTime();
+		stats.setDifferenceNanos(hashed - start);
+		if (!changedTiles.isEmpty()) {
+			java.awt.Rectangle region = getBounds(changedTiles);
+			BufferedImage baselineRegion = readRegion(region);
+			long decoded = System.nanoTime();
+			populateChangedTiles(mask, changedTiles, baselineRegion, region);
+			stats.setDecodeNanos(decoded - hashed);
+			stats.setDifferenceNanos(stats.getDifferenceNanos() + System.nanoTime() - decoded);
+		}
+
+		stats.setWorkingBufferBytes(mask.getByteCount() + ImageComparisonTools.getRowBufferBytes(tileSize));
+		return comparator.labelDifferences(mask, stats);
+	}
+
+	/**
+	 * @return the signature of the candidate, which can be stored if the candidate becomes the new baseline.
+	 * {@code null} before the comparison.
+	 */
+	public TileSignature getCandidateSignature() {
+		return candidateSignature;
+	}
+
+	/**
+	 * @return the bounding rectangle of the changed tiles in the pixels.
+	 */
+	private java.awt.Rectangle getBounds(BitSet changedTiles) {
+		int columns = baselineSignature.getColumns();
+		int tileSize = baselineSignature.getTileSize();
+		int minColumn = Integer.MAX_VALUE;
+		int maxColumn = Integer.MIN_VALUE;
+		for (int tile = changedTiles.nextSetBit(0); tile >= 0; tile = changedTiles.nextSetBit(tile + 1)) {
+			minColumn = Math.min(minColumn, tile % columns);
+			maxColumn = Math.max(maxColumn, tile % columns);
+		}
+		int minY = (changedTiles.nextSetBit(0) / columns) * tileSize;
+		int maxY = Math.min((changedTiles.length() - 1) / columns * tileSize + tileSize, baselineSignature.getHeight());
+		int minX = minColumn * tileSize;
+		int maxX = Math.min(maxColumn * tileSize + tileSize, baselineSignature.getWidth());
+		return new java.awt.Rectangle(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	/**
+	 * Decode the region of the baseline.
+	 */
+	private BufferedImage readRegion(java.awt.Rectangle region) throws IOException {
+		try (ImageInputStream input = ImageIO.createImageInputStream(baseline)) {
+			if (input == null) {
+				throw new IOException("Unable to open " + baseline);
+			}
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+			if (!readers.hasNext()) {
+				throw new IOException("Unsupported image format of " + baseline);
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(input, true, true);
+				if (reader.getWidth(0) != baselineSignature.getWidth() || reader.getHeight(0) != baselineSignature.getHeight()) {
+					throw new IOException("The signature doesn't belong to " + baseline);
+				}
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceRegion(region);
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Populate the mask of the different pixels in the changed tiles.
+	 */
+	private void populateChangedTiles(DifferenceMask mask, BitSet changedTiles, BufferedImage baselineRegion,
+			java.awt.Rectangle region) {
+		int columns = baselineSignature.getColumns();
+		int tileSize = baselineSignature.getTileSize();
+		PixelRowReader baselineReader = PixelRowReader.forImage(baselineRegion, region.y);
+		PixelRowReader candidateReader = PixelRowReader.forImage(candidate);
+		PixelDistance pixelDistance = comparator.getOptions().getPixelDistance();
+		int[] row1 = new int[tileSize];
+		int[] row2 = new int[tileSize];
+		for (int tile = changedTiles.nextSetBit(0); tile >= 0; tile = changedTiles.nextSetBit(tile + 1)) {
+			int fromX = (tile % columns) * tileSize;
+			int toX = Math.min(fromX + tileSize, mask.getWidth());
+			int fromY = (tile / columns) * tileSize;
+			int toY = Math.min(fromY + tileSize, mask.getToY());
+			for (int y = fromY; y < toY; y++) {
+				baselineReader.readRow(y, fromX - region.x, toX - fromX, row1);
+				candidateReader.readRow(y, fromX, toX - fromX, row2);
+				for (int x = fromX; x < toX; x++) {
+					if (pixelDistance.isDifferent(row1[x - fromX], row2[x - fromX])) {
+						mask.set(x, y);
+					}
+				}
+			}
+		}
+	}
+}
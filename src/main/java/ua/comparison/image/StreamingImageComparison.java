@@ -0,0 +1,238 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.ComparisonStats;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Objects;
+
+import static ua.comparison.image.ImageComparisonTools.getRowBufferBytes;
+import static ua.comparison.image.ImageComparisonTools.populateTheMatrixOfTheDifferences;
+import static ua.comparison.image.ImageComparisonTools.populateTheRunsOfTheDifferences;
+
+/**
+ * Compare two image files which are too big to be decoded at once. The images are decoded and compared in
+ * horizontal bands by the {@link ImageReader}, so the memory is bounded by the size of the band, not of the image.
+ * The regions which are still open at the end of a band are continued in the next one. The result is the same as
+ * the one of {@link ImageComparator#compare(BufferedImage, BufferedImage)} with the same {@link ComparisonOptions};
+ * only the parallelism, the tile size and the block prefilter of the options are not used.
+ * <p>
+ * The memory is bounded for every format, but the time is linear only for the formats which can start decoding in
+ * the middle of the image, the ones whose {@link ImageReader#isRandomAccessEasy(int)} is {@code true}, like tiled or
+ * uncompressed TIFF. The {@link ImageReader} of PNG or JPEG decodes a band from the top of the image, so every band
+ * decodes also all rows before it and the time grows with the square of the height divided by the band height. For
+ * such files use bands as big as the memory allows, or decode the images at once by {@link ImageComparison}.
+ */
+public class StreamingImageComparison {
+
+	/**
+	 * The default count of the rows of one band.
+	 */
+	public static final int DEFAULT_BAND_HEIGHT = 512;
+
+	/**
+	 * First image for comparing
+	 */
+	private final File image1;
+	/**
+	 * Second image for comparing
+	 */
+	private final File image2;
+	/**
+	 * The comparator whose options the comparison follows.
+	 */
+	private ImageComparator comparator;
+	/**
+	 * The count of the rows which are decoded at once.
+	 */
+	private int bandHeight = DEFAULT_BAND_HEIGHT;
+
+	/**
+	 * Create a new instance of {@link StreamingImageComparison} that can compare the given image files.
+	 *
+	 * @param image1
+	 * 		first image to be compared
+	 * @param image2
+	 * 		second image to be compared
+	 */
+	public StreamingImageComparison(File image1, File image2) {
+		this(image1, image2, new ImageComparator());
+	}
+
+	/**
+	 * Create a new instance of {@link StreamingImageComparison} that can compare the given image files with the
+	 * options of the comparator.
+	 *
+	 * @param image1
+	 * 		first image to be compared
+	 * @param image2
+	 * 		second image to be compared
+	 * @param comparator
+	 * 		the {@link ImageComparator} whose {@link ComparisonOptions} are used.
+	 */
+	public StreamingImageComparison(File image1, File image2, ImageComparator comparator) {
+		this.image1 = image1;
+		this.image2 = image2;
+		this.comparator = Objects.requireNonNull(comparator, "comparator");
+	}
+
+	/**
+	 * Set the rule which says if two pixels are different, it replaces the one of the options of the comparator.
+	 *
+	 * @param pixelDistance
+	 * 		the {@link PixelDistance} object, {@link PixelDistance#defaultDistance()} by default.
+	 */
+	public void setPixelDistance(PixelDistance pixelDistance) {
+		this.comparator = new ImageComparator(comparator.getOptions().withPixelDistance(pixelDistance));
+	}
+
+	/**
+	 * Set the count of the rows which are decoded at once. For the formats which decode every band from the top of
+	 * the image, like PNG, bigger bands mean fewer decodings of the same rows.
+	 *
+	 * @param bandHeight
+	 * 		the count of the rows, {@link #DEFAULT_BAND_HEIGHT} by default.
+	 */
+	public void setBandHeight(int bandHeight) {
+		if (bandHeight < 1) {
+			throw new IllegalArgumentException("The band height should be positive, but was " + bandHeight);
+		}
+		this.bandHeight = bandHeight;
+	}
+
+	/**
+	 * Calculate regions which cover the difference pixels.
+	 *
+	 * @return the result of the comparison.
+	 * @throws IOException
+	 * 		if the images can't be read.
+	 */
+	public ComparisonResult compareImages() throws IOException {
+		return compareImages(null);
+	}
+
+	/**
+	 * Calculate regions which cover the difference pixels, until the deadline expires. The deadline is checked
+	 * before every band, then the result is {@link ComparisonResult#isPartial() partial}, with the regions of the
+	 * compared bands.
+	 *
+	 * @param deadline
+	 * 		the time budget of the comparison, {@code null} if there is no one.
+	 * @return the result of the comparison.
+	 * @throws IOException
+	 * 		if the images can't be read.
+	 * @see #compareImages()
+	 */
+	public ComparisonResult compareImages(ComparisonDeadline deadline) throws IOException {
+		try (ImageInputStream input1 = ImageIO.createImageInputStream(image1);
+			 ImageInputStream input2 = ImageIO.createImageInputStream(image2)) {
+			ImageReader reader1 = createReader(input1, image1);
+			try {
+				ImageReader reader2 = createReader(input2, image2);
+				try {
+					return compareImages(reader1, reader2, deadline);
+				} finally {
+					reader2.dispose();
+				}
+			} finally {
+				reader1.dispose();
+			}
+		}
+	}
+
+	private ComparisonResult compareImages(ImageReader reader1, ImageReader reader2, ComparisonDeadline deadline)
+			throws IOException {
+		int width = reader1.getWidth(0);
+		int height = reader1.getHeight(0);
+		if (width != reader2.getWidth(0) || height != reader2.getHeight(0)) {
+			return comparator.sizeMissmatch(0);
+		}
+
+		ComparisonOptions options = comparator.getOptions();
+		RegionMask regionMask = comparator.checkRegionMask(width, height);
+		int threshold = Math.max(options.getThreshold(), 0);
+		// the runs are labeled at the end, the masks band by band
+		DifferenceRuns runs = options.isRunLengthEncoding() || options.isDilation() ? new DifferenceRuns(width, 0, height) : null;
+		RegionLabeler labeler = runs == null ? new RegionLabeler(threshold) : null;
+		int[] row1 = new int[width];
+		int[] row2 = new int[width];
+		ComparisonStats stats = new ComparisonStats();
+		DifferenceMask previousMask = null;
+		int comparedRows = 0;
+		while (comparedRows < height && (deadline == null || !deadline.isExpired())) {
+			int fromY = comparedRows;
+			int toY = Math.min(fromY + bandHeight, height);
+			long start = System.nanoTime();
+			PixelRowReader band1 = PixelRowReader.forImage(readBand(reader1, fromY, toY), fromY);
+			PixelRowReader band2 = PixelRowReader.forImage(readBand(reader2, fromY, toY), fromY);
+			long decoded = System.nanoTime();
+			long bandBytes = getRowBufferBytes(width);
+			if (runs != null) {
+				populateTheRunsOfTheDifferences(runs, band1, band2, options.getPixelDistance(), regionMask, fromY, toY, row1, row2);
+				stats.setDifferenceNanos(stats.getDifferenceNanos() + System.nanoTime() - decoded);
+			} else {
+				// the mask contains also the rows before the band which can be joined with it
+				DifferenceMask mask = new DifferenceMask(width, Math.max(0, fromY - threshold), toY);
+				if (previousMask != null) {
+					mask.copyRows(previousMask, mask.getFromY(), fromY);
+				}
+				if (regionMask != null) {
+					populateTheMatrixOfTheDifferences(mask, band1, band2, options.getPixelDistance(), regionMask, fromY, toY,
+							row1, row2);
+				} else {
+					populateTheMatrixOfTheDifferences(mask, band1, band2, options.getPixelDistance(), fromY, toY, row1, row2);
+				}
+				long populated = System.nanoTime();
+				labeler.addStrip(mask, fromY, toY).label();
+				labeler.joinStrips();
+				previousMask = mask;
+				stats.setDifferenceNanos(stats.getDifferenceNanos() + populated - decoded);
+				stats.setLabelingNanos(stats.getLabelingNanos() + System.nanoTime() - populated);
+				bandBytes += mask.getByteCount();
+			}
+			stats.setDecodeNanos(stats.getDecodeNanos() + decoded - start);
+			stats.setWorkingBufferBytes(Math.max(stats.getWorkingBufferBytes(), bandBytes));
+			comparedRows = toY;
+		}
+		long start = System.nanoTime();
+		RegionBounds regions;
+		if (runs != null) {
+			regions = comparator.labelRegions(runs);
+			stats.setWorkingBufferBytes(stats.getWorkingBufferBytes() + runs.getByteCount());
+		} else {
+			regions = labeler.mergeStrips();
+		}
+		stats.setLabelingNanos(stats.getLabelingNanos() + System.nanoTime() - start);
+		stats.setComparedRowCount(comparedRows);
+		return comparator.createResult(regions, stats, height == 0 ? 1 : (double) comparedRows / height);
+	}
+
+	private static ImageReader createReader(ImageInputStream input, File file) throws IOException {
+		if (input == null) {
+			throw new IOException("Unable to open " + file);
+		}
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+		if (!readers.hasNext()) {
+			throw new IOException("Unsupported image format of " + file);
+		}
+		ImageReader reader = readers.next();
+		reader.setInput(input, false, true);
+		return reader;
+	}
+
+	/**
+	 * Decode the rows of the image.
+	 */
+	private static BufferedImage readBand(ImageReader reader, int fromY, int toY) throws IOException {
+		ImageReadParam param = reader.getDefaultReadParam();
+		param.setSourceRegion(new java.awt.Rectangle(0, fromY, reader.getWidth(0), toY - fromY));
+		return reader.read(0, param);
+	}
+}
@@ -0,0 +1,290 @@
+package ua.comparison.image;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.BitSet;
+
+/**
+ * The signature of an image: a 64-bit hash of the RGB values of every tile of the image. The signature of a baseline
+ * is computed once and stored next to it, then the tiles of a candidate which have the same hash are taken as
+ * unchanged without decoding the baseline, see {@link SignatureComparison}. The hash is fast, not cryptographic, so
+ * the tiles with the same hash are only very likely the same.
+ * <p>
+ * The tiles are squares of {@code tileSize} pixels, row after row, the last ones are cut by the border of the image.
+ * The alpha is not hashed, the same as it's not compared by the {@link PixelDistance}.
+ * <p>
+ * The signature file of a baseline keeps the length and the time of the last modification of the baseline, the same
+ * as the key of the {@link DecodedImageCache}, and it's used only while they are exactly the same.
+ */
+public final class TileSignature {
+
+	/**
+	 * The default size of the tiles.
+	 */
+	public static final int DEFAULT_TILE_SIZE = 64;
+	/**
+	 * The extension of the signature file of an image, which is added to the name of the image.
+	 */
+	public static final String FILE_EXTENSION = ".tiles";
+
+	private static final int MAGIC = 0x49435453;
+	private static final int VERSION = 2;
+	private static final long SEED = 0x9E3779B97F4A7C15L;
+	private static final long MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+
+	private final int width;
+	private final int height;
+	private final int tileSize;
+	private final int columns;
+	/**
+	 * The hashes of the tiles, row after row.
+	 */
+	private final long[] hashes;
+	/**
+	 * The length of the image file of the signature, "-1" if it's not known.
+	 */
+	private final long imageLength;
+	/**
+	 * The time of the last modification of the image file of the signature, "-1" if it's not known.
+	 */
+	private final long imageLastModified;
+
+	private TileSignature(int width, int height, int tileSize, long[] hashes, long imageLength, long imageLastModified) {
+		this.width = width;
+		this.height = height;
+		this.tileSize = tileSize;
+		this.columns = (width + tileSize - 1) / tileSize;
+		this.hashes = hashes;
+		this.imageLength = imageLength;
+		this.imageLastModified = imageLastModified;
+	}
+
+	/**
+	 * Compute the signature of the image with the {@link #DEFAULT_TILE_SIZE}.
+	 *
+	 * @param image
+	 * 		the {@link BufferedImage} object.
+	 * @return the {@link TileSignature} object.
+	 */
+	public static TileSignature of(BufferedImage image) {
+		return of(image, DEFAULT_TILE_SIZE);
+	}
+
+	/**
+	 * Compute the signature of the image. The image is read once, row after row.
+	 *
+	 * @param image
+	 * 		the {@link BufferedImage} object.
+	 * @param tileSize
+	 * 		the size of the tiles.
+	 * @return the {@link TileSignature} object.
+	 */
+	public static TileSignature of(BufferedImage image, int tileSize) {
+		if (tileSize < 1) {
+			throw new IllegalArgumentException("The tile size should be positive, but was " + tileSize);
+		}
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int columns = (width + tileSize - 1) / tileSize;
+		int rows = (height + tileSize - 1) / tileSize;
+		long[] hashes = new long[columns * rows];
+		PixelRowReader reader = PixelRowReader.forImage(image);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			reader.readRow(y, row);
+			int offset = (y / tileSize) * columns;
+			if (y % tileSize == 0) {
+				for (int column = 0; column < columns; column++) {
+					hashes[offset + column] = SEED;
+				}
+			}
+			for (int column = 0; column < columns; column++) {
+				long hash = hashes[offset + column];
+				for (int x = column * tileSize; x < Math.min((column + 1) * tileSize, width); x++) {
+					hash = Long.rotateLeft(hash ^ (row[x] & 0xffffff), 27) * MULTIPLIER;
+				}
+				hashes[offset + column] = hash;
+			}
+		}
+		for (int tile = 0; tile < hashes.length; tile++) {
+			hashes[tile] = mix(hashes[tile]);
+		}
+		return new TileSignature(width, height, tileSize, hashes, -1, -1);
+	}
+
+	/**
+	 * The final mix of the bits, so every bit of the hash depends on every pixel of the tile.
+	 */
+	private static long mix(long hash) {
+		hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+		hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return hash ^ (hash >>> 33);
+	}
+
+	/**
+	 * Read the signature of the baseline from its signature file, or compute and store it if the file is missing or
+	 * it was computed from another length or time of the last modification of the baseline.
+	 *
+	 * @param baseline
+	 * 		the image file.
+	 * @return the {@link TileSignature} object with the {@link #DEFAULT_TILE_SIZE}, or with the tile size of the
+	 * stored one.
+	 * @throws IOException
+	 * 		if the baseline can't be read or the signature can't be written.
+	 */
+	public static TileSignature forBaseline(File baseline) throws IOException {
+		// the attributes are read before the image, a baseline which changes meanwhile is computed again next time
+		BasicFileAttributes attributes = Files.readAttributes(baseline.toPath(), BasicFileAttributes.class);
+		long length = attributes.size();
+		long lastModified = attributes.lastModifiedTime().toMillis();
+		File signatureFile = getSignatureFile(baseline);
+		if (signatureFile.isFile()) {
+			try {
+				TileSignature stored = read(signatureFile);
+				if (stored.imageLength == length && stored.imageLastModified == lastModified) {
+					return stored;
+				}
+			} catch (IOException e) {
+				// a signature file of an older version or a broken one is written again
+			}
+		}
+		TileSignature computed = of(ImageComparisonTools.readImage(baseline));
+		TileSignature signature = new TileSignature(computed.width, computed.height, computed.tileSize, computed.hashes,
+				length, lastModified);
+		signature.write(signatureFile);
+		return signature;
+	}
+
+	/**
+	 * @return the signature file of the image file, next to it.
+	 */
+	public static File getSignatureFile(File image) {
+		return new File(image.getPath() + FILE_EXTENSION);
+	}
+
+	/**
+	 * Read the signature from the file.
+	 *
+	 * @param file
+	 * 		the signature file.
+	 * @return the {@link TileSignature} object.
+	 * @throws IOException
+	 * 		if the file can't be read or it's not a signature file.
+	 */
+	public static TileSignature read(File file) throws IOException {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				throw new IOException("Not a tile signature file: " + file);
+			}
+			int width = input.readInt();
+			int height = input.readInt();
+			int tileSize = input.readInt();
+			if (width < 0 || height < 0 || tileSize < 1) {
+				throw new IOException("Corrupted tile signature file: " + file);
+			}
+			long imageLength = input.readLong();
+			long imageLastModified = input.readLong();
+			long[] hashes = new long[((width + tileSize - 1) / tileSize) * ((height + tileSize - 1) / tileSize)];
+			for (int tile = 0; tile < hashes.length; tile++) {
+				hashes[tile] = input.readLong();
+			}
+			return new TileSignature(width, height, tileSize, hashes, imageLength, imageLastModified);
+		}
+	}
+
+	/**
+	 * Write the signature to the file: a header of five ints and two longs, the length and the time of the last
+	 * modification of the image file, and the hashes of the tiles, 8 bytes per tile. The file is written under
+	 * a temporary name and then renamed, so the other processes never read a partly written file.
+	 *
+	 * @param file
+	 * 		the signature file.
+	 * @throws IOException
+	 * 		if the file can't be written.
+	 */
+	public void write(File file) throws IOException {
+		Path target = file.getAbsoluteFile().toPath();
+		Path temporary = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+		try {
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeInt(width);
+				output.writeInt(height);
+				output.writeInt(tileSize);
+				output.writeLong(imageLength);
+				output.writeLong(imageLastModified);
+				for (long hash : hashes) {
+					output.writeLong(hash);
+				}
+			}
+			Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Find the tiles which have different hashes in the signatures of the same image size and tile size.
+	 *
+	 * @param other
+	 * 		the other {@link TileSignature}.
+	 * @return the indexes of the changed tiles, row after row.
+	 */
+	public BitSet findChangedTiles(TileSignature other) {
+		if (width != other.width || height != other.height || tileSize != other.tileSize) {
+			throw new IllegalArgumentException("The signatures of " + width + "x" + height + "/" + tileSize + " and "
+					+ other.width + "x" + other.height + "/" + other.tileSize + " can't be compared");
+		}
+		BitSet changed = new BitSet(hashes.length);
+		for (int tile = 0; tile < hashes.length; tile++) {
+			if (hashes[tile] != other.hashes[tile]) {
+				changed.set(tile);
+			}
+		}
+		return changed;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * @return the count of the tiles in a row.
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return the count of the rows of the tiles.
+	 */
+	public int getRows() {
+		return columns == 0 ? 0 : hashes.length / columns;
+	}
+
+	/**
+	 * @return the hash of the tile.
+	 */
+	public long getHash(int column, int row) {
+		return hashes[row * columns + column];
+	}
+}
@@ -0,0 +1,329 @@
+package ua.comparison.image;
+
+import ua.comparison.image.model.ComparisonStats;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ua.comparison.image.ImageComparisonTools.populateTheMatrixOfTheDifferences;
+import static ua.comparison.image.ImageComparisonTools.populateTheRunsOfTheDifferences;
+
+/**
+ * Parallel comparison of two images on a {@link ForkJoinPool}. The images are split into horizontal strips
+ * of {@code tileSize} rows. Every strip of the {@link DifferenceMask} is populated and labeled by its own task, then
+ * the regions which meet on the seams are joined by the {@link RegionLabeler}. The result is the same as the one of the sequential comparison.
+ * <p>
+ * With the run-length encoding the tasks only collect the {@link DifferenceRuns} of their strips, the runs of all
+ * strips are labeled at once by the {@link RunLabeler}. With the dilation the runs are collected too, they are labeled
+ * by the {@link DilationLabeler}.
+ * <p>
+ * The tasks run on the pool of the caller or on the pool of the parallelism which is shared by all comparisons, so
+ * a comparison doesn't start and stop its own threads. The idle threads of a shared pool end by themselves.
+ */
+final class TiledComparison {
+
+	/**
+	 * The default count of the rows of one strip.
+	 */
+	static final int DEFAULT_TILE_SIZE = 256;
+
+	/**
+	 * The shared pools by their parallelism.
+	 */
+	private static final ConcurrentMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+	private final PixelDistance pixelDistance;
+	private final int threshold;
+	private final int parallelism;
+	private final int tileSize;
+	/**
+	 * If the strips are populated by the {@link BlockPrefilter}.
+	 */
+	private final boolean blockPrefilter;
+	/**
+	 * The checked pixels, {@code null} if all pixels are checked.
+	 */
+	private final RegionMask regions;
+	/**
+	 * If the strips are collected as the {@link DifferenceRuns}.
+	 */
+	private final boolean runLengthEncoding;
+	/**
+	 * If the gaps between the different pixels are bridged by a dilation.
+	 */
+	private final boolean dilation;
+	/**
+	 * The pool of the tasks.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param pixelDistance
+	 * 		the rule which says if two pixels are different.
+	 * @param threshold
+	 * 		the max distance between the pixels of the same region.
+	 * @param parallelism
+	 * 		the count of the threads.
+	 * @param tileSize
+	 * 		the count of the rows of one strip.
+	 */
+	TiledComparison(PixelDistance pixelDistance, int threshold, int parallelism, int tileSize) {
+		this(pixelDistance, threshold, parallelism, tileSize, false);
+	}
+
+	/**
+	 * @param blockPrefilter
+	 * 		if the strips are populated with the {@link BlockPrefilter}.
+	 * @see #TiledComparison(PixelDistance, int, int, int)
+	 */
+	TiledComparison(PixelDistance pixelDistance, int threshold, int parallelism, int tileSize, boolean blockPrefilter) {
+		this(pixelDistance, threshold, parallelism, tileSize, blockPrefilter, null);
+	}
+
+	/**
+	 * @param regions
+	 * 		the checked pixels, {@code null} if all pixels are checked.
+	 * @see #TiledComparison(PixelDistance, int, int, int, boolean)
+	 */
+	TiledComparison(PixelDistance pixelDistance, int threshold, int parallelism, int tileSize, boolean blockPrefilter,
+			RegionMask regions) {
+		this(pixelDistance, threshold, parallelism, tileSize, blockPrefilter, regions, false);
+	}
+
+	/**
+	 * @param runLengthEncoding
+	 * 		if the strips are collected as the {@link DifferenceRuns} and labeled by the {@link RunLabeler}.
+	 * @see #TiledComparison(PixelDistance, int, int, int, boolean, RegionMask)
+	 */
+	TiledComparison(PixelDistance pixelDistance, int threshold, int parallelism, int tileSize, boolean blockPrefilter,
+			RegionMask regions, boolean runLengthEncoding) {
+		this(pixelDistance, threshold, parallelism, tileSize, blockPrefilter, regions, runLengthEncoding, false);
+	}
+
+	/**
+	 * @param dilation
+	 * 		if the strips are collected as the {@link DifferenceRuns} and labeled by the {@link DilationLabeler}.
+	 * @see #TiledComparison(PixelDistance, int, int, int, boolean, RegionMask, boolean)
+	 */
+	TiledComparison(PixelDistance pixelDistance, int threshold, int parallelism, int tileSize, boolean blockPrefilter,
+			RegionMask regions, boolean runLengthEncoding, boolean dilation) {
+		this(pixelDistance, threshold, parallelism, tileSize, blockPrefilter, regions, runLengthEncoding, dilation, null);
+	}
+
+	/**
+	 * @param pool
+	 * 		the pool of the tasks, {@code null} means the pool of the parallelism which is shared by all comparisons.
+	 * @see #TiledComparison(PixelDistance, int, int, int, boolean, RegionMask, boolean, boolean)
+	 */
+	TiledComparison(PixelDistance pixelDistance, int threshold, int parallelism, int tileSize, boolean blockPrefilter,
+			RegionMask regions, boolean runLengthEncoding, boolean dilation, ForkJoinPool pool) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism should be positive, but was " + parallelism);
+		}
+		if (tileSize < 1) {
+			throw new IllegalArgumentException("The tile size should be positive, but was " + tileSize);
+		}
+		this.pixelDistance = pixelDistance;
+		this.threshold = threshold;
+		this.parallelism = parallelism;
+		this.tileSize = tileSize;
+		this.blockPrefilter = blockPrefilter;
+		this.regions = regions;
+		this.runLengthEncoding = runLengthEncoding;
+		this.dilation = dilation;
+		this.pool = pool != null ? pool : sharedPool(parallelism);
+	}
+
+	/**
+	 * @return the pool of the parallelism which is shared by all comparisons.
+	 */
+	static ForkJoinPool sharedPool(int parallelism) {
+		return POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+	}
+
+	/**
+	 * Populate and label the mask of the differences.
+	 *
+	 * @param image1
+	 *        {@link BufferedImage} object of the first image.
+	 * @param image2
+	 *        {@link BufferedImage} object of the second image, of the same size.
+	 * @return the bounds of the found regions.
+	 * @see RegionLabeler#labelRegions(DifferenceMask, int)
+	 */
+	RegionBounds compare(BufferedImage image1, BufferedImage image2) {
+		return compare(image1, image2, new ComparisonStats());
+	}
+
+	/**
+	 * Populate and label the mask of the differences, with the timings of the stages.
+	 *
+	 * @param image1
+	 *        {@link BufferedImage} object of the first image.
+	 * @param image2
+	 *        {@link BufferedImage} object of the second image, of the same size.
+	 * @param stats
+	 * 		the stats which get the times of the stages, summed over the threads, and the bytes of the working buffers.
+	 * @return the bounds of the found regions.
+	 */
+	RegionBounds compare(BufferedImage image1, BufferedImage image2, ComparisonStats stats) {
+		return compare(PixelRowReader.forImage(image1), PixelRowReader.forImage(image2), stats);
+	}
+
+	/**
+	 * Populate and label the mask of the differences of the images of the same size, with the timings of the stages.
+	 * The readers are shared by the tasks.
+	 *
+	 * @see #compare(BufferedImage, BufferedImage, ComparisonStats)
+	 */
+	RegionBounds compare(PixelRowReader reader1, PixelRowReader reader2, ComparisonStats stats) {
+		return compare(reader1, reader2, stats, null);
+	}
+
+	/**
+	 * Populate and label the mask of the differences until the deadline expires. Every task checks the deadline
+	 * before it populates its strip, the strips of the late tasks stay empty. The tasks run in any order, so the
+	 * compared strips are not a prefix of the image: the skipped ones can be anywhere, between the compared ones. The
+	 * count of the compared rows is set to the stats, it says how many rows were compared, not which ones.
+	 *
+	 * @param deadline
+	 * 		the time budget of the comparison, {@code null} if there is no one.
+	 * @see #compare(PixelRowReader, PixelRowReader, ComparisonStats)
+	 */
+	RegionBounds compare(PixelRowReader reader1, PixelRowReader reader2, ComparisonStats stats, ComparisonDeadline deadline) {
+		if (runLengthEncoding || dilation) {
+			return compareRuns(reader1, reader2, stats, deadline);
+		}
+		DifferenceMask mask = new DifferenceMask(reader1.getWidth(), reader1.getToY());
+		RegionLabeler labeler = new RegionLabeler(threshold);
+		AtomicLong differenceNanos = new AtomicLong();
+		AtomicLong labelingNanos = new AtomicLong();
+		AtomicInteger comparedRows = new AtomicInteger();
+		List<Runnable> tasks = new ArrayList<>();
+		for (int y = 0; y < mask.getToY(); y += tileSize) {
+			int fromY = y;
+			int toY = Math.min(y + tileSize, mask.getToY());
+			RegionLabeler.Strip strip = labeler.addStrip(mask, fromY, toY);
+			tasks.add(() -> {
+				if (deadline != null && deadline.isExpired()) {
+					// the new mask is empty, the strip is labeled only for its seams
+					strip.label();
+					return;
+				}
+				comparedRows.addAndGet(toY - fromY);
+				long start = System.nanoTime();
+				if (blockPrefilter) {
+					WorkingBuffers buffers = WorkingBuffers.acquire();
+					try {
+						BlockPrefilter.populateTheMatrixOfTheDifferences(mask, reader1, reader2, pixelDistance, fromY, toY, buffers);
+					} finally {
+						buffers.release();
+					}
+					if (regions != null) {
+						regions.clearIgnored(mask, fromY, toY);
+					}
+				} else if (regions != null) {
+					populateTheMatrixOfTheDifferences(mask, reader1, reader2, pixelDistance, regions, fromY, toY,
+							new int[mask.getWidth()], new int[mask.getWidth()]);
+				} else {
+					populateTheMatrixOfTheDifferences(mask, reader1, reader2, pixelDistance, fromY, toY);
+				}
+				long populated = System.nanoTime();
+				strip.label();
+				differenceNanos.addAndGet(populated - start);
+				labelingNanos.addAndGet(System.nanoTime() - populated);
+			});
+		}
+
+		invokeAll(pool, tasks);
+		long start = System.nanoTime();
+		RegionBounds regions = labeler.mergeStrips();
+		stats.setComparedRowCount(comparedRows.get());
+		stats.setDifferenceNanos(differenceNanos.get());
+		stats.setLabelingNanos(labelingNanos.get() + System.nanoTime() - start);
+		// every task has its own row buffers
+		long rowBufferBytes = blockPrefilter ? BlockPrefilter.getRowBufferBytes(mask.getWidth()) : ImageComparisonTools.getRowBufferBytes(mask.getWidth());
+		stats.setWorkingBufferBytes(mask.getByteCount() + rowBufferBytes * tasks.size());
+		return regions;
+	}
+
+	/**
+	 * Collect the runs of the strips in parallel and label them at once.
+	 */
+	private RegionBounds compareRuns(PixelRowReader reader1, PixelRowReader reader2, ComparisonStats stats,
+			ComparisonDeadline deadline) {
+		int width = reader1.getWidth();
+		int height = reader1.getToY();
+		DifferenceRuns[] strips = new DifferenceRuns[(height + tileSize - 1) / tileSize];
+		AtomicLong differenceNanos = new AtomicLong();
+		AtomicInteger comparedRows = new AtomicInteger();
+		List<Runnable> tasks = new ArrayList<>();
+		for (int y = 0; y < height; y += tileSize) {
+			int fromY = y;
+			int toY = Math.min(y + tileSize, height);
+			int index = y / tileSize;
+			tasks.add(() -> {
+				DifferenceRuns strip;
+				if (deadline != null && deadline.isExpired()) {
+					// the empty rows of the strip
+					strip = new DifferenceRuns(width, fromY, toY);
+					for (int row = fromY; row < toY; row++) {
+						strip.endRow();
+					}
+					strips[index] = strip;
+					return;
+				}
+				comparedRows.addAndGet(toY - fromY);
+				long start = System.nanoTime();
+				if (blockPrefilter) {
+					DifferenceMask mask = new DifferenceMask(width, fromY, toY);
+					WorkingBuffers buffers = WorkingBuffers.acquire();
+					try {
+						BlockPrefilter.populateTheMatrixOfTheDifferences(mask, reader1, reader2, pixelDistance, fromY, toY, buffers);
+					} finally {
+						buffers.release();
+					}
+					if (regions != null) {
+						regions.clearIgnored(mask, fromY, toY);
+					}
+					strip = DifferenceRuns.of(mask);
+				} else {
+					strip = new DifferenceRuns(width, fromY, toY);
+					populateTheRunsOfTheDifferences(strip, reader1, reader2, pixelDistance, regions, fromY, toY,
+							new int[width], new int[width]);
+				}
+				strips[index] = strip;
+				differenceNanos.addAndGet(System.nanoTime() - start);
+			});
+		}
+
+		invokeAll(pool, tasks);
+		long start = System.nanoTime();
+		DifferenceRuns runs = new DifferenceRuns(width, 0, height);
+		for (DifferenceRuns strip : strips) {
+			runs.append(strip);
+		}
+		RegionBounds regionBounds = dilation
+				? DilationLabeler.labelRegions(runs, threshold)
+				: RunLabeler.labelRegions(runs, threshold);
+		stats.setComparedRowCount(comparedRows.get());
+		stats.setDifferenceNanos(differenceNanos.get());
+		stats.setLabelingNanos(System.nanoTime() - start);
+		long rowBufferBytes = blockPrefilter ? BlockPrefilter.getRowBufferBytes(width) : ImageComparisonTools.getRowBufferBytes(width);
+		stats.setWorkingBufferBytes(2 * runs.getByteCount() + rowBufferBytes * tasks.size());
+		return regionBounds;
+	}
+
+	private static void invokeAll(ForkJoinPool pool, List<Runnable> tasks) {
+		List<ForkJoinTask<?>> forkJoinTasks = new ArrayList<>();
+		tasks.forEach(task -> forkJoinTasks.add(ForkJoinTask.adapt(task)));
+		pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(forkJoinTasks)));
+	}
+}
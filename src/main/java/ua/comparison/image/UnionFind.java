@@ -0,0 +1,95 @@
+package ua.comparison.image;
+
+import java.util.Arrays;
+
+/**
+ * Equivalence table of provisional region labels. Labels are dense numbers beginning from 0.
+ * All operations are iterative, so the stack depth doesn't depend on the size of the regions.
+ */
+final class UnionFind {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The parent of every label, roots point to themselves.
+	 */
+	private int[] parent;
+	/**
+	 * The number of created labels.
+	 */
+	private int size;
+
+	UnionFind() {
+		this(INITIAL_CAPACITY);
+	}
+
+	UnionFind(int capacity) {
+		parent = new int[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Create a new label which is equivalent only to itself.
+	 *
+	 * @return the new label.
+	 */
+	int makeLabel() {
+		if (size == parent.length) {
+			parent = Arrays.copyOf(parent, parent.length * 2);
+		}
+		parent[size] = size;
+		return size++;
+	}
+
+	/**
+	 * Find the representative label of the provided one. The path is halved on the way.
+	 *
+	 * @param label
+	 * 		the label to resolve.
+	 * @return the root label.
+	 */
+	int find(int label) {
+		while (parent[label] != label) {
+			parent[label] = parent[parent[label]];
+			label = parent[label];
+		}
+		return label;
+	}
+
+	/**
+	 * Mark two labels as equivalent. The smaller root stays the root, so the root of a set is always its
+	 * first created label.
+	 *
+	 * @return the root of the joined set.
+	 */
+	int union(int label1, int label2) {
+		int root1 = find(label1);
+		int root2 = find(label2);
+		if (root1 < root2) {
+			parent[root2] = root1;
+			return root1;
+		}
+		parent[root1] = root2;
+		return root2;
+	}
+
+	/**
+	 * Remove all labels, the table keeps its capacity.
+	 */
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return the count of the bytes of the table.
+	 */
+	long getByteCount() {
+		return (long) parent.length * Integer.BYTES;
+	}
+
+	/**
+	 * @return the number of created labels.
+	 */
+	int size() {
+		return size;
+	}
+}
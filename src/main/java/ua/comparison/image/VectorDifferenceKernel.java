@@ -0,0 +1,54 @@
+package ua.comparison.image;
+
+/**
+ * The SIMD kernel of the {@link EuclideanPixelDistance}, which compares many pixels of a row per instruction.
+ * <p>
+ * This is the Java 8 version, which is never available and compares the pixels one by one, the same as the tail of
+ * a row in the vector version. The multi-release jar
+ * replaces it on Java 17 and newer by the version of {@code src/main/java17}, which is built on the
+ * {@code jdk.incubator.vector} module; it's available only if the module is added by
+ * {@code --add-modules jdk.incubator.vector}.
+ */
+final class VectorDifferenceKernel {
+
+	private VectorDifferenceKernel() {
+	}
+
+	/**
+	 * @return if the kernel can be used.
+	 */
+	static boolean isAvailable() {
+		return false;
+	}
+
+	/**
+	 * Populate one row of the mask, the same as {@link EuclideanPixelDistance#isDifferent(int, int)} for every pixel.
+	 *
+	 * @param mask
+	 * 		the mask to be populated.
+	 * @param y
+	 * 		the row.
+	 * @param row1
+	 * 		the pixels of the row of the first image.
+	 * @param row2
+	 * 		the pixels of the row of the second image.
+	 * @param maxEqualSquaredDistance
+	 * 		the biggest squared distance which still means the pixels are equal.
+	 */
+	static void populateRow(DifferenceMask mask, int y, int[] row1, int[] row2, int maxEqualSquaredDistance) {
+		int width = mask.getWidth();
+		for (int wordStart = 0; wordStart < width; wordStart += 64) {
+			int wordEnd = Math.min(wordStart + 64, width);
+			long bits = 0;
+			for (int x = wordStart; x < wordEnd; x++) {
+				int red = ((row1[x] >> 16) & 0xff) - ((row2[x] >> 16) & 0xff);
+				int green = ((row1[x] >> 8) & 0xff) - ((row2[x] >> 8) & 0xff);
+				int blue = (row1[x] & 0xff) - (row2[x] & 0xff);
+				if (red * red + green * green + blue * blue > maxEqualSquaredDistance) {
+					bits |= 1L << x;
+				}
+			}
+			mask.setWord(y, wordStart >>> 6, bits);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package ua.comparison.image;
+
+/**
+ * The working buffers of the sequential comparison, which are reused by the next comparisons in the same thread.
+ * The buffers are not cleared: the mask is overwritten row by row, the labels are read only where the mask is set,
+ * so they are always written before.
+ */
+final class WorkingBuffers {
+
+	private static final ThreadLocal<WorkingBuffers> BUFFERS = ThreadLocal.withInitial(WorkingBuffers::new);
+
+	private static final int[] EMPTY = new int[0];
+
+	private DifferenceMask mask;
+	private int[] row1 = EMPTY;
+	private int[] row2 = EMPTY;
+	private int[] labelWindow = EMPTY;
+	private int[] headLabels = EMPTY;
+	private int[] finalRegions = EMPTY;
+	private int[][] blockRows = new int[2 * BlockPrefilter.BLOCK][0];
+	private int[] blockChanges = EMPTY;
+	private final UnionFind stripEquivalences = new UnionFind();
+	private final UnionFind equivalences = new UnionFind();
+	private final RegionBounds stripBounds = new RegionBounds();
+	private final RegionBounds regions = new RegionBounds();
+	/**
+	 * If the buffers are used by a comparison, so a nested comparison in the same thread needs other ones.
+	 */
+	private boolean inUse;
+
+	/**
+	 * Take the buffers of the current thread. They should be given back by {@link #release()}.
+	 *
+	 * @return the buffers of the thread, or new ones if they are in use.
+	 */
+	static WorkingBuffers acquire() {
+		WorkingBuffers buffers = BUFFERS.get();
+		if (buffers.inUse) {
+			buffers = new WorkingBuffers();
+		}
+		buffers.inUse = true;
+		return buffers;
+	}
+
+	void release() {
+		inUse = false;
+	}
+
+	/**
+	 * @return the mask of the image, its content is undefined.
+	 */
+	DifferenceMask mask(int width, int height) {
+		if (mask == null || mask.getWidth() != width || mask.getFromY() != 0 || mask.getToY() != height) {
+			mask = new DifferenceMask(width, height);
+		}
+		return mask;
+	}
+
+	int[] row1(int width) {
+		return row1 = ensureLength(row1, width);
+	}
+
+	int[] row2(int width) {
+		return row2 = ensureLength(row2, width);
+	}
+
+	int[] labelWindow(int length) {
+		return labelWindow = ensureLength(labelWindow, length);
+	}
+
+	int[] headLabels(int length) {
+		return headLabels = ensureLength(headLabels, length);
+	}
+
+	int[] finalRegions(int length) {
+		return finalRegions = ensureLength(finalRegions, length);
+	}
+
+	/**
+	 * @return the rows of one band of the {@link BlockPrefilter}, the ones of the first image, then the ones of the
+	 * second image.
+	 */
+	int[][] blockRows(int width) {
+		if (blockRows[0].length < width) {
+			blockRows = new int[2 * BlockPrefilter.BLOCK][width];
+		}
+		return blockRows;
+	}
+
+	int[] blockChanges(int length) {
+		return blockChanges = ensureLength(blockChanges, length);
+	}
+
+	UnionFind stripEquivalences() {
+		stripEquivalences.clear();
+		return stripEquivalences;
+	}
+
+	UnionFind equivalences() {
+		equivalences.clear();
+		return equivalences;
+	}
+
+	RegionBounds stripBounds() {
+		stripBounds.clear();
+		return stripBounds;
+	}
+
+	RegionBounds regions() {
+		regions.clear();
+		return regions;
+	}
+
+	/**
+	 * @return the count of the bytes of all buffers.
+	 */
+	long getByteCount() {
+		long bytes = (long) Integer.BYTES * (row1.length + row2.length + labelWindow.length + headLabels.length + finalRegions.length
+				+ blockRows.length * blockRows[0].length + blockChanges.length)
+				+ stripEquivalences.getByteCount() + equivalences.getByteCount() + stripBounds.getByteCount() + regions.getByteCount();
+		return mask == null ? bytes : bytes + mask.getByteCount();
+	}
+
+	private static int[] ensureLength(int[] array, int length) {
+		return array.length >= length ? array : new int[length];
+	}
+}
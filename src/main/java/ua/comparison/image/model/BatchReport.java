@@ -0,0 +1,113 @@
+package ua.comparison.image.model;
+
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The results of the comparison of many {@link ImagePair}s, in the order of the pairs.
+ */
+public class BatchReport {
+
+	private final List<Entry> entries;
+
+	public BatchReport(List<Entry> entries) {
+		this.entries = Collections.unmodifiableList(entries);
+	}
+
+	public List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @return the count of the pairs of the matching images.
+	 */
+	public long getMatchCount() {
+		return count(ComparisonResult.CheckResult.Match);
+	}
+
+	/**
+	 * @return the count of the pairs of the different images, including the ones of the different sizes.
+	 */
+	public long getMismatchCount() {
+		return count(ComparisonResult.CheckResult.ImageMissmatch) + count(ComparisonResult.CheckResult.ImageSizeMissmatch);
+	}
+
+	/**
+	 * @return the count of the pairs which could not be compared.
+	 */
+	public long getFailureCount() {
+		return entries.stream().filter(Entry::isFailed).count();
+	}
+
+	/**
+	 * @return the entries of the pairs which are different or could not be compared.
+	 */
+	public List<Entry> getProblems() {
+		return entries.stream()
+					  .filter(entry -> entry.isFailed() || entry.getResult().getCheckResult() != ComparisonResult.CheckResult.Match)
+					  .collect(toList());
+	}
+
+	private long count(ComparisonResult.CheckResult checkResult) {
+		return entries.stream().filter(entry -> !entry.isFailed() && entry.getResult().getCheckResult() == checkResult).count();
+	}
+
+	@Override
+	public String toString() {
+		return "BatchReport{" + "pairs=" + entries.size() + ", matches=" + getMatchCount() + ", mismatches=" + getMismatchCount()
+				+ ", failures=" + getFailureCount() + '}';
+	}
+
+	/**
+	 * The result of one pair, either the {@link ComparisonResult} or the failure.
+	 */
+	public static class Entry {
+
+		private final ImagePair pair;
+		private final ComparisonResult result;
+		private final Throwable failure;
+
+		private Entry(ImagePair pair, ComparisonResult result, Throwable failure) {
+			this.pair = pair;
+			this.result = result;
+			this.failure = failure;
+		}
+
+		public static Entry compared(ImagePair pair, ComparisonResult result) {
+			return new Entry(pair, result, null);
+		}
+
+		public static Entry failed(ImagePair pair, Throwable failure) {
+			return new Entry(pair, null, failure);
+		}
+
+		public ImagePair getPair() {
+			return pair;
+		}
+
+		/**
+		 * @return the result of the comparison, {@code null} if it's failed.
+		 */
+		public ComparisonResult getResult() {
+			return result;
+		}
+
+		/**
+		 * @return the cause of the failure, {@code null} if the images are compared.
+		 */
+		public Throwable getFailure() {
+			return failure;
+		}
+
+		public boolean isFailed() {
+			return failure != null;
+		}
+
+		@Override
+		public String toString() {
+			return "Entry{" + pair.getName() + ": " + (isFailed() ? failure : result) + '}';
+		}
+	}
+}
@@ -11,24 +11,49 @@ public class ComparisonResult {
 
 	public final CheckResult checkResult;
 	private final List<Rectangle> differences;
+	private final ComparisonStats stats;
+	/**
+	 * The compared part of the image, from "0" to "1".
+	 */
+	private final double coverage;
 
 	public enum CheckResult {
 		ImageSizeMissmatch,
 		Match,
-		ImageMissmatch
+		ImageMissmatch,
+		/**
+		 * The comparison was stopped by its deadline without a difference in the compared part of the image, so it's
+		 * not known if the images match.
+		 */
+		Incomplete
 	}
 
-	private ComparisonResult(CheckResult checkResult, List<Rectangle> differences) {
+	private ComparisonResult(CheckResult checkResult, List<Rectangle> differences, ComparisonStats stats, double coverage) {
 		this.checkResult = checkResult;
 		this.differences = differences;
+		this.stats = stats;
+		this.coverage = coverage;
 	}
 
 	public ComparisonResult(List<Rectangle> differences) {
-		this(differences.isEmpty() ? CheckResult.Match : CheckResult.ImageMissmatch, differences);
+		this(differences, new ComparisonStats());
+	}
+
+	public ComparisonResult(List<Rectangle> differences, ComparisonStats stats) {
+		this(differences, stats, 1);
+	}
+
+	/**
+	 * @param coverage
+	 * 		the compared part of the image, from "0" to "1". The result is partial if it's less than "1".
+	 */
+	public ComparisonResult(List<Rectangle> differences, ComparisonStats stats, double coverage) {
+		this(!differences.isEmpty() ? CheckResult.ImageMissmatch : coverage < 1 ? CheckResult.Incomplete : CheckResult.Match,
+				differences, stats, coverage);
 	}
 
 	public static ComparisonResult sizeMissmatch() {
-		return new ComparisonResult(CheckResult.ImageSizeMissmatch, new ArrayList<>());
+		return new ComparisonResult(CheckResult.ImageSizeMissmatch, new ArrayList<>(), new ComparisonStats(), 1);
 	}
 
 	public CheckResult getCheckResult() {
@@ -39,6 +64,30 @@ public class ComparisonResult {
 		return differences;
 	}
 
+	/**
+	 * @return the timings and the counters of the comparison, all "0" if they are not measured.
+	 */
+	public ComparisonStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * @return the compared part of the image, from "0" to "1". The sequential comparison compares the rows from the
+	 * top, so the first rows are compared; the parallel comparison compares the strips in any order, so the compared
+	 * rows can have gaps.
+	 */
+	public double getCoverage() {
+		return coverage;
+	}
+
+	/**
+	 * @return {@code true} if the comparison was stopped by its deadline. The differences are the ones of the compared
+	 * part of the image; without them the result is {@link CheckResult#Incomplete}, never {@link CheckResult#Match}.
+	 */
+	public boolean isPartial() {
+		return coverage < 1;
+	}
+
 	/**
 	 * @return sorted list differences, starting with the biggest.
 	 */
@@ -67,6 +116,7 @@ public class ComparisonResult {
 
 	@Override
 	public String toString() {
-		return "ComparisonResult{" + "checkResult=" + checkResult + ", differences=" + differences.size() + '}';
+		return "ComparisonResult{" + "checkResult=" + checkResult + ", differences=" + differences.size()
+				+ (isPartial() ? ", coverage=" + coverage : "") + '}';
 	}
 }
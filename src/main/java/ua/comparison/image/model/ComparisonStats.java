@@ -0,0 +1,148 @@
+package ua.comparison.image.model;
+
+/**
+ * The timings and the counters of one comparison. The timings are in nanoseconds, a stage which is not done, like
+ * the decoding of the images which are provided already decoded, takes "0".
+ */
+public class ComparisonStats {
+
+	private long decodeNanos;
+	private long differenceNanos;
+	private long labelingNanos;
+	private long rectanglesNanos;
+	private long renderNanos;
+	private long differentPixelCount;
+	private int regionCount;
+	private int rectangleCount;
+	private long workingBufferBytes;
+	private int comparedRowCount;
+
+	/**
+	 * @return the time of the decoding of the image files.
+	 */
+	public long getDecodeNanos() {
+		return decodeNanos;
+	}
+
+	public void setDecodeNanos(long decodeNanos) {
+		this.decodeNanos = decodeNanos;
+	}
+
+	/**
+	 * @return the time of finding the different pixels. For the parallel comparison it's the sum of all threads.
+	 */
+	public long getDifferenceNanos() {
+		return differenceNanos;
+	}
+
+	public void setDifferenceNanos(long differenceNanos) {
+		this.differenceNanos = differenceNanos;
+	}
+
+	/**
+	 * @return the time of grouping the different pixels into the regions. For the parallel comparison it's the sum of
+	 * all threads.
+	 */
+	public long getLabelingNanos() {
+		return labelingNanos;
+	}
+
+	public void setLabelingNanos(long labelingNanos) {
+		this.labelingNanos = labelingNanos;
+	}
+
+	/**
+	 * @return the time of creating the rectangles of the regions.
+	 */
+	public long getRectanglesNanos() {
+		return rectanglesNanos;
+	}
+
+	public void setRectanglesNanos(long rectanglesNanos) {
+		this.rectanglesNanos = rectanglesNanos;
+	}
+
+	/**
+	 * @return the time of the last drawing of the differences, "0" if they are not drawn.
+	 */
+	public long getRenderNanos() {
+		return renderNanos;
+	}
+
+	public void setRenderNanos(long renderNanos) {
+		this.renderNanos = renderNanos;
+	}
+
+	/**
+	 * @return the sum of the times of all stages.
+	 */
+	public long getTotalNanos() {
+		return decodeNanos + differenceNanos + labelingNanos + rectanglesNanos + renderNanos;
+	}
+
+	/**
+	 * @return the count of the different pixels.
+	 */
+	public long getDifferentPixelCount() {
+		return differentPixelCount;
+	}
+
+	public void setDifferentPixelCount(long differentPixelCount) {
+		this.differentPixelCount = differentPixelCount;
+	}
+
+	/**
+	 * @return the count of the regions, before the small ones are filtered out.
+	 */
+	public int getRegionCount() {
+		return regionCount;
+	}
+
+	public void setRegionCount(int regionCount) {
+		this.regionCount = regionCount;
+	}
+
+	/**
+	 * @return the count of the rectangles which are not smaller than the minimum rectangle size.
+	 */
+	public int getRectangleCount() {
+		return rectangleCount;
+	}
+
+	public void setRectangleCount(int rectangleCount) {
+		this.rectangleCount = rectangleCount;
+	}
+
+	/**
+	 * @return the count of the bytes of the working buffers: the mask of the different pixels, the row buffers and
+	 * the table of the regions.
+	 */
+	public long getWorkingBufferBytes() {
+		return workingBufferBytes;
+	}
+
+	public void setWorkingBufferBytes(long workingBufferBytes) {
+		this.workingBufferBytes = workingBufferBytes;
+	}
+
+	/**
+	 * @return the count of the compared rows, less than the height of the images if the comparison was stopped by
+	 * its deadline. The rows of a parallel comparison are not always the first ones.
+	 */
+	public int getComparedRowCount() {
+		return comparedRowCount;
+	}
+
+	public void setComparedRowCount(int comparedRowCount) {
+		this.comparedRowCount = comparedRowCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ComparisonStats{" + "decodeNanos=" + decodeNanos + ", differenceNanos=" + differenceNanos
+				+ ", labelingNanos=" + labelingNanos + ", rectanglesNanos=" + rectanglesNanos + ", renderNanos=" + renderNanos
+				+ ", differentPixelCount=" + differentPixelCount + ", regionCount=" + regionCount
+				+ ", rectangleCount=" + rectangleCount + ", workingBufferBytes=" + workingBufferBytes
+				+ ", comparedRowCount=" + comparedRowCount + '}';
+	}
+}
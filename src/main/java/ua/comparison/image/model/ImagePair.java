@@ -0,0 +1,57 @@
+package ua.comparison.image.model;
+
+import java.io.File;
+import java.util.Objects;
+
+/**
+ * Two image files which should be compared, for example a baseline and a candidate screenshot.
+ */
+public class ImagePair {
+
+	/**
+	 * The name of the pair, for example the path relative to the compared directories.
+	 */
+	private final String name;
+	private final File image1;
+	private final File image2;
+
+	public ImagePair(String name, File image1, File image2) {
+		this.name = name;
+		this.image1 = image1;
+		this.image2 = image2;
+	}
+
+	public ImagePair(File image1, File image2) {
+		this(image2.getName(), image1, image2);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public File getImage1() {
+		return image1;
+	}
+
+	public File getImage2() {
+		return image2;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) { return true; }
+		if (o == null || getClass() != o.getClass()) { return false; }
+		ImagePair imagePair = (ImagePair) o;
+		return name.equals(imagePair.name) && image1.equals(imagePair.image1) && image2.equals(imagePair.image2);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(name, image1, image2);
+	}
+
+	@Override
+	public String toString() {
+		return "ImagePair{" + name + ": " + image1 + " vs " + image2 + '}';
+	}
+}
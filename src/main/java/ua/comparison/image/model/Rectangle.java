@@ -45,15 +45,37 @@ public class Rectangle implements Comparable<Rectangle>{
     }
 
     public boolean isOverlapping(Rectangle that) {
-        if (this.maxY < that.minY || that.maxY < this.minY) {
+        return isOverlapping(that, 0);
+    }
+
+    /**
+     * Check if the rectangles overlap or are not more than the gap apart in both directions.
+     *
+     * @param that the other rectangle.
+     * @param gap the max count of the pixels between the rectangles, "0" means they should overlap or touch: the
+     * rectangles which end and begin on the neighbour rows or columns are close enough.
+     */
+    public boolean isOverlapping(Rectangle that, int gap) {
+        if ((long) this.maxY + gap + 1 < that.minY || (long) that.maxY + gap + 1 < this.minY) {
             return false;
         }
-        if (this.maxX < that.minX || that.maxX < this.minX) {
+        if ((long) this.maxX + gap + 1 < that.minX || (long) that.maxX + gap + 1 < this.minX) {
             return false;
         }
         return true;
     }
 
+    /**
+     * Extend this rectangle to the bounding rectangle of both. Unlike {@link #merge(Rectangle)}, which only drops a
+     * rectangle contained in the other one, it always changes this rectangle.
+     */
+    public void extendTo(Rectangle that) {
+        this.minX = Math.min(this.minX, that.minX);
+        this.minY = Math.min(this.minY, that.minY);
+        this.maxX = Math.max(this.maxX, that.maxX);
+        this.maxY = Math.max(this.maxY, that.maxY);
+    }
+
     public void setDefaultValues() {
         this.maxX = Integer.MIN_VALUE;
         this.maxY = Integer.MIN_VALUE;
@@ -0,0 +1,77 @@
+package ua.comparison.image;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SIMD kernel of the {@link EuclideanPixelDistance}, which compares many pixels of a row per instruction.
+ * <p>
+ * This is the Java 17 version of the multi-release jar. The channels of a whole vector of pixels are unpacked at once
+ * and their squared distances are tested by one compare, its mask becomes the bits of the {@link DifferenceMask}.
+ * The species fits the widest vectors of the CPU, its length always divides the 64 pixels of a word of the mask.
+ * The rest of the last word is compared one by one.
+ */
+final class VectorDifferenceKernel {
+
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	private VectorDifferenceKernel() {
+	}
+
+	/**
+	 * @return if the kernel can be used, the class can't be initialized without the {@code jdk.incubator.vector}
+	 * module.
+	 */
+	static boolean isAvailable() {
+		return SPECIES.length() > 1 && 64 % SPECIES.length() == 0;
+	}
+
+	/**
+	 * Populate one row of the mask, the same as {@link EuclideanPixelDistance#isDifferent(int, int)} for every pixel.
+	 *
+	 * @param mask
+	 * 		the mask to be populated.
+	 * @param y
+	 * 		the row.
+	 * @param row1
+	 * 		the pixels of the row of the first image.
+	 * @param row2
+	 * 		the pixels of the row of the second image.
+	 * @param maxEqualSquaredDistance
+	 * 		the biggest squared distance which still means the pixels are equal.
+	 */
+	static void populateRow(DifferenceMask mask, int y, int[] row1, int[] row2, int maxEqualSquaredDistance) {
+		int width = mask.getWidth();
+		int lanes = SPECIES.length();
+		for (int wordStart = 0; wordStart < width; wordStart += 64) {
+			int wordEnd = Math.min(wordStart + 64, width);
+			long bits = 0;
+			int x = wordStart;
+			for (; x + lanes <= wordEnd; x += lanes) {
+				IntVector pixels1 = IntVector.fromArray(SPECIES, row1, x);
+				IntVector pixels2 = IntVector.fromArray(SPECIES, row2, x);
+				IntVector red = channel(pixels1, 16).sub(channel(pixels2, 16));
+				IntVector green = channel(pixels1, 8).sub(channel(pixels2, 8));
+				IntVector blue = pixels1.and(0xff).sub(pixels2.and(0xff));
+				IntVector squaredDistance = red.mul(red).add(green.mul(green)).add(blue.mul(blue));
+				VectorMask<Integer> different = squaredDistance.compare(VectorOperators.GT, maxEqualSquaredDistance);
+				bits |= different.toLong() << (x - wordStart);
+			}
+			for (; x < wordEnd; x++) {
+				int red = ((row1[x] >> 16) & 0xff) - ((row2[x] >> 16) & 0xff);
+				int green = ((row1[x] >> 8) & 0xff) - ((row2[x] >> 8) & 0xff);
+				int blue = (row1[x] & 0xff) - (row2[x] & 0xff);
+				if (red * red + green * green + blue * blue > maxEqualSquaredDistance) {
+					bits |= 1L << x;
+				}
+			}
+			mask.setWord(y, wordStart >>> 6, bits);
+		}
+	}
+
+	private static IntVector channel(IntVector pixels, int shift) {
+		return pixels.lanewise(VectorOperators.LSHR, shift).and(0xff);
+	}
+}
@@ -0,0 +1,124 @@
+package ua.comparison.image;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ua.comparison.image.model.ComparisonResult;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit-level testing for {@link AsyncImageWriter} object.
+ */
+public class AsyncImageWriterUnitTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testAllQueuedImagesAreWritten() throws Exception {
+		BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+		List<CompletableFuture<File>> written = new ArrayList<>();
+		try (AsyncImageWriter writer = new AsyncImageWriter(2, 3)) {
+			for (int i = 0; i < 10; i++) {
+				written.add(writer.write(image, new File(temporaryFolder.getRoot(), i + ".png"), ImageOutput.png(1)));
+			}
+			writer.awaitWritten();
+			for (CompletableFuture<File> file : written) {
+				assertTrue(file.isDone());
+				assertTrue(file.get().isFile());
+			}
+		}
+	}
+
+	@Test
+	public void testFailureIsReported() throws InterruptedException {
+		AsyncImageWriter writer = new AsyncImageWriter();
+		try {
+			// a directory can't be written as a file
+			writer.write(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), temporaryFolder.getRoot(), ImageOutput.pam());
+			writer.awaitWritten();
+			fail("The failure is not reported");
+		} catch (IOException e) {
+			// expected
+		} finally {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				fail("The failure is reported twice");
+			}
+		}
+	}
+
+	@Test
+	public void testRuntimeFailureIsReported() throws IOException, InterruptedException {
+		try (AsyncImageWriter writer = new AsyncImageWriter()) {
+			// the directory of the file can't be created under a file
+			File file = new File(temporaryFolder.newFile("file"), "image.pam");
+			CompletableFuture<File> written = writer.write(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), file, ImageOutput.pam());
+			try {
+				writer.awaitWritten();
+				fail("The failure is not reported");
+			} catch (RuntimeException e) {
+				assertTrue(written.isCompletedExceptionally());
+			}
+		}
+	}
+
+	@Test
+	public void testErrorIsReportedByClose() throws InterruptedException {
+		BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB) {
+			@Override
+			public int getWidth() {
+				throw new OutOfMemoryError("Expected");
+			}
+		};
+		AsyncImageWriter writer = new AsyncImageWriter();
+		CompletableFuture<File> written = writer.write(image, new File(temporaryFolder.getRoot(), "image.pam"), ImageOutput.pam());
+		try {
+			writer.close();
+			fail("The error is not reported");
+		} catch (IOException e) {
+			fail(e.toString());
+		} catch (OutOfMemoryError e) {
+			assertEquals("Expected", e.getMessage());
+		}
+		assertTrue(written.isCompletedExceptionally());
+	}
+
+	@Test
+	public void testInterruptedCloseKeepsInterruptStatus() throws IOException, InterruptedException {
+		AsyncImageWriter writer = new AsyncImageWriter();
+		writer.write(new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB), new File(temporaryFolder.getRoot(), "image.png"),
+				ImageOutput.png());
+		Thread.currentThread().interrupt();
+		try {
+			writer.close();
+			assertTrue(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
+	@Test
+	public void testResultIsReturnedBeforeWriting() throws Exception {
+		ImageComparison imageComparison = new ImageComparison("image1.png", "image2.png");
+		File destination = new File(temporaryFolder.getRoot(), "result.png");
+		try (AsyncImageWriter writer = new AsyncImageWriter()) {
+			ComparisonResult result = imageComparison.writeImageComparison(destination, Integer.MAX_VALUE, ImageOutput.png(), writer);
+
+			assertEquals(imageComparison.compareImages().getDifferences(), result.getDifferences());
+			writer.awaitWritten();
+			assertTrue(destination.isFile());
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package ua.comparison.image;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ua.comparison.image.model.BatchReport;
+import ua.comparison.image.model.ImagePair;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.readImage;
+import static ua.comparison.image.TestSupport.resource;
+import static ua.comparison.image.model.ComparisonResult.CheckResult.ImageMissmatch;
+import static ua.comparison.image.model.ComparisonResult.CheckResult.ImageSizeMissmatch;
+import static ua.comparison.image.model.ComparisonResult.CheckResult.Match;
+
+/**
+ * Unit-level testing for {@link BatchComparison} object.
+ */
+public class BatchComparisonUnitTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testReportInOrderOfPairs() throws URISyntaxException, InterruptedException, IOException {
+		List<ImagePair> pairs = Arrays.asList(
+				new ImagePair("different", resource("image1.png"), resource("image2.png")),
+				new ImagePair("same", resource("image1.png"), resource("image1.png")),
+				new ImagePair("size", resource("image1.png"), resource("b1#21.png")),
+				new ImagePair("missing", resource("image1.png"), new File(temporaryFolder.getRoot(), "missing.png")));
+		BatchComparison batchComparison = new BatchComparison();
+		batchComparison.setMaxDecodedPairs(1);
+
+		BatchReport report = batchComparison.compare(pairs);
+
+		List<BatchReport.Entry> entries = report.getEntries();
+		assertEquals(pairs, entries.stream().map(BatchReport.Entry::getPair).collect(toList()));
+		assertEquals(ImageMissmatch, entries.get(0).getResult().getCheckResult());
+		assertEquals(new ImageComparison("image1.png", "image2.png").compareImages().getDifferences(),
+				entries.get(0).getResult().getDifferences());
+		assertEquals(Match, entries.get(1).getResult().getCheckResult());
+		assertEquals(ImageSizeMissmatch, entries.get(2).getResult().getCheckResult());
+		assertTrue(entries.get(3).isFailed());
+		assertNotNull(entries.get(3).getFailure());
+
+		assertEquals(1, report.getMatchCount());
+		assertEquals(2, report.getMismatchCount());
+		assertEquals(1, report.getFailureCount());
+		assertEquals(3, report.getProblems().size());
+	}
+
+	@Test
+	public void testCompareDirectories() throws URISyntaxException, IOException, InterruptedException {
+		File baselines = temporaryFolder.newFolder("baselines");
+		File candidates = temporaryFolder.newFolder("candidates");
+		File results = temporaryFolder.newFolder("results");
+		copy(resource("image1.png"), new File(baselines, "page/a.png"));
+		copy(resource("image2.png"), new File(candidates, "page/a.png"));
+		copy(resource("image1.png"), new File(baselines, "b.png"));
+		copy(resource("image1.png"), new File(candidates, "b.png"));
+
+		BatchComparison batchComparison = new BatchComparison();
+		batchComparison.setDecodeThreads(2);
+		batchComparison.setCompareThreads(2);
+		batchComparison.setResultDirectory(results);
+		BatchReport report = batchComparison.compareDirectories(baselines, candidates);
+
+		assertEquals(Arrays.asList("b.png", "page/a.png"),
+				report.getEntries().stream().map(entry -> entry.getPair().getName()).collect(toList()));
+		assertEquals(1, report.getMatchCount());
+		assertEquals(1, report.getMismatchCount());
+		assertTrue(new File(results, "page/a.png").isFile());
+		assertFalse(new File(results, "b.png").exists());
+	}
+
+	@Test
+	public void testOptionsOfComparator() throws URISyntaxException, InterruptedException, IOException {
+		List<ImagePair> pairs = Arrays.asList(new ImagePair("different", resource("image1.png"), resource("image2.png")));
+		BatchComparison batchComparison = new BatchComparison();
+		batchComparison.setComparator(new ImageComparator(ComparisonOptions.defaults().withMergeGap(10)));
+
+		BatchReport report = batchComparison.compare(pairs);
+
+		assertEquals(new ImageComparator(ComparisonOptions.defaults().withMergeGap(10))
+						.compare(readImage(resource("image1.png")), readImage(resource("image2.png"))).getDifferences(),
+				report.getEntries().get(0).getResult().getDifferences());
+	}
+
+	@Test
+	public void testOnlyBaselinesAreCached() throws URISyntaxException, InterruptedException, IOException {
+		List<ImagePair> pairs = Arrays.asList(
+				new ImagePair("different", resource("image1.png"), resource("image2.png")),
+				new ImagePair("other", resource("image1.png"), resource("image3.png")));
+		DecodedImageCache baselines = new DecodedImageCache(Long.MAX_VALUE);
+		BatchComparison batchComparison = new BatchComparison();
+		batchComparison.setDecodeThreads(1);
+		batchComparison.setBaselineCache(baselines);
+
+		batchComparison.compare(pairs);
+		batchComparison.compare(pairs);
+
+		assertEquals(1, baselines.size());
+		assertEquals(1, baselines.getMissCount());
+		assertEquals(3, baselines.getHitCount());
+	}
+
+	private static void copy(File source, File target) throws IOException {
+		target.getParentFile().mkdirs();
+		Files.copy(source.toPath(), target.toPath());
+	}
+}
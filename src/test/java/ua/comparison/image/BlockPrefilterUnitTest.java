@@ -0,0 +1,87 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+
+/**
+ * Unit-level testing for {@link BlockPrefilter} object.
+ */
+public class BlockPrefilterUnitTest {
+
+	/**
+	 * The buffers which are reused by all comparisons of the test, of the different widths.
+	 */
+	private final WorkingBuffers buffers = new WorkingBuffers();
+
+	private void assertSameAsExact(BufferedImage image1, BufferedImage image2, PixelDistance pixelDistance) {
+		DifferenceMask expected = ImageComparisonTools.populateTheMatrixOfTheDifferences(image1, image2, pixelDistance);
+		DifferenceMask actual = new DifferenceMask(image1.getWidth(), image1.getHeight());
+		// the old content of a reused mask must be overwritten
+		for (int y = 0; y < image1.getHeight(); y++) {
+			for (int word = 0; word < (image1.getWidth() + 63) / 64; word++) {
+				actual.setWord(y, word, -1L >>> (64 - Math.min(64, image1.getWidth() - word * 64)));
+			}
+		}
+
+		BlockPrefilter.populateTheMatrixOfTheDifferences(actual, PixelRowReader.forImage(image1),
+				PixelRowReader.forImage(image2), pixelDistance, 0, image1.getHeight(), buffers);
+
+		for (int y = 0; y < image1.getHeight(); y++) {
+			for (int x = 0; x < image1.getWidth(); x++) {
+				assertEquals("x = " + x + ", y = " + y, expected.get(x, y), actual.get(x, y));
+			}
+		}
+	}
+
+	private static BufferedImage randomImage(Random random, int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		return image;
+	}
+
+	@Test
+	public void testSameAsExactForResources() throws IOException, URISyntaxException {
+		assertSameAsExact(readImageFromResources("image1.png"), readImageFromResources("image2.png"), PixelDistance.defaultDistance());
+		assertSameAsExact(readImageFromResources("b1#17.png"), readImageFromResources("b2#17.png"), PixelDistance.luma(0.05));
+	}
+
+	@Test
+	public void testSameAsExactForSparseChanges() {
+		Random random = new Random(16);
+		for (int[] size : new int[][] { { 1, 1 }, { 3, 5 }, { 131, 37 }, { 200, 8 }, { 17, 9 } }) {
+			BufferedImage image1 = randomImage(random, size[0], size[1]);
+			BufferedImage image2 = ImageComparisonTools.deepCopy(image1);
+			for (int i = 0; i < 1 + size[0] * size[1] / 50; i++) {
+				int x = random.nextInt(size[0]);
+				int y = random.nextInt(size[1]);
+				// small changes are marked by the blocks, but not different by the distance
+				int change = random.nextBoolean() ? 0x010101 : 0x808080;
+				image2.setRGB(x, y, image1.getRGB(x, y) ^ change);
+			}
+			assertSameAsExact(image1, image2, PixelDistance.defaultDistance());
+		}
+	}
+
+	@Test
+	public void testSameResultOfImageComparison() throws IOException, URISyntaxException {
+		ImageComparison imageComparison = new ImageComparison("image1.png", "image3.png");
+		ImageComparison prefilterComparison = new ImageComparison("image1.png", "image3.png");
+		prefilterComparison.setBlockPrefilter(true);
+
+		assertEquals(imageComparison.compareImages().getDifferences(), prefilterComparison.compareImages().getDifferences());
+		prefilterComparison.setParallelism(3);
+		prefilterComparison.setTileSize(13);
+		assertEquals(imageComparison.compareImages().getDifferences(), prefilterComparison.compareImages().getDifferences());
+	}
+}
@@ -0,0 +1,120 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+
+/**
+ * Unit-level testing for {@link ComparisonDeadline} object.
+ */
+public class ComparisonDeadlineUnitTest {
+
+	private static final ComparisonOptions[] ALL_MODES = {
+			ComparisonOptions.defaults(),
+			ComparisonOptions.defaults().withBlockPrefilter(true),
+			ComparisonOptions.defaults().withRunLengthEncoding(true),
+			ComparisonOptions.defaults().withParallelism(4).withTileSize(50),
+			ComparisonOptions.defaults().withParallelism(4).withTileSize(50).withRunLengthEncoding(true)};
+
+	@Test
+	public void testDeadline() {
+		assertFalse(ComparisonDeadline.after(1, TimeUnit.HOURS).isExpired());
+
+		ComparisonDeadline deadline = ComparisonDeadline.after(0, TimeUnit.MILLISECONDS);
+		assertTrue(deadline.isExpired());
+		assertFalse(deadline.isCancelled());
+	}
+
+	@Test
+	public void testCancel() {
+		ComparisonDeadline deadline = ComparisonDeadline.cancellable();
+		assertFalse(deadline.isExpired());
+
+		deadline.cancel();
+
+		assertTrue(deadline.isExpired());
+		assertTrue(deadline.isCancelled());
+	}
+
+	@Test
+	public void testNotExpiredDeadlineGivesWholeResult() throws IOException, URISyntaxException {
+		BufferedImage image1 = readImageFromResources("image1.png");
+		BufferedImage image2 = readImageFromResources("image2.png");
+
+		for (ComparisonOptions options : ALL_MODES) {
+			ImageComparator comparator = new ImageComparator(options);
+			ComparisonResult expected = comparator.compare(image1, image2);
+			ComparisonResult result = comparator.compare(image1, image2, ComparisonDeadline.cancellable());
+
+			assertFalse(result.isPartial());
+			assertEquals(1, result.getCoverage(), 0);
+			assertEquals(options.toString(), expected.getDifferences(), result.getDifferences());
+			assertEquals(image1.getHeight(), result.getStats().getComparedRowCount());
+		}
+	}
+
+	@Test
+	public void testExpiredDeadlineComparesNothing() throws IOException, URISyntaxException {
+		BufferedImage image1 = readImageFromResources("image1.png");
+		BufferedImage image2 = readImageFromResources("image2.png");
+		ComparisonDeadline deadline = ComparisonDeadline.cancellable();
+		deadline.cancel();
+
+		for (ComparisonOptions options : ALL_MODES) {
+			ImageComparator comparator = new ImageComparator(options);
+			// the mask of this thread keeps the differences of the whole comparison
+			assertTrue(comparator.compare(image1, image2).hasDifferences());
+			ComparisonResult result = comparator.compare(image1, image2, deadline);
+
+			assertTrue(options.toString(), result.isPartial());
+			assertEquals(0, result.getCoverage(), 0);
+			assertEquals(options.toString(), ComparisonResult.CheckResult.Incomplete, result.getCheckResult());
+			assertEquals(0, result.getStats().getDifferentPixelCount());
+		}
+	}
+
+	@Test
+	public void testCancelledComparisonKeepsComparedRows() throws IOException, URISyntaxException {
+		BufferedImage image1 = readImageFromResources("image1.png");
+		BufferedImage image2 = readImageFromResources("image2.png");
+
+		for (ComparisonOptions options : Arrays.asList(ComparisonOptions.defaults().withTileSize(50),
+				ComparisonOptions.defaults().withTileSize(50).withRunLengthEncoding(true))) {
+			ComparisonResult expected = new ImageComparator(options).compare(image1, image2);
+			ComparisonDeadline deadline = ComparisonDeadline.cancellable();
+			AtomicLong compared = new AtomicLong();
+			// cancelled in the third band of 50 rows, which is still finished
+			PixelDistance cancelling = (rgb1, rgb2) -> {
+				if (compared.incrementAndGet() == image1.getWidth() * 100L + 1) {
+					deadline.cancel();
+				}
+				return PixelDistance.defaultDistance().isDifferent(rgb1, rgb2);
+			};
+
+			ComparisonResult result = new ImageComparator(options.withPixelDistance(cancelling)).compare(image1, image2, deadline);
+
+			assertTrue(result.isPartial());
+			assertEquals(150, result.getStats().getComparedRowCount());
+			assertEquals(150.0 / image1.getHeight(), result.getCoverage(), 1e-9);
+			// the X bounds of a rectangle are the rows
+			for (Rectangle difference : result.getDifferences()) {
+				assertTrue(difference.getMaxX() < 150);
+			}
+			for (Rectangle difference : expected.getDifferences()) {
+				assertEquals(difference.getMaxX() < 150, result.getDifferences().contains(difference));
+			}
+		}
+	}
+}
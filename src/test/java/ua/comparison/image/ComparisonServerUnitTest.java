@@ -0,0 +1,160 @@
+package ua.comparison.image;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ua.comparison.image.model.ComparisonResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static ua.comparison.image.TestSupport.resource;
+
+/**
+ * Unit-level testing for {@link ComparisonServer} and {@link ComparisonClient} objects.
+ */
+public class ComparisonServerUnitTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private static String compareRequest(Object id, File image1, File image2) {
+		return "{\"id\": " + id + ", \"image1\": \"" + image1.getAbsolutePath() + "\", \"image2\": \""
+				+ image2.getAbsolutePath() + "\"}";
+	}
+
+	@Test
+	public void testCompareRequest() throws IOException, URISyntaxException {
+		try (ComparisonServer server = new ComparisonServer(1, Long.MAX_VALUE)) {
+			Map<?, ?> response = (Map<?, ?>) Json.parse(server.handle(compareRequest(1, resource("image1.png"), resource("image2.png"))));
+
+			ComparisonResult expected = new ImageComparison("image1.png", "image2.png").compareImages();
+			assertEquals(1L, response.get("id"));
+			assertEquals(expected.getCheckResult().name(), response.get("checkResult"));
+			assertEquals(expected.getDifferences().size(), ((List<?>) response.get("differences")).size());
+			assertNotNull(response.get("nanos"));
+		}
+	}
+
+	@Test
+	public void testTimedOutRequest() throws URISyntaxException {
+		try (ComparisonServer server = new ComparisonServer(1, Long.MAX_VALUE)) {
+			String request = compareRequest(1, resource("image1.png"), resource("image2.png"));
+			Map<?, ?> response = (Map<?, ?>) Json.parse(server.handle(request.replace("}", ", \"timeoutMillis\": 0}")));
+			Map<?, ?> whole = (Map<?, ?>) Json.parse(server.handle(request.replace("}", ", \"timeoutMillis\": 60000}")));
+
+			assertEquals(true, response.get("partial"));
+			assertEquals("Incomplete", response.get("checkResult"));
+			assertEquals(0.0, ((Number) response.get("coverage")).doubleValue(), 0);
+			assertEquals(0, ((List<?>) response.get("differences")).size());
+			assertNull(whole.get("partial"));
+			assertEquals("ImageMissmatch", whole.get("checkResult"));
+		}
+	}
+
+	@Test
+	public void testFailedRequests() throws URISyntaxException {
+		try (ComparisonServer server = new ComparisonServer(1, Long.MAX_VALUE)) {
+			Map<?, ?> missing = (Map<?, ?>) Json.parse(server.handle(compareRequest("\"a\"", resource("image1.png"), new File("missing.png"))));
+			Map<?, ?> broken = (Map<?, ?>) Json.parse(server.handle("{\"id\": 2,"));
+			Map<?, ?> unknown = (Map<?, ?>) Json.parse(server.handle("{\"id\": 3, \"command\": \"unknown\"}"));
+
+			assertEquals("a", missing.get("id"));
+			assertNotNull(missing.get("error"));
+			assertNotNull(broken.get("error"));
+			assertEquals(3L, unknown.get("id"));
+			assertNotNull(unknown.get("error"));
+		}
+	}
+
+	@Test
+	public void testResultOnlyInOutputDirectory() throws IOException, URISyntaxException {
+		File outputDirectory = temporaryFolder.newFolder("output");
+		String request = compareRequest(1, resource("image1.png"), resource("image2.png"));
+		try (ComparisonServer withoutDirectory = new ComparisonServer(1, Long.MAX_VALUE);
+				ComparisonServer server = new ComparisonServer(1, Long.MAX_VALUE, outputDirectory)) {
+			Map<?, ?> rejected = (Map<?, ?>) Json.parse(withoutDirectory.handle(request.replace("}", ", \"result\": \"result.png\"}")));
+			Map<?, ?> outside = (Map<?, ?>) Json.parse(server.handle(request.replace("}", ", \"result\": \"../outside.png\"}")));
+			Map<?, ?> relative = (Map<?, ?>) Json.parse(server.handle(request.replace("}", ", \"result\": \"sub/result.png\"}")));
+
+			assertNotNull(rejected.get("error"));
+			assertNotNull(outside.get("error"));
+			assertFalse(new File(temporaryFolder.getRoot(), "outside.png").exists());
+			assertNull(relative.get("error"));
+			assertTrue(new File(outputDirectory, "sub/result.png").isFile());
+		}
+	}
+
+	@Test
+	public void testServeStream() throws IOException, InterruptedException, URISyntaxException {
+		String requests = compareRequest(1, resource("image1.png"), resource("image2.png")) + "\n\n"
+				+ compareRequest(2, resource("image1.png"), resource("image1.png")) + "\n"
+				+ "{\"id\": 3, \"command\": \"ping\"}\n";
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (ComparisonServer server = new ComparisonServer(2, Long.MAX_VALUE)) {
+			server.serve(new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), output);
+		}
+
+		Map<Object, Map<?, ?>> responses = new HashMap<>();
+		for (String line : new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+			Map<?, ?> response = (Map<?, ?>) Json.parse(line);
+			responses.put(response.get("id"), response);
+		}
+		assertEquals(3, responses.size());
+		assertEquals("ImageMissmatch", responses.get(1L).get("checkResult"));
+		assertEquals("Match", responses.get(2L).get("checkResult"));
+		assertEquals(true, responses.get(3L).get("pong"));
+	}
+
+	@Test
+	public void testClientOverSocket() throws Exception {
+		ComparisonServer server = new ComparisonServer(2, Long.MAX_VALUE, temporaryFolder.getRoot());
+		ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread listener = new Thread(() -> {
+			try {
+				server.listen(serverSocket);
+			} catch (IOException e) {
+				fail(e.toString());
+			}
+		});
+		listener.start();
+		File result = new File(temporaryFolder.getRoot(), "result.png");
+		try (ComparisonClient client = new ComparisonClient(serverSocket.getLocalPort())) {
+			assertTrue(client.ping());
+			ComparisonResult expected = new ImageComparison("image1.png", "image2.png").compareImages();
+			for (int i = 0; i < 3; i++) {
+				ComparisonResult comparisonResult = client.compare(resource("image1.png"), resource("image2.png"), result);
+				assertEquals(expected.getDifferences(), comparisonResult.getDifferences());
+			}
+			assertTrue(result.isFile());
+			try {
+				client.compare(resource("image1.png"), new File("missing.png"));
+				fail("The error is not reported");
+			} catch (IOException e) {
+				// expected
+			}
+			assertEquals(ComparisonResult.CheckResult.ImageSizeMissmatch,
+					client.compare(resource("image1.png"), resource("b1#21.png")).getCheckResult());
+			client.shutdownServer();
+		}
+		listener.join(10000);
+		assertFalse(listener.isAlive());
+		assertTrue(server.isShutdown());
+		server.close();
+	}
+}
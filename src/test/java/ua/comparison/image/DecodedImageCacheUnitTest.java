@@ -0,0 +1,89 @@
+package ua.comparison.image;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+import static ua.comparison.image.TestSupport.resource;
+
+/**
+ * Unit-level testing for {@link DecodedImageCache} object.
+ */
+public class DecodedImageCacheUnitTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File copyOfResource(String path) throws URISyntaxException, IOException {
+		File copy = new File(temporaryFolder.getRoot(), path);
+		Files.copy(resource(path).toPath(), copy.toPath());
+		return copy;
+	}
+
+	@Test
+	public void testHitReturnsSameImage() throws IOException, URISyntaxException {
+		File file = copyOfResource("image1.png");
+		DecodedImageCache cache = new DecodedImageCache(Long.MAX_VALUE);
+
+		BufferedImage image = cache.read(file);
+
+		assertSame(image, cache.read(file));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(DecodedImageCache.getByteCount(image), cache.getByteCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws IOException, URISyntaxException {
+		File file1 = copyOfResource("image1.png");
+		File file2 = copyOfResource("image2.png");
+		File file3 = copyOfResource("image3.png");
+		long imageBytes = DecodedImageCache.getByteCount(readImageFromResources("image1.png"));
+		DecodedImageCache cache = new DecodedImageCache(2 * imageBytes);
+
+		BufferedImage image1 = cache.read(file1);
+		cache.read(file2);
+		cache.read(file1);
+		cache.read(file3);
+
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2, cache.size());
+		assertSame(image1, cache.read(file1));
+		cache.read(file2);
+		assertEquals(4, cache.getMissCount());
+	}
+
+	@Test
+	public void testTooBigImageIsNotCached() throws IOException, URISyntaxException {
+		File file = copyOfResource("image1.png");
+		DecodedImageCache cache = new DecodedImageCache(1);
+
+		assertNotSame(cache.read(file), cache.read(file));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getByteCount());
+	}
+
+	@Test
+	public void testChangedFileIsDecodedAgain() throws IOException, URISyntaxException {
+		File file = copyOfResource("image1.png");
+		DecodedImageCache cache = new DecodedImageCache(Long.MAX_VALUE);
+		BufferedImage image = cache.read(file);
+
+		Files.copy(copyOfResource("image2.png").toPath(), file.toPath(), REPLACE_EXISTING);
+		file.setLastModified(file.lastModified() + 1000);
+
+		assertNotSame(image, cache.read(file));
+		assertEquals(1, cache.size());
+	}
+}
@@ -0,0 +1,45 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit-level testing for {@link DifferenceMask} object.
+ */
+public class DifferenceMaskUnitTest {
+
+	@Test
+	public void testSetAndGet() {
+		DifferenceMask mask = new DifferenceMask(130, 3);
+		mask.set(0, 0);
+		mask.set(129, 0);
+		mask.set(64, 2);
+
+		assertTrue(mask.get(0, 0));
+		assertTrue(mask.get(129, 0));
+		assertTrue(mask.get(64, 2));
+		assertFalse(mask.get(64, 1));
+		assertFalse(mask.get(1, 0));
+		assertEquals(3, mask.cardinality());
+	}
+
+	@Test
+	public void testNextSetBit() {
+		DifferenceMask mask = new DifferenceMask(200, 2);
+		mask.set(3, 0);
+		mask.set(63, 0);
+		mask.set(64, 0);
+		mask.set(199, 0);
+		mask.set(5, 1);
+
+		assertEquals(3, mask.nextSetBit(0, 0));
+		assertEquals(63, mask.nextSetBit(0, 4));
+		assertEquals(64, mask.nextSetBit(0, 64));
+		assertEquals(199, mask.nextSetBit(0, 65));
+		assertEquals(-1, mask.nextSetBit(0, 200));
+		assertEquals(-1, mask.nextSetBit(1, 6));
+	}
+}
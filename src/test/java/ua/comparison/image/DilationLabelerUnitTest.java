@@ -0,0 +1,119 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+import ua.comparison.image.model.ComparisonResult;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+import static ua.comparison.image.TestSupport.assertSameRegions;
+import static ua.comparison.image.TestSupport.randomMask;
+
+/**
+ * Unit-level testing for {@link DilationLabeler} object.
+ */
+public class DilationLabelerUnitTest {
+
+	/**
+	 * Join every two pixels which are not farther than the {@code threshold} by both the columns and the rows.
+	 */
+	private static RegionBounds joinClosePixels(DifferenceMask mask, int threshold) {
+		List<int[]> pixels = new ArrayList<>();
+		for (int y = 0; y < mask.getToY(); y++) {
+			for (int x = 0; x < mask.getWidth(); x++) {
+				if (mask.get(x, y)) {
+					pixels.add(new int[]{x, y});
+				}
+			}
+		}
+		UnionFind equivalences = new UnionFind(pixels.size());
+		for (int i = 0; i < pixels.size(); i++) {
+			equivalences.makeLabel();
+		}
+		for (int i = 0; i < pixels.size(); i++) {
+			for (int j = 0; j < i; j++) {
+				int dx = Math.abs(pixels.get(i)[0] - pixels.get(j)[0]);
+				int dy = Math.abs(pixels.get(i)[1] - pixels.get(j)[1]);
+				if (Math.max(dx, dy) <= threshold) {
+					equivalences.union(j, i);
+				}
+			}
+		}
+		RegionBounds bounds = new RegionBounds();
+		int[] regions = new int[pixels.size()];
+		for (int i = 0; i < pixels.size(); i++) {
+			int root = equivalences.find(i);
+			regions[i] = root == i ? bounds.addRegion() : regions[root];
+			bounds.add(regions[i], pixels.get(i)[0], pixels.get(i)[1]);
+		}
+		return bounds;
+	}
+
+	@Test
+	public void testDilate() {
+		DifferenceMask mask = new DifferenceMask(10, 5);
+		mask.set(2, 1);
+		mask.set(8, 1);
+
+		DifferenceRuns dilated = DilationLabeler.dilate(DifferenceRuns.of(mask), 2);
+
+		assertEquals(0, dilated.getRowEnd(0) - dilated.getRowStart(0));
+		for (int y = 1; y <= 3; y++) {
+			assertEquals(2, dilated.getRowEnd(y) - dilated.getRowStart(y));
+			assertEquals(2, dilated.getRunStart(dilated.getRowStart(y)));
+			assertEquals(4, dilated.getRunEnd(dilated.getRowStart(y)));
+			// cut by the border of the image
+			assertEquals(8, dilated.getRunStart(dilated.getRowStart(y) + 1));
+			assertEquals(9, dilated.getRunEnd(dilated.getRowStart(y) + 1));
+		}
+		assertEquals(0, dilated.getRowEnd(4) - dilated.getRowStart(4));
+	}
+
+	@Test
+	public void testSameRegionsAsClosePixels() {
+		Random random = new Random(23);
+		for (int density : new int[]{1, 5, 20}) {
+			DifferenceMask mask = randomMask(random, 70, 50, density);
+			for (int threshold : new int[]{0, 1, 2, 3, 5, 8, 13, 100}) {
+				assertSameRegions(joinClosePixels(mask, threshold),
+						DilationLabeler.labelRegions(DifferenceRuns.of(mask), threshold));
+			}
+		}
+	}
+
+	@Test
+	public void testSlopedLineIsOneRegion() {
+		DifferenceMask mask = new DifferenceMask(20, 20);
+		// neither on the same row, column nor diagonal
+		mask.set(1, 1);
+		mask.set(3, 2);
+		mask.set(5, 3);
+
+		assertEquals(3, RegionLabeler.labelRegions(mask, 2).size());
+		assertEquals(1, DilationLabeler.labelRegions(DifferenceRuns.of(mask), 2).size());
+	}
+
+	@Test
+	public void testSameResultOfComparison() throws IOException, URISyntaxException {
+		BufferedImage image1 = readImageFromResources("image1.png");
+		BufferedImage image2 = readImageFromResources("image2.png");
+		ComparisonResult expected = new ImageComparator().compare(image1, image2);
+
+		for (ComparisonOptions options : Arrays.asList(ComparisonOptions.defaults(),
+				ComparisonOptions.defaults().withBlockPrefilter(true),
+				ComparisonOptions.defaults().withParallelism(4).withTileSize(50),
+				ComparisonOptions.defaults().withParallelism(4).withTileSize(50).withBlockPrefilter(true))) {
+			ComparisonResult result = new ImageComparator(options.withDilation(true)).compare(image1, image2);
+
+			assertEquals(options.toString(), expected.getDifferences(), result.getDifferences());
+			assertEquals(expected.getStats().getDifferentPixelCount(), result.getStats().getDifferentPixelCount());
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+import ua.comparison.image.model.ComparisonResult;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+
+/**
+ * Unit-level testing for {@link ImageComparator} object.
+ */
+public class ImageComparatorUnitTest {
+
+	@Test
+	public void testSameResultAsImageComparison() throws IOException, URISyntaxException {
+		BufferedImage image1 = readImageFromResources("image1.png");
+		BufferedImage image2 = readImageFromResources("image2.png");
+
+		ComparisonResult expected = new ImageComparison(image1, image2).compareImages();
+		ComparisonResult result = new ImageComparator().compare(image1, image2);
+
+		assertEquals(expected.getDifferences(), result.getDifferences());
+		assertEquals(expected.getCheckResult(), result.getCheckResult());
+	}
+
+	@Test
+	public void testSharedByThreadsWithDifferentOptions() throws Exception {
+		BufferedImage image1 = readImageFromResources("b1#17.png");
+		BufferedImage image2 = readImageFromResources("b2#17.png");
+		ImageComparator near = new ImageComparator(ComparisonOptions.defaults().withThreshold(1));
+		ImageComparator far = new ImageComparator(ComparisonOptions.defaults().withThreshold(20).withMergeGap(0));
+		ComparisonResult expectedNear = near.compare(image1, image2);
+		ComparisonResult expectedFar = far.compare(image1, image2);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<ComparisonResult>> results = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				ImageComparator comparator = i % 2 == 0 ? near : far;
+				results.add(executor.submit(() -> comparator.compare(image1, image2)));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				ComparisonResult expected = i % 2 == 0 ? expectedNear : expectedFar;
+				assertEquals(expected.getDifferences(), results.get(i).get().getDifferences());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testBuffersAreReusedByThread() throws IOException, URISyntaxException {
+		BufferedImage image1 = readImageFromResources("image1.png");
+		BufferedImage image2 = readImageFromResources("image2.png");
+		BufferedImage image3 = readImageFromResources("image3.png");
+		ImageComparator comparator = new ImageComparator();
+		ComparisonResult expected = comparator.compare(image1, image2);
+
+		WorkingBuffers buffers = WorkingBuffers.acquire();
+		DifferenceMask mask = buffers.mask(image1.getWidth(), image1.getHeight());
+		buffers.release();
+		comparator.compare(image1, image3);
+
+		assertEquals(expected.getDifferences(), comparator.compare(image1, image2).getDifferences());
+		buffers = WorkingBuffers.acquire();
+		assertSame(mask, buffers.mask(image1.getWidth(), image1.getHeight()));
+		buffers.release();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidParallelism() {
+		ComparisonOptions.defaults().withParallelism(0);
+	}
+}
@@ -1,15 +1,21 @@
 package ua.comparison.image;
 
 import org.junit.Test;
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.ComparisonStats;
 import ua.comparison.image.model.ImageSize;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 
+import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
 
@@ -75,4 +81,36 @@ public class ImageComparisonUnitTest {
 		assertNotNull(bufferedImage);
 	}
 
+	@Test
+	public void testStatsAreReportedToListener() throws IOException, URISyntaxException {
+		ImageComparison imageComparison = new ImageComparison("image1.png", "image2.png");
+		List<ComparisonStats> compared = new ArrayList<>();
+		List<ComparisonStats> rendered = new ArrayList<>();
+		imageComparison.setListener(new ComparisonListener() {
+			@Override
+			public void onComparison(ComparisonStats stats) {
+				compared.add(stats);
+			}
+
+			@Override
+			public void onRender(ComparisonStats stats) {
+				rendered.add(stats);
+			}
+		});
+
+		ComparisonResult result = imageComparison.compareImages();
+		imageComparison.getImageComparison();
+
+		ComparisonStats stats = result.getStats();
+		assertEquals(singletonList(stats), compared);
+		assertEquals(singletonList(stats), rendered);
+		assertEquals(ImageComparisonTools.populateTheMatrixOfTheDifferences(imageComparison.getImage1(), imageComparison.getImage2()).cardinality(),
+				stats.getDifferentPixelCount());
+		assertEquals(result.getDifferences().size(), stats.getRectangleCount());
+		assertTrue(stats.getRegionCount() >= stats.getRectangleCount());
+		assertTrue(stats.getDifferenceNanos() > 0);
+		assertTrue(stats.getRenderNanos() > 0);
+		assertTrue(stats.getWorkingBufferBytes() > 0);
+	}
+
 }
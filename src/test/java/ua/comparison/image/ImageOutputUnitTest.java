@@ -0,0 +1,65 @@
+package ua.comparison.image;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+
+/**
+ * Unit-level testing for {@link ImageOutput} object.
+ */
+public class ImageOutputUnitTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testPngWithCompressionLevelHasSamePixels() throws IOException, URISyntaxException {
+		BufferedImage image = readImageFromResources("result1.png");
+		for (int level : new int[] { 0, 1, ImageOutput.MAX_COMPRESSION_LEVEL }) {
+			File file = temporaryFolder.newFile("level" + level + ".png");
+
+			ImageComparisonTools.saveImage(file, image, ImageOutput.png(level));
+
+			BufferedImage read = ImageComparisonTools.readImage(file);
+			for (int y = 0; y < image.getHeight(); y++) {
+				for (int x = 0; x < image.getWidth(); x++) {
+					assertEquals(image.getRGB(x, y), read.getRGB(x, y));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPamIsUncompressed() throws IOException {
+		BufferedImage image = new BufferedImage(2, 1, BufferedImage.TYPE_INT_ARGB);
+		image.setRGB(0, 0, 0x80102030);
+		image.setRGB(1, 0, 0xff405060);
+		File file = new File(temporaryFolder.getRoot(), "image" + ImageOutput.Format.PAM.getExtension());
+
+		ImageComparisonTools.saveImage(file, image, ImageOutput.pam());
+
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		String header = "P7\nWIDTH 2\nHEIGHT 1\nDEPTH 4\nMAXVAL 255\nTUPLTYPE RGB_ALPHA\nENDHDR\n";
+		assertTrue(new String(bytes, StandardCharsets.US_ASCII).startsWith(header));
+		assertEquals(header.length() + 8, bytes.length);
+		assertEquals(0x10, bytes[header.length()]);
+		assertEquals((byte) 0x80, bytes[header.length() + 3]);
+		assertEquals(0x60, bytes[header.length() + 6]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCompressionLevel() {
+		ImageOutput.png(10);
+	}
+}
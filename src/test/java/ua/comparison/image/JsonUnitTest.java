@@ -0,0 +1,67 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit-level testing for {@link Json} object.
+ */
+public class JsonUnitTest {
+
+	@Test
+	public void testParse() {
+		Map<?, ?> object = (Map<?, ?>) Json.parse(" {\"id\": 7, \"path\": \"a\\\\b \\\"c\\\" \\u0041\", \"level\": 0.5,"
+				+ " \"flags\": [true, false, null], \"empty\": {}} ");
+
+		assertEquals(7L, object.get("id"));
+		assertEquals("a\\b \"c\" A", object.get("path"));
+		assertEquals(0.5, object.get("level"));
+		assertEquals(Arrays.asList(true, false, null), object.get("flags"));
+		assertEquals(new LinkedHashMap<>(), object.get("empty"));
+		assertNull(object.get("missing"));
+	}
+
+	@Test
+	public void testWriteAndParse() {
+		Map<String, Object> object = new LinkedHashMap<>();
+		object.put("text", "line\nbreak\t\"quoted\"\u0001");
+		object.put("numbers", Arrays.asList(-1L, 2.5));
+		object.put("nothing", null);
+
+		String json = Json.write(object);
+
+		assertEquals(-1, json.indexOf('\n'));
+		assertEquals(object, Json.parse(json));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnterminatedObject() {
+		Json.parse("{\"id\": 1");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTextAfterValue() {
+		Json.parse("{} {}");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooDeepNesting() {
+		StringBuilder json = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			json.append('[');
+		}
+		Json.parse(json.toString());
+	}
+
+	@Test
+	public void testEmptyArray() {
+		assertEquals(0, ((List<?>) Json.parse("[ ]")).size());
+	}
+}
@@ -0,0 +1,82 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+import static ua.comparison.image.TestSupport.resource;
+
+/**
+ * Unit-level testing for {@link PerceptualHashIndex} object.
+ */
+public class PerceptualHashIndexUnitTest {
+
+	@Test
+	public void testCandidatesAreSameAsLinearSearch() {
+		Random random = new Random(11);
+		PerceptualHashIndex index = new PerceptualHashIndex();
+		long[] hashes = new long[100_000];
+		for (int i = 0; i < hashes.length; i++) {
+			// the hashes close to a few centers, like the screenshots of the same pages
+			hashes[i] = (random.nextInt(100) * 0x9E3779B97F4A7C15L) ^ (1L << random.nextInt(64)) ^ (1L << random.nextInt(64));
+			index.add(new File(Integer.toString(i)), hashes[i]);
+		}
+		assertEquals(hashes.length, index.size());
+
+		for (int query = 0; query < 20; query++) {
+			long hash = hashes[random.nextInt(hashes.length)] ^ (1L << random.nextInt(64));
+			List<File> expected = new ArrayList<>();
+			for (int i = 0; i < hashes.length; i++) {
+				if (PerceptualHash.distance(hashes[i], hash) <= 3) {
+					expected.add(new File(Integer.toString(i)));
+				}
+			}
+			List<File> actual = index.findCandidates(hash, 3);
+			assertEquals(expected.size(), actual.size());
+			assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+		}
+	}
+
+	@Test
+	public void testMostSimilarCandidateIsFirst() {
+		PerceptualHashIndex index = new PerceptualHashIndex();
+		index.add(new File("far"), 0b111L);
+		index.add(new File("same"), 0L);
+		index.add(new File("near"), 0b1L);
+		index.add(new File("other"), -1L);
+
+		List<File> candidates = index.findCandidates(0L, 3);
+
+		assertEquals(3, candidates.size());
+		assertEquals(new File("same"), candidates.get(0));
+		assertEquals(new File("near"), candidates.get(1));
+		assertEquals(new File("far"), candidates.get(2));
+	}
+
+	@Test
+	public void testFindMatchIsConfirmedByComparison() throws IOException, URISyntaxException {
+		PerceptualHashIndex index = new PerceptualHashIndex();
+		index.add(resource("image2.png"));
+		index.add(resource("image1.png"));
+		index.add(resource("b1#21.png"));
+
+		Optional<File> match = index.findMatch(readImageFromResources("image1.png"), 10);
+		assertTrue(match.isPresent());
+		assertEquals(resource("image1.png"), match.get());
+
+		BufferedImage black = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+		assertFalse(index.findMatch(black, 64).isPresent());
+	}
+}
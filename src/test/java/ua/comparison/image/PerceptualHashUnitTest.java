@@ -0,0 +1,56 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+
+/**
+ * Unit-level testing for {@link PerceptualHash} object.
+ */
+public class PerceptualHashUnitTest {
+
+	private static BufferedImage scale(BufferedImage image, int width, int height) {
+		BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		scaled.createGraphics().drawImage(image, 0, 0, width, height, null);
+		return scaled;
+	}
+
+	@Test
+	public void testSimilarImagesHaveCloseHashes() throws IOException, URISyntaxException {
+		BufferedImage image1 = readImageFromResources("image1.png");
+		BufferedImage image2 = readImageFromResources("image2.png");
+		for (PerceptualHash hash : new PerceptualHash[] { PerceptualHash.average(), PerceptualHash.difference() }) {
+			assertEquals(hash.hash(image1), hash.hash(image1));
+			assertTrue(PerceptualHash.distance(hash.hash(image1), hash.hash(image2)) <= 8);
+			assertTrue(PerceptualHash.distance(hash.hash(image1), hash.hash(scale(image1, 250, 180))) <= 8);
+		}
+	}
+
+	@Test
+	public void testDifferentImagesHaveDistantHashes() {
+		BufferedImage leftBright = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+		BufferedImage rightBright = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < 64; y++) {
+			for (int x = 0; x < 64; x++) {
+				leftBright.setRGB(x, y, (63 - x) * 0x040404);
+				rightBright.setRGB(x, y, x * 0x040404);
+			}
+		}
+		for (PerceptualHash hash : new PerceptualHash[] { PerceptualHash.average(), PerceptualHash.difference() }) {
+			assertTrue(PerceptualHash.distance(hash.hash(leftBright), hash.hash(rightBright)) >= 32);
+		}
+	}
+
+	@Test
+	public void testDistance() {
+		assertEquals(0, PerceptualHash.distance(0x1234L, 0x1234L));
+		assertEquals(64, PerceptualHash.distance(0L, -1L));
+		assertEquals(2, PerceptualHash.distance(0b1010L, 0b0000L));
+	}
+}
@@ -0,0 +1,70 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit-level testing for {@link PixelDistance} object.
+ */
+public class PixelDistanceUnitTest {
+
+	/**
+	 * The rule which was used before the {@link PixelDistance}.
+	 */
+	private static boolean isDifferentByDoubles(int rgb1, int rgb2, double toleranceLevel) {
+		int red1 = (rgb1 >> 16) & 0xff;
+		int green1 = (rgb1 >> 8) & 0xff;
+		int blue1 = (rgb1) & 0xff;
+		int red2 = (rgb2 >> 16) & 0xff;
+		int green2 = (rgb2 >> 8) & 0xff;
+		int blue2 = (rgb2) & 0xff;
+		double result = Math.sqrt(Math.pow(red2 - red1, 2) + Math.pow(green2 - green1, 2) + Math.pow(blue2 - blue1, 2)) / Math.sqrt(Math.pow(255, 2) * 3);
+		return result > toleranceLevel;
+	}
+
+	@Test
+	public void testEuclideanIsSameAsDoubles() {
+		Random random = new Random(42);
+		for (double toleranceLevel : new double[] { 0, 0.05, 0.1, 0.33, 1 }) {
+			PixelDistance distance = PixelDistance.euclidean(toleranceLevel);
+			for (int red = 0; red < 256; red++) {
+				for (int green = 0; green < 256; green += 3) {
+					int rgb1 = random.nextInt();
+					int rgb2 = rgb1 ^ (red << 16 | green << 8 | random.nextInt(256));
+					assertEquals(isDifferentByDoubles(rgb1, rgb2, toleranceLevel), distance.isDifferent(rgb1, rgb2));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDefaultDistanceBorder() {
+		// 44^2 + 6^2 = 1972 is just over 10%, 44^2 + 3^2 = 1945 is just under.
+		assertTrue(ImageComparisonTools.isDifferent(0x000000, 0x2c0600));
+		assertFalse(ImageComparisonTools.isDifferent(0x000000, 0x2c0300));
+	}
+
+	@Test
+	public void testMaxChannel() {
+		PixelDistance distance = PixelDistance.maxChannel(0.1);
+		assertFalse(distance.isDifferent(0x101010, 0x282828));
+		assertTrue(distance.isDifferent(0x101010, 0x10102a));
+	}
+
+	@Test
+	public void testLuma() {
+		PixelDistance distance = PixelDistance.luma(0.1);
+		assertFalse(distance.isDifferent(0xff0000, 0x0000ff + 0x004000));
+		assertTrue(distance.isDifferent(0x000000, 0x303030));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongToleranceLevel() {
+		PixelDistance.euclidean(1.5);
+	}
+}
@@ -0,0 +1,63 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit-level testing for {@link PixelRowReader} object.
+ */
+public class PixelRowReaderUnitTest {
+
+	private static final int[] TYPES = {
+			BufferedImage.TYPE_INT_RGB,
+			BufferedImage.TYPE_INT_ARGB,
+			BufferedImage.TYPE_INT_ARGB_PRE,
+			BufferedImage.TYPE_INT_BGR,
+			BufferedImage.TYPE_3BYTE_BGR,
+			BufferedImage.TYPE_4BYTE_ABGR,
+			BufferedImage.TYPE_USHORT_565_RGB,
+			BufferedImage.TYPE_BYTE_GRAY,
+			BufferedImage.TYPE_BYTE_INDEXED
+	};
+
+	private static BufferedImage randomImage(int type, int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		Random random = new Random(type);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, random.nextInt());
+			}
+		}
+		return image;
+	}
+
+	private static void assertSameAsGetRGB(BufferedImage image) {
+		PixelRowReader reader = PixelRowReader.forImage(image);
+		int[] row = new int[image.getWidth()];
+		for (int y = 0; y < image.getHeight(); y++) {
+			reader.readRow(y, row);
+			for (int x = 0; x < image.getWidth(); x++) {
+				assertEquals("type " + image.getType() + " at x = " + x + ", y = " + y,
+						image.getRGB(x, y) & 0xffffff, row[x] & 0xffffff);
+			}
+		}
+	}
+
+	@Test
+	public void testRowsAreSameAsGetRGB() {
+		for (int type : TYPES) {
+			assertSameAsGetRGB(randomImage(type, 37, 23));
+		}
+	}
+
+	@Test
+	public void testRowsOfSubimageAreSameAsGetRGB() {
+		for (int type : TYPES) {
+			assertSameAsGetRGB(randomImage(type, 37, 23).getSubimage(5, 7, 20, 11));
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.deepCopy;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+import static ua.comparison.image.model.ComparisonResult.CheckResult.ImageMissmatch;
+import static ua.comparison.image.model.ComparisonResult.CheckResult.Match;
+
+/**
+ * Unit-level testing for {@link QuickComparison} object.
+ */
+public class QuickComparisonUnitTest {
+
+	@Test
+	public void testSameImage() throws IOException, URISyntaxException {
+		BufferedImage image = readImageFromResources("image1.png");
+
+		assertTrue(QuickComparison.sharePixels(image, image.getSubimage(0, 0, image.getWidth(), image.getHeight())));
+		assertEquals(Match, new ImageComparison(image, image).quickCompareImages().getCheckResult());
+		assertEquals(Match, new ImageComparison(image, deepCopy(image)).quickCompareImages().getCheckResult());
+	}
+
+	@Test
+	public void testDifferentImages() throws IOException, URISyntaxException {
+		ComparisonResult result = new ImageComparison("image1.png", "image2.png").quickCompareImages();
+
+		assertEquals(ImageMissmatch, result.getCheckResult());
+		assertEquals(1, result.getDifferences().size());
+	}
+
+	/**
+	 * A single different pixel makes a rectangle of size "0", which is smaller than the default
+	 * {@link ImageComparison#minimumRectangleSize}.
+	 */
+	@Test
+	public void testSinglePixelIsSameAsCompareImages() {
+		BufferedImage image1 = new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB);
+		BufferedImage image2 = new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB);
+		image2.setRGB(10, 10, 0xffffff);
+
+		assertEquals(Match, new ImageComparison(image1, image2).compareImages().getCheckResult());
+		assertEquals(Match, new ImageComparison(image1, image2).quickCompareImages().getCheckResult());
+
+		image2.setRGB(10 + ImageComparison.threshold, 10 + ImageComparison.threshold, 0xffffff);
+
+		assertEquals(ImageMissmatch, new ImageComparison(image1, image2).compareImages().getCheckResult());
+		assertEquals(ImageMissmatch, new ImageComparison(image1, image2).quickCompareImages().getCheckResult());
+	}
+
+	/**
+	 * The pixels which are not on a line are in the same region only for the dilation.
+	 */
+	@Test
+	public void testDilationIsSameAsCompare() {
+		BufferedImage image1 = new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB);
+		BufferedImage image2 = new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB);
+		image2.setRGB(10, 10, 0xffffff);
+		image2.setRGB(12, 11, 0xffffff);
+		ImageComparator lines = new ImageComparator();
+		ImageComparator dilation = new ImageComparator(ComparisonOptions.defaults().withDilation(true));
+		ImageComparison imageComparison = new ImageComparison(image1, image2);
+		imageComparison.setDilation(true);
+
+		assertEquals(Match, lines.compare(image1, image2).getCheckResult());
+		assertEquals(Match, lines.quickCompare(image1, image2).getCheckResult());
+		assertEquals(ImageMissmatch, dilation.compare(image1, image2).getCheckResult());
+		assertEquals(ImageMissmatch, dilation.quickCompare(image1, image2).getCheckResult());
+		assertEquals(ImageMissmatch, imageComparison.quickCompareImages().getCheckResult());
+	}
+
+	@Test
+	public void testIgnoredDifferenceIsSameAsCompareImages() {
+		BufferedImage image1 = new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB);
+		BufferedImage image2 = new BufferedImage(50, 50, BufferedImage.TYPE_INT_RGB);
+		image2.setRGB(10, 10, 0xffffff);
+		image2.setRGB(11, 10, 0xffffff);
+		Rectangle ignored = new Rectangle();
+		ignored.setMinX(5);
+		ignored.setMinY(5);
+		ignored.setMaxX(15);
+		ignored.setMaxY(15);
+		ImageComparison imageComparison = new ImageComparison(image1, image2);
+		imageComparison.setRegionMask(RegionMask.exclude(50, 50, Collections.singletonList(ignored)));
+
+		assertEquals(Match, imageComparison.compareImages().getCheckResult());
+		assertEquals(Match, imageComparison.quickCompareImages().getCheckResult());
+	}
+}
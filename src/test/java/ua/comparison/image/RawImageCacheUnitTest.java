@@ -0,0 +1,80 @@
+package ua.comparison.image;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ua.comparison.image.model.ComparisonResult;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+
+/**
+ * Unit-level testing for {@link RawImageCache} object.
+ */
+public class RawImageCacheUnitTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testFileIsMappedOnce() throws IOException, URISyntaxException {
+		File file = new File(temporaryFolder.getRoot(), "image1.png" + RawImage.FILE_EXTENSION);
+		RawImage.write(readImageFromResources("image1.png"), file);
+		RawImageCache cache = new RawImageCache(10);
+
+		RawImage first = cache.open(file);
+
+		assertSame(first, cache.open(new File(temporaryFolder.getRoot(), "./image1.png" + RawImage.FILE_EXTENSION)));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testChangedFileIsMappedAgain() throws IOException, URISyntaxException {
+		File file = new File(temporaryFolder.getRoot(), "image1.png" + RawImage.FILE_EXTENSION);
+		RawImage.write(readImageFromResources("image1.png"), file);
+		RawImageCache cache = new RawImageCache(10);
+		RawImage first = cache.open(file);
+		long lastModified = file.lastModified();
+
+		// the other image, written with an older time
+		BufferedImage other = readImageFromResources("image2.png");
+		RawImage.write(other, file);
+		assertTrue(file.setLastModified(lastModified - 60_000));
+		RawImage second = cache.open(file);
+
+		assertNotSame(first, second);
+		assertEquals(ComparisonResult.CheckResult.Match, new ImageComparator().compare(second, other).getCheckResult());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedFileIsEvicted() throws IOException, URISyntaxException {
+		BufferedImage image = readImageFromResources("image1.png");
+		File[] files = new File[3];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = new File(temporaryFolder.getRoot(), "image" + i + RawImage.FILE_EXTENSION);
+			RawImage.write(image, files[i]);
+		}
+		RawImageCache cache = new RawImageCache(2);
+
+		RawImage first = cache.open(files[0]);
+		cache.open(files[1]);
+		cache.open(files[0]);
+		cache.open(files[2]);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertSame(first, cache.open(files[0]));
+		assertEquals(3, cache.getMissCount());
+	}
+}
@@ -0,0 +1,111 @@
+package ua.comparison.image;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ua.comparison.image.model.ComparisonResult;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+import static ua.comparison.image.TestSupport.resource;
+
+/**
+ * Unit-level testing for {@link RawImage} object.
+ */
+public class RawImageUnitTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testWriteAndOpen() throws IOException, URISyntaxException {
+		BufferedImage image = readImageFromResources("image1.png");
+		File file = new File(temporaryFolder.getRoot(), "image1.png" + RawImage.FILE_EXTENSION);
+
+		RawImage.write(image, file);
+		RawImage raw = RawImage.open(file);
+
+		assertEquals(image.getWidth(), raw.getWidth());
+		assertEquals(image.getHeight(), raw.getHeight());
+		BufferedImage copy = raw.toBufferedImage();
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				assertEquals(image.getRGB(x, y), copy.getRGB(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testSameResultAsDecodedBaseline() throws IOException, URISyntaxException {
+		BufferedImage image1 = readImageFromResources("image1.png");
+		BufferedImage image2 = readImageFromResources("image2.png");
+		File file = new File(temporaryFolder.getRoot(), "image1.png" + RawImage.FILE_EXTENSION);
+		RawImage.write(image1, file);
+
+		for (int parallelism : new int[]{1, 4}) {
+			ImageComparator comparator = new ImageComparator(ComparisonOptions.defaults().withParallelism(parallelism).withTileSize(64));
+			ComparisonResult expected = comparator.compare(image1, image2);
+			ComparisonResult result = comparator.compare(RawImage.open(file), image2);
+
+			assertEquals(expected.getCheckResult(), result.getCheckResult());
+			assertEquals(expected.getDifferences(), result.getDifferences());
+		}
+	}
+
+	@Test
+	public void testRawFileIsWrittenForBaseline() throws IOException, URISyntaxException {
+		File baseline = new File(temporaryFolder.getRoot(), "image1.png");
+		Files.copy(resource("image1.png").toPath(), baseline.toPath());
+
+		RawImage raw = RawImage.forBaseline(baseline);
+
+		assertTrue(RawImage.getRawFile(baseline).isFile());
+		assertEquals(ComparisonResult.CheckResult.Match,
+				new ImageComparator().compare(raw, ImageComparisonTools.readImage(baseline)).getCheckResult());
+	}
+
+	@Test
+	public void testReplacedBaselineWithOlderTimeIsConvertedAgain() throws IOException, URISyntaxException {
+		File baseline = new File(temporaryFolder.getRoot(), "image1.png");
+		Files.copy(resource("image1.png").toPath(), baseline.toPath());
+		RawImage.forBaseline(baseline);
+		long rawModified = RawImage.getRawFile(baseline).lastModified();
+		// replaced like by "cp -p" with a file of an older time
+		BufferedImage replaced = readImageFromResources("image1.png");
+		replaced.setRGB(70, 140, ~replaced.getRGB(70, 140));
+		ImageComparisonTools.saveImage(baseline, replaced);
+		assertTrue(baseline.setLastModified(rawModified - 60_000));
+
+		RawImage raw = RawImage.forBaseline(baseline);
+
+		assertEquals(ComparisonResult.CheckResult.Match, new ImageComparator().compare(raw, replaced).getCheckResult());
+		// no temporary files are left
+		assertEquals(2, temporaryFolder.getRoot().list().length);
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedFileIsNotOpened() throws IOException, URISyntaxException {
+		File file = new File(temporaryFolder.getRoot(), "image1.png" + RawImage.FILE_EXTENSION);
+		RawImage.write(readImageFromResources("image1.png"), file);
+		try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+			truncated.setLength(truncated.length() - 4);
+		}
+
+		RawImage.open(file);
+	}
+
+	@Test(expected = IOException.class)
+	public void testOtherFileIsNotOpened() throws IOException, URISyntaxException {
+		File file = resource("image1.png");
+
+		RawImage.open(file);
+	}
+}
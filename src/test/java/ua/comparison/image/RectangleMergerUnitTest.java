@@ -0,0 +1,152 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+import ua.comparison.image.model.Rectangle;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit-level testing for {@link RectangleMerger} object.
+ */
+public class RectangleMergerUnitTest {
+
+	private static Rectangle rectangle(int minX, int minY, int maxX, int maxY) {
+		Rectangle rectangle = new Rectangle();
+		rectangle.setMinX(minX);
+		rectangle.setMinY(minY);
+		rectangle.setMaxX(maxX);
+		rectangle.setMaxY(maxY);
+		return rectangle;
+	}
+
+	/**
+	 * Merge every two overlapping rectangles until there are no such ones, in O(n^2) per round.
+	 */
+	private static List<Rectangle> mergePairwise(List<Rectangle> rectangles, int gap) {
+		List<Rectangle> merged = new ArrayList<>();
+		rectangles.forEach(rectangle -> merged.add(rectangle(rectangle.getMinX(), rectangle.getMinY(), rectangle.getMaxX(), rectangle.getMaxY())));
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = 0; i < merged.size(); i++) {
+				for (int j = merged.size() - 1; j > i; j--) {
+					if (merged.get(i).isOverlapping(merged.get(j), gap)) {
+						merged.get(i).extendTo(merged.remove(j));
+						changed = true;
+					}
+				}
+			}
+		}
+		return merged;
+	}
+
+	@Test
+	public void testNestedAndChainedAreMerged() {
+		List<Rectangle> rectangles = Arrays.asList(
+				rectangle(0, 0, 10, 10),
+				rectangle(2, 2, 3, 3),
+				rectangle(10, 10, 20, 12),
+				rectangle(19, 0, 25, 1),
+				rectangle(40, 40, 41, 41));
+
+		List<Rectangle> merged = RectangleMerger.merge(rectangles, 0);
+
+		assertEquals(Arrays.asList(rectangle(0, 0, 25, 12), rectangle(40, 40, 41, 41)), merged);
+		assertEquals(rectangle(0, 0, 10, 10), rectangles.get(0));
+	}
+
+	@Test
+	public void testGap() {
+		// two pixels between the rectangles
+		List<Rectangle> rectangles = Arrays.asList(rectangle(0, 0, 5, 5), rectangle(8, 0, 10, 5));
+
+		assertEquals(2, RectangleMerger.merge(rectangles, 1).size());
+		assertEquals(singletonList(rectangle(0, 0, 10, 5)), RectangleMerger.merge(rectangles, 2));
+	}
+
+	@Test
+	public void testTouchingAreMergedWithoutGap() {
+		List<Rectangle> rows = Arrays.asList(rectangle(0, 0, 5, 5), rectangle(6, 0, 10, 5));
+		List<Rectangle> columns = Arrays.asList(rectangle(0, 0, 5, 5), rectangle(0, 6, 5, 10));
+
+		assertEquals(singletonList(rectangle(0, 0, 10, 5)), RectangleMerger.merge(rows, 0));
+		assertEquals(singletonList(rectangle(0, 0, 5, 10)), RectangleMerger.merge(columns, 0));
+		assertEquals(2, RectangleMerger.merge(Arrays.asList(rectangle(0, 0, 5, 5), rectangle(7, 0, 10, 5)), 0).size());
+	}
+
+	/**
+	 * The rectangle which is passed by the sweep is reached by a later one which grows back over it.
+	 */
+	@Test
+	public void testMergedRectangleGrowsOverPassedOne() {
+		List<Rectangle> rectangles = Arrays.asList(
+				rectangle(0, 0, 100, 1),
+				rectangle(0, 10, 5, 11),
+				rectangle(50, 1, 51, 10));
+
+		assertEquals(singletonList(rectangle(0, 0, 100, 11)), RectangleMerger.merge(rectangles, 0));
+	}
+
+	@Test
+	public void testSameAsPairwiseMerging() {
+		Random random = new Random(5);
+		for (int round = 0; round < 20; round++) {
+			List<Rectangle> rectangles = new ArrayList<>();
+			for (int i = 0; i < 300; i++) {
+				int x = random.nextInt(1000);
+				int y = random.nextInt(1000);
+				rectangles.add(rectangle(x, y, x + random.nextInt(30), y + random.nextInt(30)));
+			}
+			int gap = random.nextInt(5);
+
+			List<Rectangle> merged = RectangleMerger.merge(rectangles, gap);
+
+			assertEquals(new HashSet<>(mergePairwise(rectangles, gap)), new HashSet<>(merged));
+			for (int i = 0; i < merged.size(); i++) {
+				for (int j = i + 1; j < merged.size(); j++) {
+					assertFalse(merged.get(i).isOverlapping(merged.get(j), gap));
+				}
+			}
+		}
+	}
+
+	/**
+	 * The boxes of one line of a text share the same rows, so they are all active at once.
+	 */
+	@Test
+	public void testBoxesOfOneLine() {
+		Random random = new Random(11);
+		List<Rectangle> rectangles = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			int y = random.nextInt(20000);
+			rectangles.add(rectangle(random.nextInt(3), y, 10 + random.nextInt(3), y + random.nextInt(8)));
+		}
+
+		for (int gap : new int[]{0, 2, 5}) {
+			assertEquals(new HashSet<>(mergePairwise(rectangles, gap)), new HashSet<>(RectangleMerger.merge(rectangles, gap)));
+		}
+	}
+
+	@Test
+	public void testImageComparisonMergesRectangles() throws IOException, URISyntaxException {
+		ImageComparison imageComparison = new ImageComparison("image1.png", "image2.png");
+		int separate = imageComparison.compareImages().getDifferences().size();
+
+		imageComparison.setMergeGap(1000);
+		List<Rectangle> merged = imageComparison.compareImages().getDifferences();
+
+		assertTrue(separate > 1);
+		assertEquals(1, merged.size());
+	}
+}
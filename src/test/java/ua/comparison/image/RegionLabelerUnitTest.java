@@ -0,0 +1,110 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+import ua.comparison.image.model.Rectangle;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.TestSupport.assertSameRegions;
+import static ua.comparison.image.TestSupport.randomMask;
+
+/**
+ * Unit-level testing for {@link RegionLabeler} object.
+ */
+public class RegionLabelerUnitTest {
+
+	private static DifferenceMask mask(int width, int height, int... pixels) {
+		DifferenceMask mask = new DifferenceMask(width, height);
+		for (int i = 0; i < pixels.length; i += 2) {
+			mask.set(pixels[i], pixels[i + 1]);
+		}
+		return mask;
+	}
+
+	private static Rectangle rectangle(int minX, int minY, int maxX, int maxY) {
+		Rectangle rectangle = new Rectangle();
+		rectangle.setMinX(minY);
+		rectangle.setMinY(minX);
+		rectangle.setMaxX(maxY);
+		rectangle.setMaxY(maxX);
+		return rectangle;
+	}
+
+	@Test
+	public void testPixelsWithinThresholdAreJoined() {
+		DifferenceMask mask = mask(10, 10, 0, 0, 3, 0, 6, 3, 3, 6);
+
+		RegionBounds bounds = RegionLabeler.labelRegions(mask, 3);
+
+		assertEquals(1, bounds.size());
+		assertEquals(rectangle(0, 0, 6, 6), bounds.toRectangle(0));
+		assertEquals(4, bounds.getPixelCount(0));
+	}
+
+	@Test
+	public void testPixelsOutsideThresholdAreSeparated() {
+		DifferenceMask mask = mask(10, 10, 0, 0, 4, 0, 9, 2);
+
+		RegionBounds bounds = RegionLabeler.labelRegions(mask, 3);
+
+		assertEquals(3, bounds.size());
+		assertEquals(rectangle(0, 0, 0, 0), bounds.toRectangle(0));
+		assertEquals(rectangle(4, 0, 4, 0), bounds.toRectangle(1));
+		assertEquals(rectangle(9, 2, 9, 2), bounds.toRectangle(2));
+	}
+
+	@Test
+	public void testStripsAreSameAsWholeMask() {
+		DifferenceMask mask = mask(30, 20, 2, 1, 4, 3, 5, 2, 25, 15, 27, 17, 1, 19, 28, 0, 26, 3, 10, 9, 10, 12);
+		RegionBounds expected = RegionLabeler.labelRegions(mask, 3);
+
+		for (int stripHeight = 1; stripHeight < 20; stripHeight++) {
+			RegionLabeler labeler = new RegionLabeler(3);
+			for (int y = 0; y < 20; y += stripHeight) {
+				labeler.addStrip(mask, y, Math.min(y + stripHeight, 20)).label();
+			}
+			assertEquals(expected.toRectangles(0), labeler.mergeStrips().toRectangles(0));
+		}
+	}
+
+	@Test
+	public void testBandsAreReleased() {
+		DifferenceMask mask = randomMask(new Random(8), 70, 300, 20);
+		for (int threshold : new int[] { 0, 1, 5, 12 }) {
+			RegionBounds expected = RegionLabeler.labelRegions(mask, threshold);
+			for (int bandHeight : new int[] { 1, 4, 16 }) {
+				// every band has its own mask with the rows before it, like in the streaming comparison
+				RegionLabeler labeler = new RegionLabeler(threshold);
+				for (int fromY = 0; fromY < mask.getToY(); fromY += bandHeight) {
+					int toY = Math.min(fromY + bandHeight, mask.getToY());
+					DifferenceMask band = new DifferenceMask(mask.getWidth(), Math.max(0, fromY - threshold), toY);
+					band.copyRows(mask, band.getFromY(), toY);
+					labeler.addStrip(band, fromY, toY).label();
+					labeler.joinStrips();
+					assertTrue(labeler.getKeptStripCount() <= threshold / bandHeight + 2);
+				}
+				assertSameRegions(expected, labeler.mergeStrips());
+			}
+		}
+	}
+
+	/**
+	 * A region which covers a full 4K image. The recursive implementation failed with StackOverFlowError.
+	 */
+	@Test
+	public void testHugeRegion() {
+		DifferenceMask mask = new DifferenceMask(3840, 2160);
+		for (int y = 0; y < 2160; y++) {
+			for (int x = 0; x < 3840; x++) {
+				mask.set(x, y);
+			}
+		}
+
+		RegionBounds bounds = RegionLabeler.labelRegions(mask, ImageComparison.threshold);
+
+		assertEquals(1, bounds.size());
+		assertEquals(3840 * 2160, bounds.getPixelCount(0));
+	}
+}
@@ -0,0 +1,144 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+
+/**
+ * Unit-level testing for {@link RegionMask} object.
+ */
+public class RegionMaskUnitTest {
+
+	/**
+	 * @return the rectangle of the columns and the rows, the X bounds of a {@link Rectangle} are the rows.
+	 */
+	private static Rectangle rectangle(int firstColumn, int firstRow, int lastColumn, int lastRow) {
+		Rectangle rectangle = new Rectangle();
+		rectangle.setMinX(firstRow);
+		rectangle.setMinY(firstColumn);
+		rectangle.setMaxX(lastRow);
+		rectangle.setMaxY(lastColumn);
+		return rectangle;
+	}
+
+	@Test
+	public void testIncludedRectanglesAreMerged() {
+		RegionMask mask = RegionMask.include(100, 50, Arrays.asList(rectangle(10, 0, 19, 9), rectangle(15, 5, 29, 14),
+				rectangle(40, 5, 49, 5), rectangle(90, 45, 200, 200)));
+
+		assertArrayEquals(new int[]{10, 20}, mask.getSpans(0));
+		assertArrayEquals(new int[]{10, 30, 40, 50}, mask.getSpans(5));
+		assertArrayEquals(new int[]{10, 30}, mask.getSpans(9));
+		assertArrayEquals(new int[]{15, 30}, mask.getSpans(10));
+		assertArrayEquals(new int[0], mask.getSpans(20));
+		// cut by the border of the image
+		assertArrayEquals(new int[]{90, 100}, mask.getSpans(49));
+		assertEquals(10 * 10 + 15 * 10 - 5 * 5 + 10 + 10 * 5, mask.getCheckedPixelCount());
+	}
+
+	@Test
+	public void testExcludedRectangles() {
+		RegionMask mask = RegionMask.exclude(100, 50, Arrays.asList(rectangle(0, 0, 9, 49), rectangle(20, 10, 29, 19)));
+
+		assertArrayEquals(new int[]{10, 100}, mask.getSpans(0));
+		assertArrayEquals(new int[]{10, 20, 30, 100}, mask.getSpans(10));
+		assertFalse(mask.isChecked(25, 15));
+		assertTrue(mask.isChecked(30, 15));
+		assertEquals(100 * 50 - 10 * 50 - 10 * 10, mask.getCheckedPixelCount());
+	}
+
+	@Test
+	public void testIncludedWithoutIgnored() {
+		RegionMask mask = RegionMask.include(100, 50, Collections.singletonList(rectangle(10, 10, 59, 19)))
+				.without(Arrays.asList(rectangle(0, 12, 14, 12), rectangle(30, 0, 39, 49), rectangle(55, 15, 99, 15)));
+
+		assertArrayEquals(new int[]{10, 30, 40, 60}, mask.getSpans(10));
+		assertArrayEquals(new int[]{15, 30, 40, 60}, mask.getSpans(12));
+		assertArrayEquals(new int[]{10, 30, 40, 55}, mask.getSpans(15));
+		assertArrayEquals(new int[0], mask.getSpans(20));
+	}
+
+	@Test
+	public void testFromImage() {
+		BufferedImage image = new BufferedImage(10, 3, BufferedImage.TYPE_INT_ARGB);
+		for (int x = 2; x < 10; x++) {
+			image.setRGB(x, 1, 0xffffffff);
+		}
+		// transparent
+		image.setRGB(5, 1, 0x00ffffff);
+
+		RegionMask mask = RegionMask.fromImage(image);
+
+		assertArrayEquals(new int[0], mask.getSpans(0));
+		assertArrayEquals(new int[]{2, 5, 6, 10}, mask.getSpans(1));
+	}
+
+	@Test
+	public void testIgnoredDifferencesAreNotFound() {
+		BufferedImage image1 = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+		BufferedImage image2 = ImageComparisonTools.deepCopy(image1);
+		// the regions of one pixel are smaller than the minimum rectangle size
+		image2.setRGB(50, 50, 0xffffff);
+		image2.setRGB(51, 51, 0xffffff);
+		image2.setRGB(200, 150, 0xffffff);
+		image2.setRGB(201, 151, 0xffffff);
+		RegionMask mask = RegionMask.exclude(300, 200, Collections.singletonList(rectangle(40, 40, 60, 60)));
+
+		for (ComparisonOptions options : Arrays.asList(ComparisonOptions.defaults(),
+				ComparisonOptions.defaults().withBlockPrefilter(true),
+				ComparisonOptions.defaults().withParallelism(4).withTileSize(32),
+				ComparisonOptions.defaults().withParallelism(4).withTileSize(32).withBlockPrefilter(true))) {
+			ComparisonResult result = new ImageComparator(options.withRegionMask(mask)).compare(image1, image2);
+
+			assertEquals(options.toString(), Collections.singletonList(rectangle(200, 150, 201, 151)), result.getDifferences());
+		}
+		assertEquals(ComparisonResult.CheckResult.ImageMissmatch,
+				new ImageComparator(ComparisonOptions.defaults().withRegionMask(mask)).quickCompare(image1, image2).getCheckResult());
+	}
+
+	@Test
+	public void testOnlyCheckedPixelsAreCompared() throws IOException, URISyntaxException {
+		BufferedImage image1 = readImageFromResources("image1.png");
+		BufferedImage image2 = readImageFromResources("image2.png");
+		List<Rectangle> ignored = new ArrayList<>();
+		ignored.add(rectangle(0, 0, image1.getWidth() / 2, image1.getHeight() - 1));
+		ignored.add(rectangle(0, 100, image1.getWidth() - 1, 149));
+		RegionMask mask = RegionMask.exclude(image1.getWidth(), image1.getHeight(), ignored);
+		AtomicLong compared = new AtomicLong();
+		PixelDistance counting = (rgb1, rgb2) -> {
+			compared.incrementAndGet();
+			return PixelDistance.defaultDistance().isDifferent(rgb1, rgb2);
+		};
+
+		ComparisonResult result = new ImageComparator(ComparisonOptions.defaults().withPixelDistance(counting).withRegionMask(mask))
+				.compare(image1, image2);
+
+		assertEquals(mask.getCheckedPixelCount(), compared.get());
+		for (Rectangle difference : result.getDifferences()) {
+			assertTrue(difference.getMinY() > image1.getWidth() / 2);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMaskOfOtherSize() {
+		BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+		RegionMask mask = RegionMask.exclude(20, 10, new ArrayList<>());
+
+		new ImageComparator(ComparisonOptions.defaults().withRegionMask(mask)).compare(image, image);
+	}
+}
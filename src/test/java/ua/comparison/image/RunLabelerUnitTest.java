@@ -0,0 +1,100 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+import ua.comparison.image.model.ComparisonResult;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+import static ua.comparison.image.TestSupport.assertSameRegions;
+import static ua.comparison.image.TestSupport.randomMask;
+
+/**
+ * Unit-level testing for {@link RunLabeler} and {@link DifferenceRuns} objects.
+ */
+public class RunLabelerUnitTest {
+
+	@Test
+	public void testRunsOfMask() {
+		DifferenceMask mask = new DifferenceMask(130, 2);
+		for (int x : new int[]{0, 1, 2, 10, 62, 63, 64, 65, 127, 128, 129}) {
+			mask.set(x, 1);
+		}
+
+		DifferenceRuns runs = DifferenceRuns.of(mask);
+
+		assertEquals(0, runs.getRowEnd(0) - runs.getRowStart(0));
+		int[] expected = {0, 2, 10, 10, 62, 65, 127, 129};
+		for (int run = runs.getRowStart(1); run < runs.getRowEnd(1); run++) {
+			assertEquals(expected[run * 2], runs.getRunStart(run));
+			assertEquals(expected[run * 2 + 1], runs.getRunEnd(run));
+		}
+		assertEquals(4, runs.size());
+		assertEquals(mask.cardinality(), runs.cardinality());
+	}
+
+	@Test
+	public void testSameRegionsAsPixelLabeling() {
+		Random random = new Random(17);
+		for (int density : new int[]{2, 10, 50}) {
+			DifferenceMask mask = randomMask(random, 150, 90, density);
+			for (int threshold = 0; threshold <= 7; threshold++) {
+				assertSameRegions(RegionLabeler.labelRegions(mask, threshold),
+						RunLabeler.labelRegions(DifferenceRuns.of(mask), threshold));
+			}
+		}
+	}
+
+	@Test
+	public void testDiagonalsOfShortRuns() {
+		DifferenceMask mask = new DifferenceMask(20, 10);
+		// on the diagonal of the pixel (10, 5), three rows before
+		mask.set(13, 2);
+		mask.set(10, 5);
+		// neither on the diagonal nor on the column
+		mask.set(1, 6);
+		mask.set(3, 9);
+
+		RegionBounds bounds = RunLabeler.labelRegions(DifferenceRuns.of(mask), 3);
+
+		assertEquals(3, bounds.size());
+		assertSameRegions(RegionLabeler.labelRegions(mask, 3), bounds);
+	}
+
+	@Test
+	public void testAppendedStrips() {
+		DifferenceMask mask = new DifferenceMask(40, 30);
+		Random random = new Random(3);
+		for (int i = 0; i < 120; i++) {
+			mask.set(random.nextInt(40), random.nextInt(30));
+		}
+		DifferenceRuns runs = new DifferenceRuns(40, 0, 30);
+		for (int y = 0; y < 30; y += 7) {
+			runs.append(DifferenceRuns.of(mask, y, Math.min(y + 7, 30)));
+		}
+
+		assertSameRegions(RegionLabeler.labelRegions(mask, 5), RunLabeler.labelRegions(runs, 5));
+	}
+
+	@Test
+	public void testSameResultOfComparison() throws IOException, URISyntaxException {
+		BufferedImage image1 = readImageFromResources("image1.png");
+		BufferedImage image2 = readImageFromResources("image2.png");
+		ComparisonResult expected = new ImageComparator().compare(image1, image2);
+
+		for (ComparisonOptions options : Arrays.asList(ComparisonOptions.defaults(),
+				ComparisonOptions.defaults().withBlockPrefilter(true),
+				ComparisonOptions.defaults().withParallelism(4).withTileSize(50),
+				ComparisonOptions.defaults().withParallelism(4).withTileSize(50).withBlockPrefilter(true))) {
+			ComparisonResult result = new ImageComparator(options.withRunLengthEncoding(true)).compare(image1, image2);
+
+			assertEquals(options.toString(), expected.getDifferences(), result.getDifferences());
+			assertEquals(expected.getStats().getDifferentPixelCount(), result.getStats().getDifferentPixelCount());
+		}
+	}
+}
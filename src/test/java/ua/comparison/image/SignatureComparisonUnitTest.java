@@ -0,0 +1,89 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.ComparisonStats;
+import ua.comparison.image.model.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+import static ua.comparison.image.TestSupport.resource;
+
+/**
+ * Unit-level testing for {@link SignatureComparison} object.
+ */
+public class SignatureComparisonUnitTest {
+
+	@Test
+	public void testSameResultAsImageComparison() throws IOException, URISyntaxException {
+		BufferedImage baseline = readImageFromResources("image1.png");
+		BufferedImage candidate = readImageFromResources("image2.png");
+		ComparisonResult expected = new ImageComparison(baseline, candidate).compareImages();
+
+		for (int tileSize : new int[] { 1, 7, 64, 10000 }) {
+			ComparisonResult result = new SignatureComparison(resource("image1.png"), TileSignature.of(baseline, tileSize), candidate)
+					.compareImages();
+
+			assertEquals(expected.getDifferences(), result.getDifferences());
+			assertEquals(expected.getStats().getDifferentPixelCount(), result.getStats().getDifferentPixelCount());
+		}
+	}
+
+	@Test
+	public void testSameResultAsComparatorWithOptions() throws IOException, URISyntaxException {
+		BufferedImage baseline = readImageFromResources("image1.png");
+		BufferedImage candidate = readImageFromResources("image2.png");
+		Rectangle ignored = new Rectangle();
+		ignored.setMinX(0);
+		ignored.setMinY(0);
+		ignored.setMaxX(baseline.getHeight() - 1);
+		ignored.setMaxY(baseline.getWidth() / 2);
+		RegionMask regionMask = RegionMask.exclude(baseline.getWidth(), baseline.getHeight(), Collections.singletonList(ignored));
+		List<ComparisonStats> listened = new ArrayList<>();
+		ComparisonOptions defaults = ComparisonOptions.defaults().withListener(listened::add);
+
+		for (ComparisonOptions options : Arrays.asList(defaults.withThreshold(20).withMergeGap(0),
+				defaults.withMinimumRectangleSize(50), defaults.withRegionMask(regionMask), defaults.withDilation(true))) {
+			ImageComparator comparator = new ImageComparator(options);
+			ComparisonResult expected = comparator.compare(baseline, candidate);
+			ComparisonResult result = new SignatureComparison(resource("image1.png"), TileSignature.of(baseline, 64), candidate,
+					comparator).compareImages();
+
+			assertEquals(options.toString(), expected.getDifferences(), result.getDifferences());
+			assertEquals(expected.getStats().getDifferentPixelCount(), result.getStats().getDifferentPixelCount());
+			assertSame(result.getStats(), listened.get(listened.size() - 1));
+		}
+	}
+
+	@Test
+	public void testSameImageIsNotDecoded() throws IOException, URISyntaxException {
+		BufferedImage baseline = readImageFromResources("image1.png");
+		SignatureComparison comparison = new SignatureComparison(new File("missing.png"), TileSignature.of(baseline), baseline);
+
+		ComparisonResult result = comparison.compareImages();
+
+		assertEquals(ComparisonResult.CheckResult.Match, result.getCheckResult());
+		assertEquals(0, result.getStats().getDecodeNanos());
+		assertTrue(TileSignature.of(baseline).findChangedTiles(comparison.getCandidateSignature()).isEmpty());
+	}
+
+	@Test
+	public void testSizeMissmatch() throws IOException, URISyntaxException {
+		TileSignature signature = TileSignature.of(readImageFromResources("image1.png"));
+		ComparisonResult result = new SignatureComparison(resource("image1.png"), signature, new BufferedImage(3, 3, BufferedImage.TYPE_INT_RGB))
+				.compareImages();
+
+		assertEquals(ComparisonResult.CheckResult.ImageSizeMissmatch, result.getCheckResult());
+	}
+}
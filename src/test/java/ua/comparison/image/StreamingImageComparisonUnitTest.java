@@ -0,0 +1,95 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+import ua.comparison.image.model.ComparisonResult;
+import ua.comparison.image.model.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.readImage;
+import static ua.comparison.image.TestSupport.resource;
+import static ua.comparison.image.model.ComparisonResult.CheckResult.Incomplete;
+import static ua.comparison.image.model.ComparisonResult.CheckResult.ImageSizeMissmatch;
+
+/**
+ * Unit-level testing for {@link StreamingImageComparison} object.
+ */
+public class StreamingImageComparisonUnitTest {
+
+	private static void assertSameAsImageComparison(String image1, String image2) throws IOException, URISyntaxException {
+		List<Rectangle> expected = new ImageComparison(image1, image2).compareImages().getDifferences();
+		for (int bandHeight : new int[] { 16, 100, 10000 }) {
+			StreamingImageComparison streaming = new StreamingImageComparison(resource(image1), resource(image2));
+			streaming.setBandHeight(bandHeight);
+			assertEquals("band height " + bandHeight, expected, streaming.compareImages().getDifferences());
+		}
+	}
+
+	@Test
+	public void testSameAsImageComparison() throws IOException, URISyntaxException {
+		assertTrue(new StreamingImageComparison(resource("image1.png"), resource("image2.png")).compareImages().hasDifferences());
+		assertSameAsImageComparison("image1.png", "image2.png");
+		assertSameAsImageComparison("b1#21.png", "b2#21.png");
+	}
+
+	@Test
+	public void testSameAsComparatorWithOptions() throws IOException, URISyntaxException {
+		File image1 = resource("image1.png");
+		File image2 = resource("image2.png");
+		BufferedImage decoded1 = readImage(image1);
+		BufferedImage decoded2 = readImage(image2);
+		Rectangle ignored = new Rectangle();
+		ignored.setMinX(0);
+		ignored.setMinY(0);
+		ignored.setMaxX(decoded1.getHeight() / 2);
+		ignored.setMaxY(decoded1.getWidth() / 2);
+		RegionMask regionMask = RegionMask.exclude(decoded1.getWidth(), decoded1.getHeight(), singletonList(ignored));
+		ComparisonOptions[] allOptions = {
+				ComparisonOptions.defaults().withThreshold(2).withMinimumRectangleSize(4),
+				ComparisonOptions.defaults().withMergeGap(10),
+				ComparisonOptions.defaults().withRegionMask(regionMask),
+				ComparisonOptions.defaults().withRunLengthEncoding(true),
+				ComparisonOptions.defaults().withDilation(true).withRegionMask(regionMask)
+		};
+		for (ComparisonOptions options : allOptions) {
+			ImageComparator comparator = new ImageComparator(options);
+			List<Rectangle> expected = comparator.compare(decoded1, decoded2).getDifferences();
+			for (int bandHeight : new int[] { 16, 10000 }) {
+				StreamingImageComparison streaming = new StreamingImageComparison(image1, image2, comparator);
+				streaming.setBandHeight(bandHeight);
+				assertEquals(options + ", band height " + bandHeight, expected, streaming.compareImages().getDifferences());
+			}
+		}
+	}
+
+	@Test
+	public void testListenerAndDeadline() throws IOException, URISyntaxException {
+		AtomicInteger comparisons = new AtomicInteger();
+		ComparisonListener listener = stats -> comparisons.incrementAndGet();
+		StreamingImageComparison streaming = new StreamingImageComparison(resource("image1.png"), resource("image1.png"),
+				new ImageComparator(ComparisonOptions.defaults().withListener(listener)));
+		streaming.setBandHeight(16);
+
+		ComparisonResult result = streaming.compareImages(ComparisonDeadline.after(0, TimeUnit.NANOSECONDS));
+		assertTrue(result.isPartial());
+		assertEquals(Incomplete, result.getCheckResult());
+		assertEquals(1, comparisons.get());
+		assertEquals(1, streaming.compareImages(ComparisonDeadline.after(1, TimeUnit.HOURS)).getCoverage(), 0);
+		assertEquals(2, comparisons.get());
+	}
+
+	@Test
+	public void testSizeMismatch() throws IOException, URISyntaxException {
+		StreamingImageComparison streaming = new StreamingImageComparison(resource("image1.png"), resource("b1#21.png"));
+		assertEquals(ImageSizeMissmatch, streaming.compareImages().getCheckResult());
+	}
+}
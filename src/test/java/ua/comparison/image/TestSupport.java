@@ -0,0 +1,51 @@
+package ua.comparison.image;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The helpers which are shared by the unit tests.
+ */
+final class TestSupport {
+
+	private TestSupport() {
+	}
+
+	/**
+	 * @return the file of the test resource.
+	 */
+	static File resource(String path) throws URISyntaxException {
+		return new File(TestSupport.class.getClassLoader().getResource(path).toURI());
+	}
+
+	/**
+	 * Assert that the regions have the same bounds and the same counts of the pixels, in the same order.
+	 */
+	static void assertSameRegions(RegionBounds expected, RegionBounds actual) {
+		assertEquals(expected.toRectangles(Integer.MIN_VALUE), actual.toRectangles(Integer.MIN_VALUE));
+		for (int region = 0; region < expected.size(); region++) {
+			assertEquals(expected.getPixelCount(region), actual.getPixelCount(region));
+		}
+	}
+
+	/**
+	 * Create a mask where every pixel is different with the probability of the density.
+	 *
+	 * @param density
+	 * 		the percent of the different pixels, from "0" to "100".
+	 */
+	static DifferenceMask randomMask(Random random, int width, int height, int density) {
+		DifferenceMask mask = new DifferenceMask(width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (random.nextInt(100) < density) {
+					mask.set(x, y);
+				}
+			}
+		}
+		return mask;
+	}
+}
@@ -0,0 +1,94 @@
+package ua.comparison.image;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+import static ua.comparison.image.TestSupport.resource;
+
+/**
+ * Unit-level testing for {@link TileSignature} object.
+ */
+public class TileSignatureUnitTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testOnlyChangedTileHasOtherHash() throws IOException, URISyntaxException {
+		BufferedImage image = readImageFromResources("image1.png");
+		BufferedImage changed = ImageComparisonTools.deepCopy(image);
+		changed.setRGB(70, 140, ~image.getRGB(70, 140));
+		// the alpha is not hashed
+		changed.setRGB(0, 0, image.getRGB(0, 0) & 0xffffff);
+
+		TileSignature signature = TileSignature.of(image, 32);
+		BitSet changedTiles = signature.findChangedTiles(TileSignature.of(changed, 32));
+
+		assertEquals(1, changedTiles.cardinality());
+		assertTrue(changedTiles.get(140 / 32 * signature.getColumns() + 70 / 32));
+	}
+
+	@Test
+	public void testWriteAndRead() throws IOException, URISyntaxException {
+		TileSignature signature = TileSignature.of(readImageFromResources("image1.png"), 50);
+		File file = temporaryFolder.newFile("image1.png" + TileSignature.FILE_EXTENSION);
+
+		signature.write(file);
+		TileSignature read = TileSignature.read(file);
+
+		assertEquals(signature.getWidth(), read.getWidth());
+		assertEquals(signature.getHeight(), read.getHeight());
+		assertEquals(signature.getTileSize(), read.getTileSize());
+		assertTrue(signature.findChangedTiles(read).isEmpty());
+	}
+
+	@Test
+	public void testSignatureIsStoredForBaseline() throws IOException, URISyntaxException {
+		File baseline = new File(temporaryFolder.getRoot(), "image1.png");
+		Files.copy(resource("image1.png").toPath(), baseline.toPath());
+
+		TileSignature signature = TileSignature.forBaseline(baseline);
+
+		assertTrue(TileSignature.getSignatureFile(baseline).isFile());
+		assertTrue(signature.findChangedTiles(TileSignature.forBaseline(baseline)).isEmpty());
+	}
+
+	@Test
+	public void testReplacedBaselineWithOlderTimeIsComputedAgain() throws IOException, URISyntaxException {
+		File baseline = new File(temporaryFolder.getRoot(), "image1.png");
+		Files.copy(resource("image1.png").toPath(), baseline.toPath());
+		TileSignature.forBaseline(baseline);
+		File signatureFile = TileSignature.getSignatureFile(baseline);
+		long signatureModified = signatureFile.lastModified();
+		// replaced like by "cp -p" with a file of an older time
+		BufferedImage replaced = readImageFromResources("image1.png");
+		replaced.setRGB(70, 140, ~replaced.getRGB(70, 140));
+		ImageComparisonTools.saveImage(baseline, replaced);
+		assertTrue(baseline.setLastModified(signatureModified - 60_000));
+
+		TileSignature signature = TileSignature.forBaseline(baseline);
+
+		assertTrue(signature.findChangedTiles(TileSignature.of(replaced)).isEmpty());
+		assertEquals(1, signature.findChangedTiles(TileSignature.of(readImageFromResources("image1.png"))).cardinality());
+		// no temporary files are left
+		assertEquals(2, temporaryFolder.getRoot().list().length);
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadOtherFile() throws IOException {
+		File file = temporaryFolder.newFile("other.tiles");
+		Files.write(file.toPath(), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+		TileSignature.read(file);
+	}
+}
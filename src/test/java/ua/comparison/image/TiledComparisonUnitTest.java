@@ -0,0 +1,91 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+
+/**
+ * Unit-level testing for {@link TiledComparison} object.
+ */
+public class TiledComparisonUnitTest {
+
+	private static void assertSameAsSequential(BufferedImage image1, BufferedImage image2, int tileSize) {
+		DifferenceMask mask = ImageComparisonTools.populateTheMatrixOfTheDifferences(image1, image2);
+		RegionBounds expected = RegionLabeler.labelRegions(mask, ImageComparison.threshold);
+
+		RegionBounds actual = new TiledComparison(PixelDistance.defaultDistance(), ImageComparison.threshold, 4, tileSize)
+				.compare(image1, image2);
+
+		assertEquals(expected.toRectangles(0), actual.toRectangles(0));
+		for (int region = 0; region < expected.size(); region++) {
+			assertEquals(expected.getPixelCount(region), actual.getPixelCount(region));
+		}
+	}
+
+	@Test
+	public void testSameAsSequential() throws IOException, URISyntaxException {
+		BufferedImage image1 = readImageFromResources("image1.png");
+		BufferedImage image2 = readImageFromResources("image2.png");
+		for (int tileSize : new int[] { 1, 3, 64, 10000 }) {
+			assertSameAsSequential(image1, image2, tileSize);
+		}
+	}
+
+	@Test
+	public void testNoiseSameAsSequential() {
+		BufferedImage image1 = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+		BufferedImage image2 = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+		Random random = new Random(17);
+		for (int i = 0; i < 2000; i++) {
+			image2.setRGB(random.nextInt(300), random.nextInt(200), 0xffffff);
+		}
+		for (int tileSize : new int[] { 2, 5, 37 }) {
+			assertSameAsSequential(image1, image2, tileSize);
+		}
+	}
+
+	@Test
+	public void testImageComparisonInParallel() throws IOException, URISyntaxException {
+		ImageComparison sequential = new ImageComparison("image1.png", "image3.png");
+		ImageComparison parallel = new ImageComparison("image1.png", "image3.png");
+		parallel.setParallelism(4);
+		parallel.setTileSize(50);
+
+		assertTrue(parallel.compareImages().hasDifferences());
+		assertEquals(sequential.compareImages().getDifferences(), parallel.compareImages().getDifferences());
+	}
+
+	@Test
+	public void testPoolOfCallerAndSharedPools() throws IOException, URISyntaxException {
+		assertSame(TiledComparison.sharedPool(3), TiledComparison.sharedPool(3));
+		assertNotSame(TiledComparison.sharedPool(3), TiledComparison.sharedPool(2));
+		assertEquals(3, TiledComparison.sharedPool(3).getParallelism());
+
+		BufferedImage image1 = readImageFromResources("image1.png");
+		BufferedImage image3 = readImageFromResources("image3.png");
+		ImageComparator sequential = new ImageComparator();
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			ImageComparator parallel = new ImageComparator(ComparisonOptions.defaults().withParallelism(4).withTileSize(50).withPool(pool));
+			for (int i = 0; i < 2; i++) {
+				assertEquals(sequential.compare(image1, image3).getDifferences(), parallel.compare(image1, image3).getDifferences());
+			}
+			// the pool of the caller is not shut down by the comparisons
+			assertFalse(pool.isShutdown());
+			assertFalse(TiledComparison.sharedPool(4).isShutdown());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package ua.comparison.image;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static ua.comparison.image.ImageComparisonTools.readImageFromResources;
+
+/**
+ * Unit-level testing for {@link VectorDifferenceKernel} object. It tests the Java 8 version, and the vector version
+ * on Java 17 with the {@code jdk.incubator.vector} module, see the {@code vectorTest} task of the build.
+ */
+public class VectorDifferenceKernelUnitTest {
+
+	private static void assertSameAsScalar(BufferedImage image1, BufferedImage image2, double toleranceLevel) {
+		EuclideanPixelDistance distance = new EuclideanPixelDistance(toleranceLevel);
+		// not an EuclideanPixelDistance, so the pixels are compared one by one
+		PixelDistance scalar = distance::isDifferent;
+		DifferenceMask expected = ImageComparisonTools.populateTheMatrixOfTheDifferences(image1, image2, scalar);
+
+		DifferenceMask mask = new DifferenceMask(image1.getWidth(), image1.getHeight());
+		PixelRowReader reader1 = PixelRowReader.forImage(image1);
+		PixelRowReader reader2 = PixelRowReader.forImage(image2);
+		int[] row1 = new int[image1.getWidth()];
+		int[] row2 = new int[image1.getWidth()];
+		for (int y = 0; y < image1.getHeight(); y++) {
+			reader1.readRow(y, row1);
+			reader2.readRow(y, row2);
+			VectorDifferenceKernel.populateRow(mask, y, row1, row2, distance.getMaxEqualSquaredDistance());
+		}
+
+		for (int y = 0; y < image1.getHeight(); y++) {
+			for (int word = 0; word < (image1.getWidth() + 63) >>> 6; word++) {
+				assertEquals("row " + y + ", word " + word, expected.getWord(y, word), mask.getWord(y, word));
+			}
+		}
+	}
+
+	@Test
+	public void testSameBitsAsScalarOnResources() throws IOException, URISyntaxException {
+		String[][] pairs = {{"image1.png", "image2.png"}, {"image1.png", "image3.png"}, {"b1#17.png", "b2#17.png"},
+				{"b1#21.png", "b2#21.png"}};
+
+		for (String[] pair : pairs) {
+			BufferedImage image1 = readImageFromResources(pair[0]);
+			BufferedImage image2 = readImageFromResources(pair[1]);
+			if (ImageComparisonTools.hasNotSameImageSize(image1, image2)) {
+				continue;
+			}
+			for (double toleranceLevel : new double[]{0, PixelDistance.DEFAULT_TOLERANCE_LEVEL, 0.5, 1}) {
+				assertSameAsScalar(image1, image2, toleranceLevel);
+			}
+		}
+	}
+
+	@Test
+	public void testSameBitsAsScalarOnNoise() {
+		Random random = new Random(5);
+		// the width is not a multiple of the vector length
+		BufferedImage image1 = new BufferedImage(203, 20, BufferedImage.TYPE_INT_ARGB);
+		BufferedImage image2 = new BufferedImage(203, 20, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < 20; y++) {
+			for (int x = 0; x < 203; x++) {
+				int argb = random.nextInt();
+				image1.setRGB(x, y, argb);
+				image2.setRGB(x, y, random.nextBoolean() ? argb ^ random.nextInt(0x1000000) : argb ^ 0xff000000);
+			}
+		}
+
+		for (double toleranceLevel : new double[]{0, PixelDistance.DEFAULT_TOLERANCE_LEVEL, 0.5}) {
+			assertSameAsScalar(image1, image2, toleranceLevel);
+		}
+	}
+}